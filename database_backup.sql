@@ -111,6 +111,85 @@ LOCK TABLES `aspect_summary_evidence` WRITE;
 /*!40000 ALTER TABLE `aspect_summary_evidence` ENABLE KEYS */;
 UNLOCK TABLES;
 
+--
+-- Table structure for table `aspect_watermark`
+--
+
+DROP TABLE IF EXISTS `aspect_watermark`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `aspect_watermark` (
+  `restaurant_id` bigint NOT NULL COMMENT '餐厅ID',
+  `watermark_time` datetime NOT NULL COMMENT '已处理评论的最大updatedAt',
+  `watermark_review_id` bigint NOT NULL COMMENT '同一updatedAt下已处理的最大评论ID',
+  `last_updated` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后更新时间',
+  PRIMARY KEY (`restaurant_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='方面情感增量分析进度';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `aspect_watermark`
+--
+
+LOCK TABLES `aspect_watermark` WRITE;
+/*!40000 ALTER TABLE `aspect_watermark` DISABLE KEYS */;
+/*!40000 ALTER TABLE `aspect_watermark` ENABLE KEYS */;
+UNLOCK TABLES;
+
+--
+-- Table structure for table `review_aspect_contribution`
+--
+
+DROP TABLE IF EXISTS `review_aspect_contribution`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `review_aspect_contribution` (
+  `review_id` bigint NOT NULL COMMENT '评论ID',
+  `restaurant_id` bigint NOT NULL COMMENT '餐厅ID',
+  `aspect` varchar(50) NOT NULL COMMENT '方面名称',
+  `positive_count` int NOT NULL DEFAULT '0' COMMENT '计入的好评数',
+  `negative_count` int NOT NULL DEFAULT '0' COMMENT '计入的差评数',
+  `total_count` int NOT NULL DEFAULT '0' COMMENT '计入的提及次数',
+  PRIMARY KEY (`review_id`,`aspect`),
+  KEY `idx_restaurant_id` (`restaurant_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='单条评论对方面统计的贡献，评论修改或删除时扣回';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `review_aspect_contribution`
+--
+
+LOCK TABLES `review_aspect_contribution` WRITE;
+/*!40000 ALTER TABLE `review_aspect_contribution` DISABLE KEYS */;
+/*!40000 ALTER TABLE `review_aspect_contribution` ENABLE KEYS */;
+UNLOCK TABLES;
+
+--
+-- Table structure for table `review_sentiment_state`
+--
+
+DROP TABLE IF EXISTS `review_sentiment_state`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `review_sentiment_state` (
+  `review_id` bigint NOT NULL COMMENT '评论ID',
+  `restaurant_id` bigint NOT NULL COMMENT '餐厅ID',
+  `content_hash` char(32) NOT NULL COMMENT '分析时评论内容的MD5',
+  `analyzed_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '分析时间',
+  PRIMARY KEY (`review_id`),
+  KEY `idx_restaurant_id` (`restaurant_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='评论情感分析时的内容指纹';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `review_sentiment_state`
+--
+
+LOCK TABLES `review_sentiment_state` WRITE;
+/*!40000 ALTER TABLE `review_sentiment_state` DISABLE KEYS */;
+/*!40000 ALTER TABLE `review_sentiment_state` ENABLE KEYS */;
+UNLOCK TABLES;
+
 --
 -- Table structure for table `chat_histories`
 --
@@ -377,7 +456,11 @@ CREATE TABLE `reviews` (
   KEY `idx_user_id` (`userId`),
   KEY `idx_restaurant_id` (`restaurantId`),
   KEY `idx_created_at` (`createdAt`),
-  KEY `idx_status` (`status`)
+  KEY `idx_status` (`status`),
+  KEY `idx_restaurant_feed` (`restaurantId`,`status`,`createdAt`,`id`) COMMENT '餐厅评论游标分页',
+  KEY `idx_user_feed` (`userId`,`status`,`createdAt`,`id`) COMMENT '用户评论游标分页',
+  KEY `idx_restaurant_updated` (`restaurantId`,`updatedAt`,`id`) COMMENT '情感分析增量水位',
+  KEY `idx_updated_restaurant` (`updatedAt`,`restaurantId`) COMMENT '情感分析候选餐厅扫描'
 ) ENGINE=InnoDB AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='评论表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -189,8 +189,8 @@ def preprocess_reviews(reviews):
         logger.warning("未从评论中提取到有效短语")
         
         # 应急方案：如果无法提取短语，使用整条评论作为短语
-        for i, review in enumerate(valid_reviews):
-            if len(review) > 3:  # 确保评论有实际内容
+        for i, review in enumerate(cleaned_reviews):
+            if review and len(review) > 3:  # 确保评论有实际内容
                 phrase = review[:20]  # 取前20个字符作为短语
                 all_phrases.append(phrase)
                 phrase_to_review_map[phrase] = [i]
@@ -231,7 +231,8 @@ def preprocess_reviews(reviews):
         clustered_phrases.append({
             'representative': representative,
             'phrases': cluster_phrases,
-            'count': len(all_reviews)
+            'count': len(all_reviews),
+            'review_indices': sorted(all_reviews)
         })
     
     # 处理剩余的噪声点（单独成聚类）
@@ -241,7 +242,8 @@ def preprocess_reviews(reviews):
             clustered_phrases.append({
                 'representative': phrase,
                 'phrases': [phrase],
-                'count': len(phrase_to_review_map[phrase])
+                'count': len(phrase_to_review_map[phrase]),
+                'review_indices': sorted(set(phrase_to_review_map[phrase]))
             })
     
     # 按出现次数降序排序
@@ -292,7 +294,8 @@ def analyze_reviews_batch(reviews):
                 'percentage': round((count / len(reviews)) * 100, 1),
                 'sentiment': sentiment,
                 'confidence': round(confidence, 2),
-                'similar_phrases': cluster['phrases'][:5]  # 限制显示数量
+                'similar_phrases': cluster['phrases'][:5],  # 限制显示数量
+                'review_indices': cluster['review_indices']  # 提及该短语的评论在请求中的下标，用于增量合并
             })
         
         # 3. 生成高质量摘要
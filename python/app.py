@@ -1,50 +1,102 @@
 from flask import Flask, request, jsonify
 from config import logger
-from analyzer import analyze_reviews_batch,create_enhanced_vectors, cosine_similarity,extract_key_phrases
+from analyzer import analyze_reviews_batch, cosine_similarity,extract_key_phrases, model
+from collections import OrderedDict
+import os
+import threading
 import time
 import json
 
 app = Flask(__name__)
 
+# 按餐厅缓存的FAQ集合及其问题向量: restaurant_id -> {"version", "faqs", "vectors"}
+# 由Java端在FAQ变更后推送一次，匹配请求只携带餐厅ID和版本号。
+# 每个餐厅只保留最新推送的版本；按最近使用淘汰，与Java端faq.matcher.max-restaurants一致。
+# 多进程部署时每个worker各自缓存，缺少的集合由Java端收到faq_set_missing后重新推送
+FAQ_SET_MAX_RESTAURANTS = int(os.environ.get('FAQ_SET_MAX_RESTAURANTS', 1000))
+faq_sets = OrderedDict()
+faq_sets_lock = threading.Lock()
+
+# 返回候选FAQ的最低相似度（句向量余弦相似度）。这里只用于过滤明显无关的FAQ，
+# 是否直接采用匹配结果由Java端判断（直接回答 > 0.75，RAG回答去重 > 0.85），
+# 候选阈值低于这两个阈值时不影响其判断，只决定返回给调用方的候选数量
+MATCH_CANDIDATE_THRESHOLD = 0.6
+
+@app.route('/api/faq_sets', methods=['POST'])
+def put_faq_set():
+    """接收餐厅FAQ集合，预先计算问题向量"""
+    data = request.json
+    restaurant_id = str(data.get('restaurant_id'))
+    version = data.get('version')
+    faqs = data.get('faqs', [])
+
+    try:
+        vectors = model.encode([faq['question'] for faq in faqs]) if faqs else []
+        with faq_sets_lock:
+            # 覆盖该餐厅的旧版本，超出上限时淘汰最久未使用的餐厅
+            faq_sets[restaurant_id] = {"version": version, "faqs": faqs, "vectors": vectors}
+            faq_sets.move_to_end(restaurant_id)
+            while len(faq_sets) > FAQ_SET_MAX_RESTAURANTS:
+                faq_sets.popitem(last=False)
+        logger.info(f"FAQ集合已更新: 餐厅 {restaurant_id}, 版本 {version}, {len(faqs)} 条")
+        return jsonify({"status": "ok", "version": version, "count": len(faqs)})
+    except Exception as e:
+        logger.error(f"FAQ集合更新失败: {str(e)}", exc_info=True)
+        return jsonify({"error": str(e)}), 500
+
+def rank_faqs(question, faqs, faq_vectors):
+    """整句加关键短语分别编码，取与每个FAQ的最大相似度，返回超过候选阈值的FAQ，按相似度降序"""
+    if not faqs:
+        return []
+
+    question_texts = [question] + extract_key_phrases(question)
+    similarities = cosine_similarity(model.encode(question_texts), faq_vectors).max(axis=0)
+
+    best_matches = []
+    for i, faq in enumerate(faqs):
+        if similarities[i] > MATCH_CANDIDATE_THRESHOLD:
+            best_matches.append({
+                'faq_id': faq['id'],
+                'question': faq['question'],
+                'answer': faq['answer'],
+                'similarity': float(similarities[i])
+            })
+    best_matches.sort(key=lambda x: x['similarity'], reverse=True)
+    return best_matches
+
+def match_faq_set(question, restaurant_id, version):
+    """使用已缓存的FAQ向量匹配，集合不存在或版本不一致时返回None"""
+    key = str(restaurant_id)
+    with faq_sets_lock:
+        faq_set = faq_sets.get(key)
+        if faq_set is not None:
+            faq_sets.move_to_end(key)
+    if faq_set is None or faq_set["version"] != version:
+        return None
+    return rank_faqs(question, faq_set["faqs"], faq_set["vectors"])
+
 @app.route('/api/match_faq', methods=['POST'])
 def match_faq():
     data = request.json
     question = data.get('question', '')
     existing_faqs = data.get('existing_faqs', [])
-    
+
     try:
-        # 1. 提取用户问题的关键短语（利用现有function）
-        question_phrases = extract_key_phrases(question)
-        
-        # 2. 为用户问题和FAQ创建增强向量（利用现有function）
-        all_texts = question_phrases + [faq['question'] for faq in existing_faqs]
-        vectors, _ = create_enhanced_vectors(all_texts)
-        
-        # 3. 使用相似度计算，类似于reassign_outliers的思路
-        question_vectors = vectors[:len(question_phrases)]
-        faq_vectors = vectors[len(question_phrases):]
-        
-        # 计算问题与FAQ的最大相似度
-        best_matches = []
-        for i, faq in enumerate(existing_faqs):
-            max_sim = max([cosine_similarity([qv], [faq_vectors[i]])[0][0] 
-                          for qv in question_vectors])
-            if max_sim > 0.6:
-                best_matches.append({
-                    'faq_id': faq['id'],
-                    'question': faq['question'],
-                    'answer': faq['answer'],
-                    'similarity': float(max_sim)
-                })
-        
-        # 排序返回结果
-        best_matches.sort(key=lambda x: x['similarity'], reverse=True)
-        
+        # 版本化协议：只传餐厅ID和版本号，FAQ向量已在推送时计算好
+        if 'existing_faqs' not in data and 'restaurant_id' in data:
+            matches = match_faq_set(question, data['restaurant_id'], data.get('version'))
+            if matches is None:
+                return jsonify({"matched_faqs": [], "faq_set_missing": True, "original_question": question})
+        else:
+            # 旧协议：请求中带完整FAQ列表，本次现算向量，匹配逻辑与版本化协议相同
+            faq_vectors = model.encode([faq['question'] for faq in existing_faqs]) if existing_faqs else []
+            matches = rank_faqs(question, existing_faqs, faq_vectors)
+
         return jsonify({
-            'matched_faqs': best_matches[:3],
+            'matched_faqs': matches[:3],
             'original_question': question
         })
-        
+
     except Exception as e:
         logger.error(f"FAQ匹配失败: {str(e)}", exc_info=True)
         return jsonify({"error": str(e), "matched_faqs": []}), 500
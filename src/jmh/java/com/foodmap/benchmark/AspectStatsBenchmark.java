@@ -0,0 +1,66 @@
+package com.foodmap.benchmark;
+
+import com.foodmap.benchmark.support.BenchmarkStubs;
+import com.foodmap.mapper.AspectSummaryMapper;
+import com.foodmap.mapper.ReviewMapper;
+import com.foodmap.service.ai.AspectSentimentService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 短语统计转方面情感统计（convertPhraseStatsToAspectStats）的开销
+ * 输入为Python分析返回的典型规模：50个短语，好/差/中性混合
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AspectStatsBenchmark {
+
+    private static final int PHRASE_COUNT = 50;
+    private static final String[] SENTIMENTS = {"好", "差", "中性"};
+
+    private AspectSentimentService service;
+    private MethodHandle convert;
+    private List<Map<String, Object>> phraseStats;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        // 转换只用到入参，其余依赖以桩或null代替
+        service = new AspectSentimentService(null, BenchmarkStubs.stub(ReviewMapper.class),
+                BenchmarkStubs.stub(AspectSummaryMapper.class), null, null, null);
+        convert = MethodHandles.privateLookupIn(AspectSentimentService.class, MethodHandles.lookup())
+                .findVirtual(AspectSentimentService.class, "convertPhraseStatsToAspectStats",
+                        MethodType.methodType(List.class, List.class));
+
+        phraseStats = new ArrayList<>(PHRASE_COUNT);
+        for (int i = 0; i < PHRASE_COUNT; i++) {
+            phraseStats.add(Map.of(
+                    "phrase", "方面短语" + i,
+                    "count", 5 + i % 17,
+                    "sentiment", SENTIMENTS[i % SENTIMENTS.length],
+                    "confidence", 0.6 + (i % 4) * 0.1));
+        }
+    }
+
+    @Benchmark
+    public Object convertPhraseStats() throws Throwable {
+        return convert.invoke(service, phraseStats);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AspectStatsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,17 @@
+package com.foodmap.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行全部基准测试，可传入正则只运行匹配的基准（如 "Redis.*"）
+ * 所有基准都以桩代替MySQL、Redis和Python服务，不需要外部环境
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : Benchmarks.class.getPackageName() + "\\..*Benchmark";
+        new Runner(new OptionsBuilder().include(include).build()).run();
+    }
+}
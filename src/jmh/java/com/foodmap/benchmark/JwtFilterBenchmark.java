@@ -0,0 +1,100 @@
+package com.foodmap.benchmark;
+
+import com.foodmap.security.jwt.JwtAuthenticationFilter;
+import com.foodmap.security.jwt.JwtTokenProvider;
+import com.foodmap.security.service.PrincipalCache;
+import com.foodmap.util.RedisCacheUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT过滤器单次请求开销
+ * legacy: 原实现，校验和取用户名各构建一次解析器并派生密钥，再查询用户（以桩代替Redis/MySQL）
+ * singleParse: 当前实现，预构建解析器只解析一次，主体由auth声明构建并按令牌缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "foodmapSecretKey123456789012345678901234567890";
+    private static final FilterChain NOOP_CHAIN = (request, response) -> { };
+
+    private JwtTokenProvider tokenProvider;
+    private JwtAuthenticationFilter filter;
+    private UserDetailsService userDetailsService;
+    private String token;
+
+    @Setup
+    public void setup() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpiration", 86400000L);
+        tokenProvider.init();
+
+        PrincipalCache principalCache = new PrincipalCache(new RedisCacheUtil(), new StringRedisTemplate());
+        ReflectionTestUtils.setField(principalCache, "maximumSize", 10000L);
+        ReflectionTestUtils.setField(principalCache, "expireSeconds", 300L);
+        ReflectionTestUtils.setField(principalCache, "jwtExpiration", 86400000L);
+        principalCache.init();
+
+        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserDetails user = new User("alice", "{bcrypt}hash", authorities);
+        userDetailsService = username -> user;
+        filter = new JwtAuthenticationFilter(tokenProvider, userDetailsService, principalCache);
+        token = tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user, null, authorities));
+    }
+
+    @Benchmark
+    public Object legacy() {
+        // 与singleParse相同的请求构造开销
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        String token = request.getHeader("Authorization").substring(7);
+
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        SecretKey key2 = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        Claims claims = Jwts.parserBuilder().setSigningKey(key2).build().parseClaimsJws(token).getBody();
+        UserDetails details = userDetailsService.loadUserByUsername(claims.getSubject());
+        return new UsernamePasswordAuthenticationToken(details, null, details.getAuthorities());
+    }
+
+    @Benchmark
+    public Object singleParse() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), NOOP_CHAIN);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
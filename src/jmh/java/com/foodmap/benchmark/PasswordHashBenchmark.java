@@ -0,0 +1,45 @@
+package com.foodmap.benchmark;
+
+import com.foodmap.util.SecurityUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 注册和登录时BCrypt加密与校验（SecurityUtil）的开销，默认强度10
+ * 单次耗时在毫秒级，迭代时间相应放长
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "Password123";
+
+    private String encoded;
+
+    @Setup
+    public void setup() {
+        encoded = SecurityUtil.encryptPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public String encryptPassword() {
+        return SecurityUtil.encryptPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean checkPassword() {
+        return SecurityUtil.checkPassword(PASSWORD, encoded);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PasswordHashBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.foodmap.benchmark;
+
+import com.foodmap.benchmark.support.BenchmarkStubs;
+import com.foodmap.entity.pojo.ChatHistory;
+import com.foodmap.entity.pojo.FAQ;
+import com.foodmap.mapper.FAQMapper;
+import com.foodmap.mapper.ReviewMapper;
+import com.foodmap.service.ai.FAQService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RAG提示词拼装（buildRAGPrompt）的开销
+ * 输入与在线问答一致：检索出的若干条FAQ加最近几轮对话
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RagPromptBenchmark {
+
+    @Param({"3", "10"})
+    private int faqCount;
+
+    @Param({"10"})
+    private int historyCount;
+
+    private FAQService service;
+    private MethodHandle buildPrompt;
+    private List<FAQ> faqs;
+    private List<ChatHistory> history;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        // 拼装提示词只用到入参，其余依赖以桩或null代替
+        service = new FAQService(BenchmarkStubs.stub(FAQMapper.class), null, null,
+                BenchmarkStubs.stub(ReviewMapper.class), null, null, null, null, null, null);
+        buildPrompt = MethodHandles.privateLookupIn(FAQService.class, MethodHandles.lookup())
+                .findVirtual(FAQService.class, "buildRAGPrompt",
+                        MethodType.methodType(String.class, String.class, List.class, List.class));
+
+        faqs = new ArrayList<>(faqCount);
+        for (long i = 1; i <= faqCount; i++) {
+            FAQ faq = new FAQ();
+            faq.setId(i);
+            faq.setRestaurantId(1L);
+            faq.setQuestion("请问店里的招牌菜" + i + "是什么口味？");
+            faq.setAnswer("招牌菜" + i + "以清淡鲜香为主，选用当天新鲜食材，微辣可选，适合大多数顾客的口味。");
+            faqs.add(faq);
+        }
+        history = new ArrayList<>(historyCount);
+        for (int i = 0; i < historyCount; i++) {
+            ChatHistory chat = new ChatHistory();
+            chat.setRestaurantId(1L);
+            chat.setSessionId("session");
+            chat.setIsUserMessage(i % 2 == 0);
+            chat.setContent(i % 2 == 0 ? "周末需要提前预约吗？" : "周末客流较大，建议提前一天电话预约，工作日一般无需预约。");
+            history.add(chat);
+        }
+    }
+
+    @Benchmark
+    public Object buildRAGPrompt() throws Throwable {
+        return (String) buildPrompt.invoke(service, "包间最多能坐几个人？", faqs, history);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RagPromptBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+package com.foodmap.benchmark;
+
+import com.foodmap.benchmark.support.BenchmarkData;
+import com.foodmap.config.RedisConfig;
+import com.foodmap.config.RedisValueCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存值编码格式对比：原JSON序列化器、JSON+LZ4、Smile、Smile+LZ4
+ * 编解码耗时由JMH测量，编码后字节数在运行前打印
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisCodecBenchmark {
+
+    private static final String[] CODECS = {"legacy", "json-lz4", "smile", "smile-lz4"};
+    private static final String[] PAYLOADS = {"shop", "shopList"};
+    // 与application.yml中的默认阈值一致
+    private static final int COMPRESS_THRESHOLD = 1024;
+
+    @Param({"legacy", "json-lz4", "smile", "smile-lz4"})
+    private String codec;
+
+    @Param({"shop", "shopList"})
+    private String payload;
+
+    private RedisSerializer<Object> serializer;
+    private Object value;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        serializer = serializer(codec);
+        value = payload(payload);
+        encoded = serializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return serializer.deserialize(encoded);
+    }
+
+    static RedisSerializer<Object> serializer(String codec) {
+        return switch (codec) {
+            case "legacy" -> RedisConfig.jsonValueSerializer();
+            case "json-lz4" -> new RedisValueCodec(RedisValueCodec.Format.JSON, Map.of(), COMPRESS_THRESHOLD);
+            case "smile" -> new RedisValueCodec(RedisValueCodec.Format.SMILE, Map.of(), 0);
+            case "smile-lz4" -> new RedisValueCodec(RedisValueCodec.Format.SMILE, Map.of(), COMPRESS_THRESHOLD);
+            default -> throw new IllegalArgumentException(codec);
+        };
+    }
+
+    static Object payload(String payload) {
+        return "shop".equals(payload) ? BenchmarkData.shop(1L) : BenchmarkData.shops(20);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        System.out.printf("%-10s %-10s %8s%n", "codec", "payload", "bytes");
+        for (String codec : CODECS) {
+            for (String payload : PAYLOADS) {
+                System.out.printf("%-10s %-10s %8d%n", codec, payload,
+                        serializer(codec).serialize(payload(payload)).length);
+            }
+        }
+        new Runner(new OptionsBuilder().include(RedisCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
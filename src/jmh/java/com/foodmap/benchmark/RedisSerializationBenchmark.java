@@ -0,0 +1,105 @@
+package com.foodmap.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.foodmap.benchmark.support.BenchmarkData;
+import com.foodmap.benchmark.support.InMemoryRedis;
+import com.foodmap.config.RedisConfig;
+import com.foodmap.config.RedisValueCodec;
+import com.foodmap.entity.pojo.Shop;
+import com.foodmap.util.CacheMetrics;
+import com.foodmap.util.RedisCacheUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis缓存值的JSON序列化开销
+ * serialize/deserialize: RedisConfig中带类型信息的Jackson序列化器处理单个商铺和20个商铺的列表
+ * cacheGet/cacheSet: 经RedisCacheUtil读写（关闭本地缓存，Redis以进程内替身代替），包含序列化但不含网络往返
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializationBenchmark {
+
+    private static final int LIST_SIZE = 20;
+
+    private RedisSerializer<Object> serializer;
+    private RedisCacheUtil cacheUtil;
+    private Shop shop;
+    private List<Shop> shops;
+    private byte[] shopBytes;
+    private byte[] shopsBytes;
+
+    @Setup
+    public void setup() {
+        // 关掉框架的INFO日志以免刷屏
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        serializer = RedisConfig.jsonValueSerializer();
+        shop = BenchmarkData.shop(1L);
+        shops = BenchmarkData.shops(LIST_SIZE);
+        shopBytes = serializer.serialize(shop);
+        shopsBytes = serializer.serialize(shops);
+
+        // 全部按JSON编码且不压缩，与原序列化方式一致
+        RedisValueCodec codec = new RedisValueCodec(RedisValueCodec.Format.JSON, Map.of(), 0);
+        cacheUtil = new RedisCacheUtil();
+        ReflectionTestUtils.setField(cacheUtil, "redisTemplate", new InMemoryRedis(codec));
+        ReflectionTestUtils.setField(cacheUtil, "valueCodec", codec);
+        ReflectionTestUtils.setField(cacheUtil, "cacheMetrics", new CacheMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(cacheUtil, "localEnabled", false);
+        ReflectionTestUtils.setField(cacheUtil, "localPrefixes", "");
+        ReflectionTestUtils.setField(cacheUtil, "localMaximumSize", 10000L);
+        ReflectionTestUtils.setField(cacheUtil, "localExpireSeconds", 60L);
+        cacheUtil.init();
+        cacheUtil.set("shops:list", shops);
+    }
+
+    @Benchmark
+    public byte[] serializeShop() {
+        return serializer.serialize(shop);
+    }
+
+    @Benchmark
+    public Object deserializeShop() {
+        return serializer.deserialize(shopBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeShopList() {
+        return serializer.serialize(shops);
+    }
+
+    @Benchmark
+    public Object deserializeShopList() {
+        return serializer.deserialize(shopsBytes);
+    }
+
+    @Benchmark
+    public Object cacheGetShopList() {
+        return cacheUtil.get("shops:list");
+    }
+
+    @Benchmark
+    public void cacheSetShopList() {
+        cacheUtil.set("shops:list", shops);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RedisSerializationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
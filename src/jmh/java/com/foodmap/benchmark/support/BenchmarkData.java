@@ -0,0 +1,45 @@
+package com.foodmap.benchmark.support;
+
+import com.foodmap.entity.pojo.Shop;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试共用的样例数据，字段取值接近线上缓存的商铺
+ */
+public final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    public static Shop shop(long id) {
+        Shop shop = new Shop();
+        shop.setShopId(id);
+        shop.setShopName("美味小厨" + id);
+        shop.setAddress("广州市天河区天河路" + id + "号");
+        shop.setContactTel("020-12345678");
+        shop.setBusinessHours("周一至周日 09:00-22:00");
+        shop.setCategory("中餐");
+        shop.setDistrict("天河区");
+        shop.setDescription("提供正宗粤菜，环境优雅，服务周到");
+        shop.setCreateTime(LocalDateTime.of(2025, 3, 28, 14, 0));
+        shop.setUpdateTime(LocalDateTime.of(2025, 3, 28, 14, 30));
+        shop.setStatus(1);
+        shop.setCompositeScore(4.8f);
+        shop.setEnvironmentScore(4.6f);
+        shop.setServiceScore(4.7f);
+        shop.setTasteScore(4.9f);
+        shop.setReviewCount(128L);
+        return shop;
+    }
+
+    public static List<Shop> shops(int count) {
+        List<Shop> shops = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            shops.add(shop(i));
+        }
+        return shops;
+    }
+}
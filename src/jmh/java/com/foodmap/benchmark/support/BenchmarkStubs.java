@@ -0,0 +1,55 @@
+package com.foodmap.benchmark.support;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 基准测试用的接口桩（主要是MyBatis Mapper），所有方法返回空值，不连接数据库
+ */
+public final class BenchmarkStubs {
+
+    private BenchmarkStubs() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T stub(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            return emptyValue(method.getReturnType());
+        });
+    }
+
+    private static Object emptyValue(Class<?> returnType) {
+        if (returnType == List.class) {
+            return List.of();
+        }
+        if (returnType == Map.class) {
+            return Map.of();
+        }
+        if (returnType == Set.class) {
+            return Set.of();
+        }
+        if (returnType == Optional.class) {
+            return Optional.empty();
+        }
+        if (returnType == int.class || returnType == Integer.class) {
+            return 0;
+        }
+        if (returnType == long.class || returnType == Long.class) {
+            return 0L;
+        }
+        if (returnType == boolean.class || returnType == Boolean.class) {
+            return false;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,46 @@
+package com.foodmap.benchmark.support;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内的Redis替身，值按模板的序列化器编码后存成字节数组，
+ * 因此基准测试包含与真实Redis相同的序列化开销，只省去网络往返
+ * 仅支持 opsForValue().get/set 和 delete(key)
+ */
+public class InMemoryRedis extends RedisTemplate<String, Object> {
+
+    private final Map<String, byte[]> store = new ConcurrentHashMap<>();
+    private final ValueOperations<String, Object> valueOperations;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryRedis(RedisSerializer<Object> valueSerializer) {
+        setKeySerializer(RedisSerializer.string());
+        setValueSerializer(valueSerializer);
+        this.valueOperations = (ValueOperations<String, Object>) Proxy.newProxyInstance(
+                ValueOperations.class.getClassLoader(), new Class<?>[]{ValueOperations.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "get" -> valueSerializer.deserialize(store.get((String) args[0]));
+                    case "set" -> {
+                        store.put((String) args[0], valueSerializer.serialize(args[1]));
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Override
+    public ValueOperations<String, Object> opsForValue() {
+        return valueOperations;
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        return store.remove(key) != null;
+    }
+}
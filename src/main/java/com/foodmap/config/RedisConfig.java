@@ -2,54 +2,159 @@ package com.foodmap.config;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DatabindContext;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.impl.TypeIdResolverBase;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.foodmap.entity.dto.SentimentSnapshot;
+import com.foodmap.entity.pojo.Shop;
+import com.foodmap.entity.pojo.User;
+import com.foodmap.util.CacheInvalidationListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @Configuration
 @EnableCaching
 public class RedisConfig {
 
+    /**
+     * Smile编码的缓存值类型及其类型名，新增使用Smile前缀缓存的类型时在此登记；
+     * 字符串、数字等基本值不需要登记，其他未登记的类型改用JSON编码
+     */
+    static final Map<Class<?>, String> SMILE_TYPE_NAMES = Map.of(
+            Shop.class, "shop",
+            User.class, "user",
+            SentimentSnapshot.class, "sentimentSnapshot",
+            ArrayList.class, "list"
+    );
+
+    /**
+     * 缓存值编解码，按key前缀选择JSON或Smile，超过阈值时LZ4压缩
+     */
+    @Bean
+    public RedisValueCodec redisValueCodec(@Value("${cache.codec.default:json}") String defaultFormat,
+                                           @Value("${cache.codec.prefixes:}") String prefixFormats,
+                                           @Value("${cache.codec.compress-threshold-bytes:0}") int compressThreshold) {
+        return RedisValueCodec.of(defaultFormat, prefixFormats, compressThreshold);
+    }
+
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       RedisValueCodec valueCodec) {
         // 创建RedisTemplate对象
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         // 设置连接工厂
         template.setConnectionFactory(connectionFactory);
 
-        // 创建JSON序列化工具
-        ObjectMapper mapper = new ObjectMapper();
-        // 注册 JavaTimeModule 以支持 LocalDateTime
-        mapper.registerModule(new JavaTimeModule());
-        // 禁用时间戳格式，使用 ISO-8601 格式
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        // 忽略空值字段
-        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        // 启用默认类型信息
+        // 设置RedisTemplate的序列化器
+        template.setKeySerializer(RedisSerializer.string());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(valueCodec);
+        template.setHashValueSerializer(valueCodec);
+
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * 缓存值的JSON序列化器，带类型信息以便反序列化回原始类型
+     */
+    public static RedisSerializer<Object> jsonValueSerializer() {
+        ObjectMapper mapper = configureCacheMapper(new ObjectMapper());
+        // 启用默认类型信息，写入完整类名，与已有的JSON缓存值保持一致
         mapper.activateDefaultTyping(
                 LaissezFaireSubTypeValidator.instance,
                 ObjectMapper.DefaultTyping.NON_FINAL,
                 JsonTypeInfo.As.PROPERTY
         );
-
         // 创建Jackson2JsonRedisSerializer
-        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(mapper, Object.class);
+        return new Jackson2JsonRedisSerializer<>(mapper, Object.class);
+    }
 
-        // 设置RedisTemplate的序列化器
-        template.setKeySerializer(RedisSerializer.string());
-        template.setHashKeySerializer(RedisSerializer.string());
-        template.setValueSerializer(serializer);
-        template.setHashValueSerializer(serializer);
+    /**
+     * Smile编码使用的ObjectMapper：只在声明类型为Object的位置（缓存值本身、列表元素）写入类型名，
+     * 类型名为 {@link #SMILE_TYPE_NAMES} 中登记的短名，不写完整类名，读取时也只接受登记过的类型
+     */
+    static ObjectMapper configureSmileMapper(ObjectMapper mapper) {
+        configureCacheMapper(mapper);
+        mapper.setDefaultTyping(new ObjectMapper.DefaultTypeResolverBuilder(
+                        ObjectMapper.DefaultTyping.JAVA_LANG_OBJECT, LaissezFaireSubTypeValidator.instance)
+                .init(JsonTypeInfo.Id.NAME, new SmileTypeIdResolver())
+                .inclusion(JsonTypeInfo.As.PROPERTY));
+        return mapper;
+    }
 
-        template.afterPropertiesSet();
-        return template;
+    /**
+     * 按 {@link #SMILE_TYPE_NAMES} 在类型和短类型名之间转换，未登记的类型名读取时视为未知类型
+     */
+    private static class SmileTypeIdResolver extends TypeIdResolverBase {
+
+        private static final Map<String, Class<?>> TYPES_BY_NAME = SMILE_TYPE_NAMES.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey));
+
+        @Override
+        public String idFromValue(Object value) {
+            return idFromValueAndType(value, value.getClass());
+        }
+
+        @Override
+        public String idFromValueAndType(Object value, Class<?> suggestedType) {
+            String name = SMILE_TYPE_NAMES.get(suggestedType);
+            if (name == null) {
+                throw new IllegalArgumentException("缓存值类型未登记Smile类型名: " + suggestedType.getName());
+            }
+            return name;
+        }
+
+        @Override
+        public JavaType typeFromId(DatabindContext context, String id) {
+            Class<?> type = TYPES_BY_NAME.get(id);
+            return type == null ? null : context.constructType(type);
+        }
+
+        @Override
+        public JsonTypeInfo.Id getMechanism() {
+            return JsonTypeInfo.Id.NAME;
+        }
+    }
+
+    /**
+     * 缓存值使用的ObjectMapper配置，JSON和Smile编码共用
+     */
+    private static ObjectMapper configureCacheMapper(ObjectMapper mapper) {
+        // 注册 JavaTimeModule 以支持 LocalDateTime
+        mapper.registerModule(new JavaTimeModule());
+        // 禁用时间戳格式，使用 ISO-8601 格式
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // 忽略空值字段
+        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return mapper;
+    }
+
+    /**
+     * 订阅缓存失效频道，用于跨节点清除本地缓存
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       CacheInvalidationListener invalidationListener) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(invalidationListener, new ChannelTopic(invalidationListener.getChannel()));
+        return container;
     }
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+package com.foodmap.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis缓存值编解码
+ * 按key前缀选择编码格式：JSON（与原格式完全一致）或Smile（Jackson的二进制JSON，字段名和重复字符串
+ * 只写一次，数字按二进制存放，类型信息只写登记的短类型名而不是完整类名）；编码结果达到阈值时再用LZ4压缩，
+ * 压缩后不变小则保留原样。非JSON格式的值以1字节标记开头，读取时按标记识别格式而不依赖key，
+ * 修改配置后新旧格式的缓存值可以并存。Smile前缀下未登记类型的值改用JSON编码
+ */
+@Slf4j
+public class RedisValueCodec implements RedisSerializer<Object> {
+
+    // JSON文本不会以这些字节开头
+    private static final byte TAG_SMILE = 0x01;
+    private static final byte TAG_LZ4_JSON = 0x02;
+    private static final byte TAG_LZ4_SMILE = 0x03;
+    // 标记 + 4字节原始长度
+    private static final int LZ4_HEADER_LENGTH = 5;
+
+    public enum Format {
+        JSON, SMILE
+    }
+
+    private final RedisSerializer<Object> json = RedisConfig.jsonValueSerializer();
+    private final ObjectMapper smileMapper = RedisConfig.configureSmileMapper(new ObjectMapper(SmileFactory.builder()
+            .disable(SmileGenerator.Feature.WRITE_HEADER)
+            .disable(SmileParser.Feature.REQUIRE_HEADER)
+            .build()));
+    // 以Object为声明类型写入，缓存值本身带上类型名
+    private final ObjectWriter smileWriter = smileMapper.writerFor(Object.class);
+    // 已提示过改用JSON编码的类型，每个类型只提示一次
+    private final Set<Class<?>> jsonFallbackTypes = ConcurrentHashMap.newKeySet();
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final Format defaultFormat;
+    private final List<Map.Entry<String, Format>> prefixFormats;
+    private final int compressThreshold;
+
+    /**
+     * @param compressThreshold 编码后达到该字节数才尝试压缩，0表示不压缩
+     */
+    public RedisValueCodec(Format defaultFormat, Map<String, Format> prefixFormats, int compressThreshold) {
+        this.defaultFormat = defaultFormat;
+        this.prefixFormats = new ArrayList<>(prefixFormats.entrySet());
+        this.compressThreshold = compressThreshold;
+    }
+
+    /**
+     * 解析配置，前缀格式如 "shops:=smile,users:=smile"
+     */
+    public static RedisValueCodec of(String defaultFormat, String prefixFormats, int compressThreshold) {
+        Map<String, Format> formats = new LinkedHashMap<>();
+        for (String entry : prefixFormats.split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length == 2 && !parts[0].isBlank()) {
+                formats.put(parts[0].trim(), parseFormat(parts[1]));
+            }
+        }
+        return new RedisValueCodec(parseFormat(defaultFormat), formats, compressThreshold);
+    }
+
+    /**
+     * 按key前缀选择格式编码，结果交给RedisTemplate原样写入
+     */
+    public Encoded encode(String key, Object value) {
+        return new Encoded(encode(formatOf(key), value));
+    }
+
+    /**
+     * 未经 {@link #encode(String, Object)} 的值按默认格式编码
+     */
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value instanceof Encoded encoded) {
+            return encoded.bytes();
+        }
+        return encode(defaultFormat, value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        return switch (bytes[0]) {
+            case TAG_SMILE -> readSmile(bytes, 1, bytes.length - 1);
+            case TAG_LZ4_JSON -> json.deserialize(decompress(bytes));
+            case TAG_LZ4_SMILE -> {
+                byte[] raw = decompress(bytes);
+                yield readSmile(raw, 0, raw.length);
+            }
+            default -> json.deserialize(bytes);
+        };
+    }
+
+    private Format formatOf(String key) {
+        for (Map.Entry<String, Format> entry : prefixFormats) {
+            if (key.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return defaultFormat;
+    }
+
+    private byte[] encode(Format format, Object value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (format == Format.SMILE && !isSmileType(value)) {
+            if (jsonFallbackTypes.add(value.getClass())) {
+                log.warn("缓存值类型未登记Smile类型名，改用JSON编码: {}", value.getClass().getName());
+            }
+            format = Format.JSON;
+        }
+        byte[] raw = format == Format.SMILE ? writeSmile(value) : json.serialize(value);
+        if (compressThreshold > 0 && raw.length >= compressThreshold) {
+            byte[] compressed = compress(raw, format == Format.SMILE ? TAG_LZ4_SMILE : TAG_LZ4_JSON);
+            if (compressed.length < raw.length) {
+                return compressed;
+            }
+        }
+        if (format == Format.JSON) {
+            return raw;
+        }
+        byte[] tagged = new byte[raw.length + 1];
+        tagged[0] = TAG_SMILE;
+        System.arraycopy(raw, 0, tagged, 1, raw.length);
+        return tagged;
+    }
+
+    private byte[] writeSmile(Object value) {
+        try {
+            return smileWriter.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new SerializationException("Smile编码失败: " + e.getMessage(), e);
+        }
+    }
+
+    private Object readSmile(byte[] bytes, int offset, int length) {
+        try {
+            return smileMapper.readValue(bytes, offset, length, Object.class);
+        } catch (IOException e) {
+            throw new SerializationException("Smile解码失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 值本身及列表元素都是登记过的类型，或是读取时能直接识别的字符串、布尔、整数、浮点数
+     */
+    private static boolean isSmileType(Object value) {
+        if (value instanceof ArrayList<?> list) {
+            return list.stream().allMatch(element -> element == null || isSmileType(element));
+        }
+        return value instanceof String || value instanceof Boolean || value instanceof Integer
+                || value instanceof Double || RedisConfig.SMILE_TYPE_NAMES.containsKey(value.getClass());
+    }
+
+    private byte[] compress(byte[] raw, byte tag) {
+        byte[] out = new byte[LZ4_HEADER_LENGTH + compressor.maxCompressedLength(raw.length)];
+        out[0] = tag;
+        ByteBuffer.wrap(out, 1, 4).putInt(raw.length);
+        int length = compressor.compress(raw, 0, raw.length, out, LZ4_HEADER_LENGTH);
+        byte[] result = new byte[LZ4_HEADER_LENGTH + length];
+        System.arraycopy(out, 0, result, 0, result.length);
+        return result;
+    }
+
+    private byte[] decompress(byte[] bytes) {
+        int rawLength = ByteBuffer.wrap(bytes, 1, 4).getInt();
+        byte[] raw = new byte[rawLength];
+        decompressor.decompress(bytes, LZ4_HEADER_LENGTH, raw, 0, rawLength);
+        return raw;
+    }
+
+    private static Format parseFormat(String name) {
+        return Format.valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * 已编码的缓存值
+     */
+    public record Encoded(byte[] bytes) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.foodmap.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 开启定时任务（评分校准等后台任务）
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
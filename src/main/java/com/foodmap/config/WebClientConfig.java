@@ -1,14 +1,52 @@
 package com.foodmap.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    @Value("${python.service.url:http://localhost:5001}")
+    private String pythonServiceUrl;
+
+    // 连接池大小，超出的请求在池中排队等待
+    @Value("${python.service.max-connections:20}")
+    private int maxConnections;
+
+    @Value("${python.service.pending-acquire-timeout-ms:5000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${python.service.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    // 聚类/批量分析的响应体可能较大
+    @Value("${python.service.max-in-memory-size:16777216}")
+    private int maxInMemorySize;
+
+    /**
+     * Python分析服务专用WebClient，使用独立连接池；各接口的超时由PythonAnalyzerClient控制
+     */
     @Bean
     public WebClient webClient(WebClient.Builder builder) {
-        return builder.baseUrl("http://localhost:5001").build(); // 外部服务的基础 URL
+        ConnectionProvider provider = ConnectionProvider.builder("python-analyzer")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs);
+
+        return builder.baseUrl(pythonServiceUrl) // 外部服务的基础 URL
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(maxInMemorySize))
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,14 @@
 package com.foodmap.controller;
 
+import com.foodmap.entity.dto.SentimentSnapshot;
 import com.foodmap.service.ai.AspectSentimentService;
+import com.foodmap.service.ai.SentimentAnalysisScheduler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Mono;
 
 import java.util.Map;
 
@@ -12,10 +17,13 @@ import java.util.Map;
 public class AspectSentimentController {
 
     private final AspectSentimentService aspectSentimentService;
+    private final SentimentAnalysisScheduler sentimentAnalysisScheduler;
 
     @Autowired
-    public AspectSentimentController(AspectSentimentService aspectSentimentService) {
+    public AspectSentimentController(AspectSentimentService aspectSentimentService,
+                                     SentimentAnalysisScheduler sentimentAnalysisScheduler) {
         this.aspectSentimentService = aspectSentimentService;
+        this.sentimentAnalysisScheduler = sentimentAnalysisScheduler;
     }
 
 
@@ -24,19 +32,43 @@ public class AspectSentimentController {
      * @param restaurantId 餐厅ID
      */
     @GetMapping("/restaurant/{restaurantId}")
-    public ResponseEntity<Map<String, Object>> getRestaurantSentiment(@PathVariable Long restaurantId) {
-        Map<String, Object> summary = aspectSentimentService.getRestaurantSentimentSummary(restaurantId);
-        return ResponseEntity.ok(summary);
+    public ResponseEntity<Map<String, Object>> getRestaurantSentiment(@PathVariable Long restaurantId,
+                                                                      WebRequest webRequest) {
+        SentimentSnapshot snapshot = aspectSentimentService.getSentimentSnapshot(restaurantId);
+        // If-None-Match与快照ETag一致时直接返回304
+        if (webRequest.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.getEtag())
+                .body(aspectSentimentService.toSummaryResponse(snapshot));
     }
 
     /**
      * 手动触发特定餐厅的评论分析
+     * 异步返回，等待Python分析期间释放请求线程
      * @param restaurantId 餐厅ID
      */
     @PostMapping("/analyze/restaurant/{restaurantId}")
-    public ResponseEntity<Map<String, Object>> analyzeRestaurant(@PathVariable Long restaurantId) {
-        Map<String, Object> result = aspectSentimentService.analyzeRestaurantReviews(restaurantId);
-        return ResponseEntity.ok(result);
+    public Mono<ResponseEntity<Map<String, Object>>> analyzeRestaurant(@PathVariable Long restaurantId) {
+        return aspectSentimentService.analyzeRestaurantReviews(restaurantId).map(ResponseEntity::ok);
+    }
+
+    /**
+     * 手动触发一轮多餐厅增量分析
+     */
+    @PostMapping("/analyze/all")
+    public Mono<ResponseEntity<Map<String, Object>>> analyzeAll() {
+        return sentimentAnalysisScheduler.run().map(ResponseEntity::ok);
+    }
+
+    /**
+     * 分析调度的吞吐、延迟和当前批量大小
+     */
+    @GetMapping("/scheduler/metrics")
+    public ResponseEntity<Map<String, Object>> getSchedulerMetrics() {
+        return ResponseEntity.ok(sentimentAnalysisScheduler.getMetrics());
     }
 
     /**
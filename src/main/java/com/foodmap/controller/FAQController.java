@@ -6,9 +6,13 @@ import com.foodmap.entity.pojo.FAQ;
 import com.foodmap.service.ai.FAQService;
 import com.foodmap.util.UserContext;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -127,6 +131,36 @@ public class FAQController {
         response.put("answer", answer);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * 向FAQ系统提问（流式）- 以Server-Sent Events逐段返回回答
+     * 先发送session事件告知会话ID，随后每个data事件是一段回答文本，最后发送done事件
+     */
+    @Operation(summary = "向FAQ提问（流式）", description = "以SSE流式返回指定餐厅FAQ系统的回答")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "开始推送回答")
+    })
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> askQuestionStream(@RequestBody QuestionRequest request) {
+        String sessionId = request.getSessionId();
+        if (sessionId == null || sessionId.isEmpty()) {
+            sessionId = UUID.randomUUID().toString();
+        }
+
+        Flux<ServerSentEvent<String>> answer = faqService.streamAnswer(
+                1L, // 与同步接口一致，允许匿名访问
+                request.getRestaurantId(),
+                request.getQuestion(),
+                sessionId
+        ).map(chunk -> ServerSentEvent.builder(chunk).build());
+
+        return Flux.concat(
+                Flux.just(ServerSentEvent.builder(sessionId).event("session").build()),
+                answer,
+                Flux.just(ServerSentEvent.builder("").event("done").build())
+        );
+    }
+
     /**
      * 自动为餐厅生成FAQ - 使用WebClient实现
      */
@@ -137,11 +171,10 @@ public class FAQController {
     })
     @PostMapping("/auto-generate/{restaurantId}")
     @PreAuthorize("hasRole('SHOP')")
-    public ResponseEntity<List<FAQ>> autoGenerateFAQs(
+    public Mono<ResponseEntity<List<FAQ>>> autoGenerateFAQs(
             @Parameter(description = "餐厅ID", required = true)
             @PathVariable Long restaurantId) {
 
-        List<FAQ> generatedFAQs = faqService.autoGenerateFAQs(restaurantId);
-        return ResponseEntity.ok(generatedFAQs);
+        return faqService.autoGenerateFAQs(restaurantId).map(ResponseEntity::ok);
     }
 }
\ No newline at end of file
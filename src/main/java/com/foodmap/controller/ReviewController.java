@@ -3,6 +3,7 @@ package com.foodmap.controller;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.foodmap.entity.dto.ApiResponse;
+import com.foodmap.entity.dto.CursorPage;
 import com.foodmap.entity.dto.ReviewCreateDTO;
 import com.foodmap.entity.dto.ReviewDTO;
 import com.foodmap.entity.dto.ReviewUpdateDTO;
@@ -61,6 +62,30 @@ public class ReviewController {
         return ResponseEntity.ok(reviews);
     }
 
+    /**
+     * 餐厅评论游标分页，深翻页也不会变慢；cursor取上一页返回的nextCursor
+     */
+    @GetMapping("/restaurant/{restaurantId}/feed")
+    public ResponseEntity<CursorPage<ReviewDTO>> getReviewFeedByRestaurant(
+            @PathVariable Long restaurantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size) {
+        CursorPage<ReviewDTO> reviews = reviewService.getReviewFeedByRestaurant(restaurantId, cursor, size);
+        return ResponseEntity.ok(reviews);
+    }
+
+    /**
+     * 用户评论游标分页
+     */
+    @GetMapping("/user/{userId}/feed")
+    public ResponseEntity<CursorPage<ReviewDTO>> getReviewFeedByUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size) {
+        CursorPage<ReviewDTO> reviews = reviewService.getReviewFeedByUser(userId, cursor, size);
+        return ResponseEntity.ok(reviews);
+    }
+
     @GetMapping("/{reviewId}")
     public ResponseEntity<ReviewDTO> getReviewById(@PathVariable Long reviewId) {
         ReviewDTO review = reviewService.getReviewById(reviewId);
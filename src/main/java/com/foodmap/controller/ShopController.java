@@ -4,7 +4,6 @@ import com.foodmap.entity.dto.ShopInfoUpdateDTO;
 import com.foodmap.mapper.ShopMapper;
 import com.foodmap.entity.pojo.Shop;
 import com.foodmap.security.jwt.JwtTokenProvider;
-import com.foodmap.service.ReviewService;
 import com.foodmap.service.ShopService;
 import com.foodmap.common.response.ResponseResult;
 import io.swagger.v3.oas.annotations.Operation;
@@ -38,7 +37,6 @@ public class ShopController {
     private final ShopService shopService;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider tokenProvider;
-    private final ReviewService reviewService;
 
 
     /**
@@ -144,7 +142,6 @@ public class ShopController {
                 !sortField.equals("compositeScore") && !sortField.equals("createTime")) {
             return ResponseResult.error(400, "不支持的排序字段，支持的字段为：compositeScore, createTime");
         }
-        reviewService.updateAllShopsRatings();
         List<Shop> shops = shopService.queryShopList(category, district, sortField);
         return ResponseResult.success(shops);
     }
@@ -169,7 +166,6 @@ public class ShopController {
         if (shopId == null || shopId <= 0) {
             return ResponseResult.error(400, "无效的商铺ID");
         }
-        reviewService.updateShopRatings(shopId);
         Shop shop = shopService.getShopById(shopId);
         return ResponseResult.success(shop);
     }
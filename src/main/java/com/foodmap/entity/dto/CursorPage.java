@@ -0,0 +1,19 @@
+package com.foodmap.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果，nextCursor为空表示没有更多数据
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> records;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,29 @@
+package com.foodmap.entity.dto;
+
+import com.foodmap.entity.pojo.AspectSummary;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 餐厅情感分析看板快照，aspect_summary变化时重建
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SentimentSnapshot {
+    private Long restaurantId;
+    // 按提及次数降序
+    private List<AspectSummary> aspects;
+    private List<String> topAspects;
+    // 全部方面合计的好评百分比
+    private Double positivePercentage;
+    private Integer totalMentions;
+    private String summaryText;
+    // 内容摘要，用作HTTP ETag
+    private String etag;
+    private LocalDateTime builtAt;
+}
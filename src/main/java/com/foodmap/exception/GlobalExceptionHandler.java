@@ -33,6 +33,8 @@ public class GlobalExceptionHandler {
             return ResponseResult.notFound(e.getMessage());
         } else if (e instanceof ConflictException) {
             return ResponseResult.error(409, e.getMessage());
+        } else if (e instanceof ServiceUnavailableException) {
+            return ResponseResult.error(503, e.getMessage());
         } else {
             return ResponseResult.error(e.getMessage());
         }
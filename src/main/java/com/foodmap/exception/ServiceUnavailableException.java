@@ -0,0 +1,14 @@
+package com.foodmap.exception;
+
+/**
+ * 503 Service Unavailable - 依赖的外部服务繁忙或不可用
+ */
+public class ServiceUnavailableException extends BaseException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+
+    public ServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -7,7 +7,9 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Delete;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -17,7 +19,9 @@ public interface AspectSummaryMapper extends BaseMapper<AspectSummary> {
     /**
      * 获取餐厅的方面情感统计数据
      */
-    @Select("SELECT * FROM aspect_summary WHERE restaurant_id = #{restaurantId}")
+    @Select("SELECT id, restaurant_id AS restaurantId, aspect, positive_count AS positiveCount, " +
+            "negative_count AS negativeCount, total_count AS totalCount, positive_percentage AS positivePercentage, " +
+            "last_updated AS lastUpdated FROM aspect_summary WHERE restaurant_id = #{restaurantId}")
     List<AspectSummary> getAspectSummaryByRestaurant(@Param("restaurantId") Long restaurantId);
 
     /**
@@ -35,4 +39,86 @@ public interface AspectSummaryMapper extends BaseMapper<AspectSummary> {
 
     int markReviewsAsAnalyzed(@Param("reviewIds") List<Long> reviewIds);
 
-}
\ No newline at end of file
+    /**
+     * 按增量累加方面统计，delta可为负（扣回修改或删除评论的贡献），并重新计算好评率
+     */
+    int mergeAspectDeltas(@Param("restaurantId") Long restaurantId,
+                          @Param("aspectStats") List<Map<String, Object>> aspectStats);
+
+    /**
+     * 删除已不再被任何评论提及的方面
+     */
+    @Delete("DELETE FROM aspect_summary WHERE restaurant_id = #{restaurantId} AND total_count <= 0")
+    int deleteEmptyAspects(@Param("restaurantId") Long restaurantId);
+
+    @Delete("DELETE FROM aspect_summary WHERE restaurant_id = #{restaurantId}")
+    int deleteByRestaurant(@Param("restaurantId") Long restaurantId);
+
+    /**
+     * 增量分析水位：watermark_time / watermark_review_id，未分析过的餐厅返回null
+     */
+    @Select("SELECT watermark_time, watermark_review_id FROM aspect_watermark WHERE restaurant_id = #{restaurantId}")
+    Map<String, Object> getWatermark(@Param("restaurantId") Long restaurantId);
+
+    @Insert("INSERT INTO aspect_watermark (restaurant_id, watermark_time, watermark_review_id) " +
+            "VALUES (#{restaurantId}, #{watermarkTime}, #{watermarkReviewId}) " +
+            "ON DUPLICATE KEY UPDATE watermark_time = VALUES(watermark_time), watermark_review_id = VALUES(watermark_review_id)")
+    int upsertWatermark(@Param("restaurantId") Long restaurantId,
+                        @Param("watermarkTime") LocalDateTime watermarkTime,
+                        @Param("watermarkReviewId") Long watermarkReviewId);
+
+    /**
+     * 水位之后有评论新增或变动的餐厅，只查updatedAt不早于since的评论；since不为null时水位之前rescanSeconds秒内的评论也计入，
+     * since为null时查全部
+     */
+    List<Long> findRestaurantsWithReviewChanges(@Param("since") LocalDateTime since,
+                                                @Param("rescanSeconds") long rescanSeconds,
+                                                @Param("limit") int limit);
+
+    @Select("SELECT NOW()")
+    LocalDateTime selectNow();
+
+    /**
+     * 水位之后新增或变动的评论（含已隐藏、删除的），按updatedAt、id升序
+     */
+    List<Map<String, Object>> findReviewsChangedSince(@Param("restaurantId") Long restaurantId,
+                                                      @Param("watermarkTime") LocalDateTime watermarkTime,
+                                                      @Param("watermarkReviewId") Long watermarkReviewId,
+                                                      @Param("limit") int limit);
+
+    /**
+     * 水位之前updatedAt不早于fromTime的评论，按updatedAt、id降序；用于找回游标漏掉的评论
+     */
+    List<Map<String, Object>> findReviewsUpdatedBehind(@Param("restaurantId") Long restaurantId,
+                                                       @Param("fromTime") LocalDateTime fromTime,
+                                                       @Param("watermarkTime") LocalDateTime watermarkTime,
+                                                       @Param("watermarkReviewId") Long watermarkReviewId,
+                                                       @Param("limit") int limit);
+
+    /**
+     * 评论分析时的内容指纹：review_id / content_hash
+     */
+    List<Map<String, Object>> findContentHashes(@Param("reviewIds") List<Long> reviewIds);
+
+    int upsertContentHashes(@Param("restaurantId") Long restaurantId,
+                            @Param("states") List<Map<String, Object>> states);
+
+    int deleteContentHashes(@Param("reviewIds") List<Long> reviewIds);
+
+    @Delete("DELETE FROM review_sentiment_state WHERE restaurant_id = #{restaurantId}")
+    int deleteContentHashesByRestaurant(@Param("restaurantId") Long restaurantId);
+
+    /**
+     * 评论对方面统计的贡献合计，按方面汇总：aspect / positive / negative / total
+     */
+    List<Map<String, Object>> sumContributions(@Param("reviewIds") List<Long> reviewIds);
+
+    int insertContributions(@Param("restaurantId") Long restaurantId,
+                            @Param("contributions") List<Map<String, Object>> contributions);
+
+    int deleteContributions(@Param("reviewIds") List<Long> reviewIds);
+
+    @Delete("DELETE FROM review_aspect_contribution WHERE restaurant_id = #{restaurantId}")
+    int deleteContributionsByRestaurant(@Param("restaurantId") Long restaurantId);
+
+}
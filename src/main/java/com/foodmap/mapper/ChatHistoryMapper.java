@@ -3,6 +3,7 @@ package com.foodmap.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.foodmap.entity.pojo.ChatHistory;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 import org.springframework.data.repository.query.Param;
@@ -34,4 +35,15 @@ public interface ChatHistoryMapper extends BaseMapper<ChatHistory> {
      */
     @Select("SELECT * FROM chat_histories WHERE userId = #{userId} AND restaurantId = #{restaurantId} ORDER BY createdAt DESC LIMIT #{limit}")
     List<ChatHistory> findByUserIdAndRestaurantId(@Param("userId") Long userId, @Param("restaurantId") Long restaurantId, @Param("limit") int limit);
+
+    /**
+     * 批量写入聊天记录
+     */
+    @Insert("<script>" +
+            "INSERT INTO chat_histories (userId, restaurantId, sessionId, isUserMessage, content, createdAt) VALUES " +
+            "<foreach collection='list' item='chat' separator=','>" +
+            "(#{chat.userId}, #{chat.restaurantId}, #{chat.sessionId}, #{chat.isUserMessage}, #{chat.content}, #{chat.createdAt})" +
+            "</foreach>" +
+            "</script>")
+    int batchInsert(List<ChatHistory> chats);
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.List;
+
 @Mapper
 public interface LikeMapper extends BaseMapper<Like> {
 
@@ -14,4 +16,17 @@ public interface LikeMapper extends BaseMapper<Like> {
 
     // 删除点赞记录
     int deleteLike(@Param("userId") Long userId, @Param("reviewId") Long reviewId);
+
+    // 查询评论的所有点赞用户
+    @Select("SELECT userId FROM likes WHERE reviewId = #{reviewId}")
+    List<Long> findUserIdsByReviewId(@Param("reviewId") Long reviewId);
+
+    // 查询用户在给定评论中点赞过的评论ID
+    List<Long> findLikedReviewIds(@Param("userId") Long userId, @Param("reviewIds") List<Long> reviewIds);
+
+    // 批量写入点赞（忽略重复）
+    int batchInsertIgnore(@Param("likes") List<Like> likes);
+
+    // 批量删除点赞
+    int batchDelete(@Param("likes") List<Like> likes);
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -24,16 +25,31 @@ public interface ReviewMapper extends BaseMapper<Review> {
     Long countActiveReviewsByRestaurant(@Param("restaurantId") Long restaurantId);
 
     // 下面的方法可能需要在对应的XML文件中实现，以支持复杂查询
-    IPage<ReviewDTO> getReviewsByRestaurant(Page<ReviewDTO> page, @Param("restaurantId") Long restaurantId, @Param("userId") Long currentUserId);
+    IPage<ReviewDTO> getReviewsByRestaurant(Page<ReviewDTO> page, @Param("restaurantId") Long restaurantId);
 
-    IPage<ReviewDTO> getReviewsByUser(Page<ReviewDTO> page, @Param("userId") Long userId, @Param("currentUserId") Long currentUserId);
+    IPage<ReviewDTO> getReviewsByUser(Page<ReviewDTO> page, @Param("userId") Long userId);
 
-    ReviewDTO getReviewById(@Param("reviewId") Long reviewId, @Param("userId") Long userId);
+    // 游标分页（keyset），cursorCreatedAt为空时从最新一条开始
+    List<ReviewDTO> getReviewFeedByRestaurant(@Param("restaurantId") Long restaurantId,
+                                              @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                              @Param("cursorId") Long cursorId, @Param("limit") int limit);
+
+    List<ReviewDTO> getReviewFeedByUser(@Param("userId") Long userId,
+                                        @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                        @Param("cursorId") Long cursorId, @Param("limit") int limit);
+
+    ReviewDTO getReviewById(@Param("reviewId") Long reviewId);
 
     int updateAllShopsRatings();
 
     int updateShopRatings(@Param("shopId") Long shopId);
 
+    // 商铺各评分维度总分及有效评论数
+    Map<String, Object> selectShopRatingTotals(@Param("shopId") Long shopId);
+
+    // 按likes表刷新点赞数
+    int refreshLikeCounts(@Param("reviewIds") List<Long> reviewIds);
+
 
     // 新增方法 - 获取尚未分析的评论
     @Select("SELECT id, content FROM reviews WHERE sentiment_analyzed = 0 AND status = 'ACTIVE' LIMIT #{limit}")
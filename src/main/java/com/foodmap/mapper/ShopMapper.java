@@ -7,6 +7,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -25,6 +26,9 @@ public interface ShopMapper extends BaseMapper<Shop> {
     //更新评分排名（待完善）刷新处理
     int updateScore(Shop shop);
 
+    //写入各维度评分及评论数
+    int updateRatings(Shop shop);
+
     // 新增方法
     List<Shop> selectShopList(@Param("category") String category,
                               @Param("district") String district,
@@ -43,4 +47,10 @@ public interface ShopMapper extends BaseMapper<Shop> {
     int deleteShopById(Long shopId);
 
     ShopAuthInfo selectShopAuthInfo(Long shopId);
+
+    //批量查询商铺名称
+    List<Shop> selectBriefByIds(@Param("shopIds") Collection<Long> shopIds);
+
+    //全部商铺的ID和名称，用于构建布隆过滤器
+    List<Shop> selectAllBrief();
 }
\ No newline at end of file
@@ -4,6 +4,10 @@ package com.foodmap.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.foodmap.entity.pojo.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 
 @Mapper
@@ -13,4 +17,8 @@ public interface UserMapper extends BaseMapper<User> {
     int countByUsername(String username);
     int countByPhone(String phone);
     User selectByPhone(String phone);
+    //批量查询用户展示信息（不含密码）
+    List<User> selectBriefByIds(@Param("userIds") Collection<Long> userIds);
+    //全部用户名，用于构建布隆过滤器
+    List<String> selectAllUserNames();
 }
\ No newline at end of file
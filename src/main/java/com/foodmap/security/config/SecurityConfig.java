@@ -2,6 +2,7 @@ package com.foodmap.security.config;
 
 import com.foodmap.security.jwt.JwtAuthenticationFilter;
 import com.foodmap.security.jwt.JwtTokenProvider;
+import com.foodmap.security.service.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -32,11 +33,12 @@ public class SecurityConfig {
 
     private final UserDetailsService userDetailsService;
     private final JwtTokenProvider tokenProvider;
+    private final PrincipalCache principalCache;
 
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(tokenProvider,userDetailsService);
+        return new JwtAuthenticationFilter(tokenProvider,userDetailsService,principalCache);
     }
 
     @Bean
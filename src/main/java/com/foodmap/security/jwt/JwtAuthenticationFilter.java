@@ -2,11 +2,14 @@ package com.foodmap.security.jwt;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.foodmap.security.service.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -26,6 +29,7 @@ import java.util.Date;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtTokenProvider jwtTokenProvider;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
 
     // 刷新窗口时间，例如5分钟
     private static final long REFRESH_WINDOW_MILLIS = 5 * 60 * 1000;
@@ -37,12 +41,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String token = getTokenFromRequest(request);
 
             if (token != null) {
-                // 尝试验证令牌
-                jwtTokenProvider.validateToken(token);
-
-                // 验证通过，设置认证信息
-                String username = jwtTokenProvider.getUsernameFromToken(token);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // 只解析一次：校验签名和有效期，过期时抛出ExpiredJwtException
+                Claims claims = jwtTokenProvider.parseClaims(token);
+
+                // 验证通过，设置认证信息（同一令牌优先使用缓存的主体，否则直接由auth声明构建）
+                UserDetails userDetails = principalCache.get(token);
+                if (userDetails == null) {
+                    if (principalCache.isRevoked(claims.getSubject(), claims.getIssuedAt())) {
+                        throw new JwtException("令牌已被吊销");
+                    }
+                    userDetails = jwtTokenProvider.getPrincipal(claims);
+                    principalCache.put(token, userDetails);
+                }
 
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -99,6 +109,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             // 获取用户名
             String username = e.getClaims().getSubject();
+            if (principalCache.isRevoked(username, e.getClaims().getIssuedAt())) {
+                log.warn("用户[{}]的令牌已被吊销，不予刷新", username);
+                return;
+            }
             log.info("自动刷新用户[{}]的JWT令牌", username);
 
             // 加载用户详情
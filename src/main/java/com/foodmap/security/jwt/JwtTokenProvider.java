@@ -2,6 +2,7 @@ package com.foodmap.security.jwt;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -9,13 +10,14 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Component
@@ -37,10 +39,20 @@ public class JwtTokenProvider {
     @Value("${jwt.prefix:Bearer }")
     private String jwtPrefix;
 
+    // 签名密钥和解析器线程安全，启动时构建一次，避免每次解析都重新派生HMAC密钥
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
     public JwtTokenProvider() {
 
     }
 
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
     // 生成JWT令牌
     public String generateToken(Authentication authentication) {
         // 获取用户信息和权限
@@ -59,54 +71,51 @@ public class JwtTokenProvider {
                 .claim("auth", authorities)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();//生成最终令牌
     }
 
+    /**
+     * 校验签名和有效期并返回载荷，每个请求只需解析一次
+     * @throws ExpiredJwtException 令牌已过期
+     * @throws JwtException 令牌无效
+     */
+    public Claims parseClaims(String token) {
+        return jwtParser.parseClaimsJws(token).getBody();
+    }
+
     // 从JWT提取用户名
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
+        return parseClaims(token).getSubject();
     }
 
-    // 从JWT提取Authentication对象
-    public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        Collection<? extends GrantedAuthority> authorities =
-                Arrays.stream(claims.get("auth").toString().split(","))
-                        .filter(auth -> !auth.trim().isEmpty())
+    /**
+     * 直接用载荷中的auth声明构建主体，不查询用户/商铺
+     */
+    public UserDetails getPrincipal(Claims claims) {
+        Object auth = claims.get("auth");
+        List<GrantedAuthority> authorities = auth == null ? List.of() :
+                Arrays.stream(auth.toString().split(","))
+                        .filter(authority -> !authority.trim().isEmpty())
                         .map(SimpleGrantedAuthority::new)
                         .collect(Collectors.toList());
+        return new User(claims.getSubject(), "", authorities);
+    }
 
-        User principal = new User(claims.getSubject(), "", authorities);
-
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    // 从JWT提取Authentication对象
+    public Authentication getAuthentication(String token) {
+        UserDetails principal = getPrincipal(parseClaims(token));
+        return new UsernamePasswordAuthenticationToken(principal, token, principal.getAuthorities());
     }
 
     // 验证JWT有效性
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token);
+            jwtParser.parseClaimsJws(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
 
-    // 获取签名密钥
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-
 }
\ No newline at end of file
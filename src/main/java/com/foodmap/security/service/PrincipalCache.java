@@ -0,0 +1,127 @@
+package com.foodmap.security.service;
+
+import com.foodmap.util.RedisCacheUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已认证主体的本地缓存
+ * 以JWT签名段为key保存构建好的UserDetails，同一令牌的后续请求无需再查Redis/MySQL。
+ * 主体直接由令牌声明构建，修改密码、修改状态、改名、注销等凭证变更需显式调用 {@link #revoke(String)}：
+ * 吊销时间写入Redis（保留一个令牌有效期加刷新窗口），所有节点及重启后都按它拒绝此前签发的令牌，
+ * 同时广播让各节点丢弃该账号已缓存的主体。普通的缓存失效（评分更新、空值清理等）不影响登录状态
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PrincipalCache {
+
+    private static final String REVOKED_KEY_PREFIX = "auth:revoked:";
+    private static final String SHOP_USERNAME_PREFIX = "SHOP_";
+    // 与JwtAuthenticationFilter的刷新窗口一致，过期令牌在窗口内仍可刷新
+    private static final long REFRESH_WINDOW_MILLIS = 5 * 60 * 1000;
+
+    private final RedisCacheUtil cacheUtil;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${security.principal-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${security.principal-cache.expire-seconds:300}")
+    private long expireSeconds;
+
+    @Value("${jwt.expiration:86400000}")
+    private long jwtExpiration;
+
+    private Cache<String, UserDetails> principals;
+
+    @PostConstruct
+    public void init() {
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build();
+        cacheUtil.addRemoteKeyInvalidationListener(this::onRemoteKeyInvalidated);
+    }
+
+    /**
+     * 获取令牌对应的主体，未缓存返回null
+     * 调用前令牌必须已通过签名和过期校验
+     */
+    public UserDetails get(String token) {
+        return principals.getIfPresent(cacheKey(token));
+    }
+
+    public void put(String token, UserDetails userDetails) {
+        principals.put(cacheKey(token), userDetails);
+    }
+
+    /**
+     * 令牌是否签发于账号被吊销之前
+     * JWT的签发时间精确到秒，同一秒内签发的令牌视为有效；Redis不可用时不拒绝请求
+     */
+    public boolean isRevoked(String username, Date issuedAt) {
+        String value;
+        try {
+            value = stringRedisTemplate.opsForValue().get(REVOKED_KEY_PREFIX + username);
+        } catch (Exception e) {
+            log.error("读取令牌吊销记录失败: {}, 错误: {}", username, e.getMessage());
+            return false;
+        }
+        if (value == null) {
+            return false;
+        }
+        long revokedAt = Long.parseLong(value);
+        return issuedAt == null || issuedAt.getTime() / 1000 < revokedAt / 1000;
+    }
+
+    /**
+     * 吊销账号此前签发的所有令牌，并使各节点缓存的主体失效
+     */
+    public void revoke(String username) {
+        try {
+            stringRedisTemplate.opsForValue().set(REVOKED_KEY_PREFIX + username,
+                    String.valueOf(System.currentTimeMillis()),
+                    Duration.ofMillis(jwtExpiration + REFRESH_WINDOW_MILLIS));
+        } catch (Exception e) {
+            log.error("写入令牌吊销记录失败: {}, 错误: {}", username, e.getMessage());
+        }
+        evictLocal(username);
+        cacheUtil.broadcastKeyInvalidation(REVOKED_KEY_PREFIX + username);
+        log.info("账号令牌已吊销: {}", username);
+    }
+
+    /**
+     * 吊销商铺账号的令牌
+     */
+    public void revokeShop(String shopName) {
+        revoke(SHOP_USERNAME_PREFIX + shopName);
+    }
+
+    private void evictLocal(String username) {
+        principals.asMap().values().removeIf(details -> details.getUsername().equals(username));
+    }
+
+    private void onRemoteKeyInvalidated(String key) {
+        if (key.startsWith(REVOKED_KEY_PREFIX)) {
+            evictLocal(key.substring(REVOKED_KEY_PREFIX.length()));
+        }
+    }
+
+    // 签名段在一个令牌内唯一，比整串令牌短
+    private static String cacheKey(String token) {
+        int index = token.lastIndexOf('.');
+        return index >= 0 ? token.substring(index + 1) : token;
+    }
+}
@@ -2,6 +2,7 @@ package com.foodmap.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.foodmap.entity.dto.CursorPage;
 import com.foodmap.entity.dto.ReviewCreateDTO;
 import com.foodmap.entity.dto.ReviewDTO;
 import com.foodmap.entity.dto.ReviewUpdateDTO;
@@ -33,6 +34,18 @@ public interface ReviewService {
      */
     IPage<ReviewDTO> getReviewsByUser(Long userId, Page<ReviewDTO> page);
 
+    /**
+     * 游标分页获取餐厅评论（不统计总数）
+     * @param cursor 上一页返回的nextCursor，首页传空
+     */
+    CursorPage<ReviewDTO> getReviewFeedByRestaurant(Long restaurantId, String cursor, int size);
+
+    /**
+     * 游标分页获取用户评论（不统计总数）
+     * @param cursor 上一页返回的nextCursor，首页传空
+     */
+    CursorPage<ReviewDTO> getReviewFeedByUser(Long userId, String cursor, int size);
+
     /**
      * 获取评论详情
      */
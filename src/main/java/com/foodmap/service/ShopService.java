@@ -19,4 +19,10 @@ public interface ShopService{
     void deleteShop(Long shopId, String shopName, String password);
 
     void updateShopPassword(Long shopId, String oldPassword, String newPassword);
+
+    //清除商铺详情缓存（评分等数据在其他地方更新后调用）
+    void evictShopCache(Long shopId);
+
+    //清除商铺列表缓存
+    void evictShopListCache();
 }
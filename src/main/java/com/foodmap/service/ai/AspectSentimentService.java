@@ -2,20 +2,28 @@ package com.foodmap.service.ai;
 
 import com.foodmap.mapper.AspectSummaryMapper;
 import com.foodmap.mapper.ReviewMapper;
-import com.foodmap.entity.pojo.AspectSummary;
+import com.foodmap.entity.dto.SentimentSnapshot;
+import com.foodmap.exception.ServiceUnavailableException;
+import com.foodmap.util.RedisLock;
 import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.MediaType;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class AspectSentimentService {
 
     @Autowired
@@ -24,22 +32,41 @@ public class AspectSentimentService {
     @Value("${python.service.url:http://localhost:5001}")
     private String pythonServiceUrl;
 
-    private final WebClient webClient;
+    private final PythonAnalyzerClient analyzerClient;
     private final ReviewMapper reviewMapper;
     private final AspectSummaryMapper aspectSummaryMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final SentimentSnapshotCache sentimentSnapshotCache;
+    private final RedisLock redisLock;
+
+    // 同一餐厅的分析锁，各节点共用
+    private static final String RESTAURANT_LOCK_PREFIX = "lock:sentiment:restaurant:";
+
+    // 每次增量分析最多处理的评论数
+    @Value("${sentiment.analysis.batch-size:100}")
+    private int incrementalBatchSize;
+
+    // 应大于单批分析的最长耗时
+    @Value("${sentiment.analysis.lock-seconds:300}")
+    private long restaurantLockSeconds;
+
+    // 每批重新检查水位之前这段时间内更新的评论，覆盖同一秒内id更小、或事务提交晚于updatedAt的评论
+    @Value("${sentiment.analysis.rescan-seconds:300}")
+    private long rescanSeconds;
 
     @Autowired
-    public AspectSentimentService(ReviewMapper reviewMapper,
-                                  AspectSummaryMapper aspectSummaryMapper) {
-        // 修改WebClient创建方式，确保URL正确包含协议和端口
-        this.pythonServiceUrl = "http://localhost:5001"; // 先硬编码确保格式正确
-        this.webClient = WebClient.builder()
-                .baseUrl(this.pythonServiceUrl)
-                .build();
+    public AspectSentimentService(PythonAnalyzerClient analyzerClient,
+                                  ReviewMapper reviewMapper,
+                                  AspectSummaryMapper aspectSummaryMapper,
+                                  TransactionTemplate transactionTemplate,
+                                  SentimentSnapshotCache sentimentSnapshotCache,
+                                  RedisLock redisLock) {
+        this.analyzerClient = analyzerClient;
         this.reviewMapper = reviewMapper;
         this.aspectSummaryMapper = aspectSummaryMapper;
-
-        System.out.println("Python服务URL设置为: " + this.pythonServiceUrl);
+        this.transactionTemplate = transactionTemplate;
+        this.sentimentSnapshotCache = sentimentSnapshotCache;
+        this.redisLock = redisLock;
     }
 
     // 在构造函数后添加初始化方法
@@ -47,204 +74,333 @@ public class AspectSentimentService {
     public void init() {
         try {
             Map<String, Object> healthStatus = checkPythonServiceHealth();
-            System.out.println("Python服务健康检查结果: " + healthStatus);
+            log.info("Python服务健康检查结果: {}", healthStatus);
 
             if ("success".equals(healthStatus.get("status"))) {
-                System.out.println("Python情感分析服务已成功连接");
+                log.info("Python情感分析服务已成功连接");
             } else {
-                System.err.println("警告: Python情感分析服务可能不可用，请检查配置与服务状态");
+                log.warn("Python情感分析服务可能不可用，请检查配置与服务状态");
             }
         } catch (Exception e) {
-            System.err.println("Python服务健康检查异常: " + e.getMessage());
+            log.error("Python服务健康检查异常: {}", e.getMessage());
         }
     }
 
 
     /**
-     * 定时任务：分析餐厅评论
+     * 手动触发特定餐厅的评论分析
+     * 返回的Mono在Python服务响应后完成，等待期间不占用请求线程
      */
+    public Mono<Map<String, Object>> analyzeRestaurantReviews(Long restaurantId) {
+        log.info("成功发送请求，ID{}", restaurantId);
+        return analyzeIncrementally(restaurantId).map(result -> {
+            log.info("评论处理完成，结果: {}", result.get("message"));
+            Map<String, Object> withRestaurant = new HashMap<>(result);
+            withRestaurant.put("restaurantId", restaurantId);
+            return withRestaurant;
+        });
+    }
 
-    //测试阶段删去
-    // @Scheduled(cron = "0 0 */3 * * *") // 每3小时执行一次
-    public void scheduledAnalysis() {
-        // 获取未分析的评论，限制每次处理100条
-        List<Map<String, Object>> reviews = reviewMapper.findUnanalyzedReviews(100);
-        processReviews(reviews);
+    /**
+     * 增量分析一批评论
+     * 只把水位之后新增或内容变动的评论发给Python服务，返回的短语统计按评论记录贡献并累加到方面统计；
+     * 内容变动、隐藏或删除的评论先扣回之前的贡献。分析成本与新增评论数成正比，而不是评论总数
+     */
+    public Mono<Map<String, Object>> analyzeIncrementally(Long restaurantId) {
+        return analyzeIncrementally(restaurantId, incrementalBatchSize);
     }
 
     /**
-     * 手动触发特定餐厅的评论分析
+     * 指定本批最多处理的评论数，结果中hasMore表示水位之后还有评论，analysisMillis为Python服务耗时；
+     * 该餐厅正在其他线程或节点分析时不执行，结果中skipped为true
      */
-    public Map<String, Object> analyzeRestaurantReviews(Long restaurantId) {
-        // 获取该餐厅最新的100条评论进行分析（不论是否已分析）
-        //测试阶段改为1条
-        System.out.println("成功发送请求，ID" + restaurantId);
-        List<Map<String, Object>> reviews = reviewMapper.getRecentReviewsForAnalysis(restaurantId, 5);
+    public Mono<Map<String, Object>> analyzeIncrementally(Long restaurantId, int batchSize) {
+        String lockKey = RESTAURANT_LOCK_PREFIX + restaurantId;
+        // 同一餐厅的两批分析并发执行会重复累加，加锁范围覆盖所有节点
+        return Mono.fromCallable(() -> Optional.ofNullable(
+                        redisLock.tryLock(lockKey, Duration.ofSeconds(restaurantLockSeconds))))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(token -> token
+                        .map(t -> runIncrementalBatch(restaurantId, batchSize)
+                                .doFinally(signal -> redisLock.unlock(lockKey, t)))
+                        .orElseGet(() -> Mono.just(Map.<String, Object>of(
+                                "status", "success", "message", "该餐厅正在分析中", "skipped", true))));
+    }
 
-        System.out.println("获取到的评论数量: " + reviews.size());
+    private Mono<Map<String, Object>> runIncrementalBatch(Long restaurantId, int batchSize) {
+        return Mono.fromCallable(() -> planIncrementalBatch(restaurantId, batchSize))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(batch -> {
+                    if (batch.changed().isEmpty() && batch.analyzeIds().isEmpty() && batch.retractIds().isEmpty()) {
+                        return Mono.just(Map.<String, Object>of("status", "success", "message", "没有新增或变动的评论"));
+                    }
+                    if (batch.analyzeIds().isEmpty()) {
+                        // 只有隐藏、删除的评论或与上次分析内容相同的评论，无需调用Python服务
+                        return Mono.fromCallable(() -> applyIncrementalBatch(batch, Map.of("phrase_stats", List.of()), 0))
+                                .subscribeOn(Schedulers.boundedElastic());
+                    }
+
+                    log.debug("向Python服务发送增量分析请求，餐厅{}，评论数量: {}", restaurantId, batch.analyzeIds().size());
+                    long startTime = System.currentTimeMillis();
+                    return analyzerClient.analyzeBatch(batch.contents())
+                            .publishOn(Schedulers.boundedElastic())
+                            .map(response -> {
+                                long analysisMillis = System.currentTimeMillis() - startTime;
+                                log.debug("Python服务响应耗时: {}ms", analysisMillis);
+                                return applyIncrementalBatch(batch, response, analysisMillis);
+                            })
+                            .switchIfEmpty(Mono.fromSupplier(() -> {
+                                log.error("Python服务返回空响应，餐厅{}", restaurantId);
+                                return Map.of("status", "error", "message", "Python服务返回空响应");
+                            }));
+                })
+                .onErrorResume(e -> !(e instanceof ServiceUnavailableException), e -> {
+                    log.error("评论分析过程中发生异常，餐厅{}: {}", restaurantId, e.getMessage());
+                    return Mono.just(Map.of(
+                            "status", "error",
+                            "message", "评论分析失败: " + e.getMessage()
+                    ));
+                });
+    }
 
-        if (reviews.isEmpty()) {
-            return Map.of("status", "success", "message", "没有可分析的评论");
+    /**
+     * 读取水位之后的一批评论和水位之前重新检查的评论，按内容指纹区分需要分析和需要扣回的评论；
+     * 重新检查的评论与上次分析内容相同时跳过，因此重复读取不会重复计数
+     */
+    private IncrementalBatch planIncrementalBatch(Long restaurantId, int batchSize) {
+        Map<String, Object> watermark = aspectSummaryMapper.getWatermark(restaurantId);
+        boolean firstRun = watermark == null;
+        LocalDateTime watermarkTime = firstRun ? null : toLocalDateTime(watermark.get("watermark_time"));
+        Long watermarkReviewId = firstRun ? 0L : ((Number) watermark.get("watermark_review_id")).longValue();
+
+        List<Map<String, Object>> changed = aspectSummaryMapper.findReviewsChangedSince(
+                restaurantId, watermarkTime, watermarkReviewId, batchSize);
+
+        // updatedAt只精确到秒，且事务提交可能晚于updatedAt，按游标会漏掉这些评论
+        List<Map<String, Object>> candidates = new ArrayList<>(changed);
+        if (!firstRun) {
+            candidates.addAll(aspectSummaryMapper.findReviewsUpdatedBehind(restaurantId,
+                    watermarkTime.minusSeconds(rescanSeconds), watermarkTime, watermarkReviewId, batchSize));
         }
 
-        // 重置该餐厅评论的分析状态
-        reviewMapper.resetAnalysisStatusByRestaurant(restaurantId);
-
-        System.out.println("进入处理评论阶段，revews如下" + reviews);
-
-        // 处理评论
-        Map<String, Object> result = processReviews(reviews);
-        System.out.println("评论处理完成，结果: " + result);
-        result.put("restaurantId", restaurantId);
+        // 首次增量分析会重建该餐厅的统计，不参考之前的记录
+        Map<Long, String> previousHashes = new HashMap<>();
+        if (!firstRun && !candidates.isEmpty()) {
+            List<Long> ids = candidates.stream().map(review -> ((Number) review.get("id")).longValue()).toList();
+            for (Map<String, Object> state : aspectSummaryMapper.findContentHashes(ids)) {
+                previousHashes.put(((Number) state.get("review_id")).longValue(), (String) state.get("content_hash"));
+            }
+        }
 
-        return result;
+        List<Long> retractIds = new ArrayList<>();
+        List<Long> analyzeIds = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        Map<Long, String> contentHashes = new HashMap<>();
+        for (Map<String, Object> review : candidates) {
+            Long reviewId = ((Number) review.get("id")).longValue();
+            String content = (String) review.get("content");
+            boolean active = "ACTIVE".equals(review.get("status")) && content != null && !content.isBlank();
+            String hash = active ? DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)) : null;
+
+            String previousHash = previousHashes.get(reviewId);
+            if (previousHash == null ? hash == null : previousHash.equals(hash)) {
+                // 内容未变（如点赞数刷新）或已处理过的隐藏、删除，无需重新分析
+                continue;
+            }
+            if (previousHash != null) {
+                retractIds.add(reviewId);
+            }
+            if (active) {
+                analyzeIds.add(reviewId);
+                contents.add(content);
+                contentHashes.put(reviewId, hash);
+            }
+        }
+        return new IncrementalBatch(restaurantId, firstRun, batchSize, changed, retractIds, analyzeIds, contents,
+                contentHashes);
     }
 
     /**
-     * 处理评论列表
+     * 在一个事务内扣回旧贡献、写入新贡献、累加方面统计并推进水位
      */
-    private Map<String, Object> processReviews(List<Map<String, Object>> reviewMaps) {
-        if (reviewMaps.isEmpty()) {
-            System.out.println("没有需要分析的评论，跳过处理");
-            return Map.of("status", "success", "message", "没有需要分析的评论");
+    private Map<String, Object> applyIncrementalBatch(IncrementalBatch batch, Map<String, Object> response,
+                                                      long analysisMillis) {
+        if (!response.containsKey("phrase_stats")) {
+            log.error("Python服务返回的数据结构不完整，缺少phrase_stats字段");
+            return Map.of("status", "error", "message", "Python服务返回数据结构不符合预期");
+        }
+        String summary = (String) response.getOrDefault("summary", "无法生成摘要");
+        if (summary.startsWith("分析过程中发生错误")) {
+            // Python端异常时仍返回200，此时不能推进水位
+            return Map.of("status", "error", "message", summary);
         }
 
-        System.out.println("开始处理评论批次，共" + reviewMaps.size() + "条评论");
+        List<Map<String, Object>> phraseStats = (List<Map<String, Object>>) response.get("phrase_stats");
+        List<Map<String, Object>> contributions = buildContributions(batch.analyzeIds(), phraseStats);
+        Long restaurantId = batch.restaurantId();
 
-        try {
-            // 提取评论内容和ID
-            List<String> reviewContents = new ArrayList<>();
-            List<Long> reviewIds = new ArrayList<>();
-            Map<String, Long> restaurantIdMap = new HashMap<>();
-
-            for (Map<String, Object> review : reviewMaps) {
-                Long id = Long.valueOf(review.get("id").toString());
-                String content = (String) review.get("content");
-                Long restaurantId = Long.valueOf(review.get("restaurantId").toString());
-
-                reviewIds.add(id);
-                reviewContents.add(content);
-                restaurantIdMap.put(id.toString(), restaurantId);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (batch.firstRun()) {
+                aspectSummaryMapper.deleteByRestaurant(restaurantId);
+                aspectSummaryMapper.deleteContributionsByRestaurant(restaurantId);
+                aspectSummaryMapper.deleteContentHashesByRestaurant(restaurantId);
             }
-
-            System.out.println("已提取评论信息，准备发送到Python服务进行分析");
-
-            // 准备请求体
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("reviews", reviewContents);
-
-            // 调用Python服务分析评论，使用WebClient替代RestTemplate
-            System.out.println("===== 发送评论分析请求详情 =====");
-            System.out.println("请求URL: " + pythonServiceUrl + "/analyze_batch");
-            System.out.println("评论数量: " + reviewContents.size());
-            System.out.println("请求内容: " + reviewContents); // 打印所有评论内容
-            System.out.println("===== 请求详情结束 =====");
-
-            System.out.println("向" + pythonServiceUrl + "/analyze_batch发送评论分析请求...");
-            long startTime = System.currentTimeMillis();
-
-            Map<String, Object> response = webClient.post()
-                    .uri("/analyze_batch")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
-                    .block(java.time.Duration.ofSeconds(500));
-
-            long endTime = System.currentTimeMillis();
-            System.out.println("Python服务响应耗时: " + (endTime - startTime) + "ms");
-
-            // 检查响应内容
-            if (response == null) {
-                System.err.println("Python服务返回空响应");
-                return Map.of("status", "error", "message", "Python服务返回空响应");
+            if (!batch.retractIds().isEmpty()) {
+                List<Map<String, Object>> retracted = aspectSummaryMapper.sumContributions(batch.retractIds());
+                if (!retracted.isEmpty()) {
+                    aspectSummaryMapper.mergeAspectDeltas(restaurantId, negate(retracted));
+                }
+                aspectSummaryMapper.deleteContributions(batch.retractIds());
+                aspectSummaryMapper.deleteContentHashes(batch.retractIds());
+            }
+            if (!contributions.isEmpty()) {
+                aspectSummaryMapper.insertContributions(restaurantId, contributions);
+                aspectSummaryMapper.mergeAspectDeltas(restaurantId, sumByAspect(contributions));
+            }
+            if (!batch.analyzeIds().isEmpty()) {
+                List<Map<String, Object>> states = new ArrayList<>();
+                for (Long reviewId : batch.analyzeIds()) {
+                    states.add(Map.of("reviewId", reviewId, "contentHash", batch.contentHashes().get(reviewId)));
+                }
+                aspectSummaryMapper.upsertContentHashes(restaurantId, states);
+                reviewMapper.markReviewsAsAnalyzed(batch.analyzeIds());
             }
+            aspectSummaryMapper.deleteEmptyAspects(restaurantId);
 
-            System.out.println("Python服务响应包含的键: " + response.keySet());
+            // 只有水位之后的评论推进水位，重新检查的评论都在水位之前
+            if (!batch.changed().isEmpty()) {
+                Map<String, Object> last = batch.changed().get(batch.changed().size() - 1);
+                aspectSummaryMapper.upsertWatermark(restaurantId, toLocalDateTime(last.get("updatedAt")),
+                        ((Number) last.get("id")).longValue());
+            }
+        });
+        sentimentSnapshotCache.refresh(restaurantId);
+
+        log.info("餐厅{}增量分析: 新分析{}条，扣回{}条，写入{}项贡献", restaurantId,
+                batch.analyzeIds().size(), batch.retractIds().size(), contributions.size());
+
+        return Map.of(
+                "status", "success",
+                "message", "增量分析" + batch.analyzeIds().size() + "条评论，扣回" + batch.retractIds().size()
+                        + "条变动评论，更新了餐厅的方面统计",
+                "summary", summary,
+                "aspectStats", convertPhraseStatsToAspectStats(phraseStats),
+                "totalReviews", batch.analyzeIds().size(),
+                "hasMore", batch.changed().size() >= batch.batchSize(),
+                "analysisMillis", analysisMillis
+        );
+    }
 
-            // 获取餐厅ID (假设所有评论都来自同一餐厅)
-            Long restaurantId = null;
-            if (!reviewMaps.isEmpty()) {
-                restaurantId = Long.valueOf(reviewMaps.get(0).get("restaurantId").toString());
+    /**
+     * 按review_indices把短语统计拆成每条评论对每个方面的贡献：好评或差评各计1次，中性只计入提及次数
+     */
+    private List<Map<String, Object>> buildContributions(List<Long> reviewIds, List<Map<String, Object>> phraseStats) {
+        Map<String, Map<String, Object>> byReviewAndAspect = new LinkedHashMap<>();
+        for (Map<String, Object> phraseStat : phraseStats) {
+            String phrase = (String) phraseStat.get("phrase");
+            String sentiment = (String) phraseStat.get("sentiment");
+            List<Number> indices = (List<Number>) phraseStat.get("review_indices");
+            if (indices == null) {
+                throw new IllegalStateException("Python服务未返回review_indices，无法增量合并");
+            }
+            for (Number index : indices) {
+                Long reviewId = reviewIds.get(index.intValue());
+                Map<String, Object> contribution = byReviewAndAspect.computeIfAbsent(reviewId + "|" + phrase, key -> {
+                    Map<String, Object> c = new HashMap<>();
+                    c.put("reviewId", reviewId);
+                    c.put("aspect", phrase);
+                    c.put("positive", 0);
+                    c.put("negative", 0);
+                    c.put("total", 0);
+                    return c;
+                });
+                contribution.merge("total", 1, (x, y) -> (int) x + (int) y);
+                if ("好".equals(sentiment)) {
+                    contribution.merge("positive", 1, (x, y) -> (int) x + (int) y);
+                } else if ("差".equals(sentiment)) {
+                    contribution.merge("negative", 1, (x, y) -> (int) x + (int) y);
+                }
             }
+        }
+        return new ArrayList<>(byReviewAndAspect.values());
+    }
 
-            // 验证响应结构 - 使用新的结构字段
-            if (!response.containsKey("phrase_stats")) {
-                System.err.println("Python服务返回的数据结构不完整，缺少phrase_stats字段");
-                return Map.of("status", "error", "message", "Python服务返回数据结构不符合预期");
+    private static List<Map<String, Object>> sumByAspect(List<Map<String, Object>> contributions) {
+        Map<String, Map<String, Object>> byAspect = new LinkedHashMap<>();
+        for (Map<String, Object> contribution : contributions) {
+            Map<String, Object> delta = byAspect.computeIfAbsent((String) contribution.get("aspect"), aspect -> {
+                Map<String, Object> d = new HashMap<>();
+                d.put("aspect", aspect);
+                d.put("positive", 0);
+                d.put("negative", 0);
+                d.put("total", 0);
+                return d;
+            });
+            for (String field : List.of("positive", "negative", "total")) {
+                delta.merge(field, contribution.get(field), (x, y) -> (int) x + (int) y);
             }
+        }
+        return new ArrayList<>(byAspect.values());
+    }
 
-            // 处理分析结果
-            System.out.println("开始处理Python返回的分析结果...");
-            
-            // 获取摘要
-            String summary = (String) response.getOrDefault("summary", "无法生成摘要");
-            System.out.println("获取到摘要: " + (summary.length() > 50 ? summary.substring(0, 50) + "..." : summary));
-            
-            // 获取短语统计
-            List<Map<String, Object>> phraseStats = (List<Map<String, Object>>) response.get("phrase_stats");
-            System.out.println("获取到短语统计: " + phraseStats.size() + " 项");
-            
-            // 获取总评论数
-            int totalReviews = ((Number) response.getOrDefault("total_reviews", reviewMaps.size())).intValue();
-            
-            if (restaurantId != null) {
-                // 将短语统计转换为方面情感统计并保存到数据库
-                List<Map<String, Object>> aspectStats = convertPhraseStatsToAspectStats(phraseStats);
-                System.out.println("准备更新 " + aspectStats.size() + " 条方面统计数据");
-                
-                // 更新数据库
-                int updatedRows = aspectSummaryMapper.batchUpsertAspectStatistics(restaurantId, aspectStats);
-                System.out.println("成功更新 " + updatedRows + " 行方面统计数据");
-                
-                // 可选：保存摘要到review_summaries表（如果有对应表和mapper）
-                // saveReviewSummary(restaurantId, summary, totalReviews);
-                
-                // 标记评论为已分析
-
-                int updatedCount = reviewMapper.markReviewsAsAnalyzed(reviewIds);
-                System.out.println("已将" + updatedCount + "条评论标记为已分析");
-                
-                return Map.of(
-                        "status", "success",
-                        "message", "成功分析" + reviewIds.size() + "条评论，更新了餐厅的方面统计",
-                        "summary", summary,
-                        "aspectStats", aspectStats,
-                        "totalReviews", totalReviews
-                );
-            } else {
-                return Map.of(
-                        "status", "error",
-                        "message", "无法确定评论所属餐厅"
-                );
+    private static List<Map<String, Object>> negate(List<Map<String, Object>> sums) {
+        List<Map<String, Object>> deltas = new ArrayList<>(sums.size());
+        for (Map<String, Object> sum : sums) {
+            Map<String, Object> delta = new HashMap<>();
+            delta.put("aspect", sum.get("aspect"));
+            for (String field : List.of("positive", "negative", "total")) {
+                delta.put(field, -((Number) sum.get(field)).intValue());
             }
+            deltas.add(delta);
+        }
+        return deltas;
+    }
 
-        } catch (Exception e) {
-            System.err.println("评论分析过程中发生异常: " + e.getMessage());
-            e.printStackTrace();
-            return Map.of(
-                    "status", "error",
-                    "message", "评论分析失败: " + e.getMessage()
-            );
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
         }
+        return (LocalDateTime) value;
+    }
+
+    /**
+     * 一批增量分析的评论：changed为水位之后读到的全部评论，retractIds需扣回旧贡献，analyzeIds与contents一一对应
+     */
+    private record IncrementalBatch(Long restaurantId, boolean firstRun, int batchSize, List<Map<String, Object>> changed,
+                                    List<Long> retractIds, List<Long> analyzeIds, List<String> contents,
+                                    Map<Long, String> contentHashes) {
+    }
+
+    /**
+     * 获取餐厅的方面情感统计摘要（预计算快照）
+     */
+    public SentimentSnapshot getSentimentSnapshot(Long restaurantId) {
+        return sentimentSnapshotCache.get(restaurantId);
     }
 
     /**
      * 获取餐厅的方面情感统计摘要
      */
     public Map<String, Object> getRestaurantSentimentSummary(Long restaurantId) {
-        List<AspectSummary> summaries = aspectSummaryMapper.getAspectSummaryByRestaurant(restaurantId);
+        return toSummaryResponse(getSentimentSnapshot(restaurantId));
+    }
 
-        if (summaries.isEmpty()) {
+    /**
+     * 快照转为看板接口的响应结构
+     */
+    public Map<String, Object> toSummaryResponse(SentimentSnapshot snapshot) {
+        if (snapshot.getAspects().isEmpty()) {
             return Map.of("status", "empty", "message", "暂无方面情感分析数据");
         }
 
-        Map<String, Object> summaryText = aspectSummaryMapper.getLatestSummaryText(restaurantId);
-
         Map<String, Object> result = new HashMap<>();
-        result.put("restaurantId", restaurantId);
-        result.put("summaryText", summaryText.get("summary"));
-        result.put("aspects", summaries);
+        result.put("restaurantId", snapshot.getRestaurantId());
+        result.put("summaryText", snapshot.getSummaryText());
+        result.put("aspects", snapshot.getAspects());
+        result.put("topAspects", snapshot.getTopAspects());
+        result.put("positivePercentage", snapshot.getPositivePercentage());
+        result.put("totalMentions", snapshot.getTotalMentions());
+        result.put("updatedAt", snapshot.getBuiltAt());
 
         return result;
     }
@@ -256,14 +412,9 @@ public class AspectSentimentService {
      */
     public Map<String, Object> checkPythonServiceHealth() {
         try {
-            System.out.println("正在检查Python服务健康状态: " + pythonServiceUrl + "/health");
+            log.debug("正在检查Python服务健康状态: {}/health", pythonServiceUrl);
 
-            Map<String, Object> response = webClient.get()
-                    .uri("/health")
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {
-                    })
-                    .block(java.time.Duration.ofSeconds(5)); // 添加5秒超时
+            Map<String, Object> response = analyzerClient.health().block();
 
             if (response != null && "healthy".equals(response.get("status"))) {
                 return Map.of(
@@ -279,7 +430,7 @@ public class AspectSentimentService {
                 );
             }
         } catch (Exception e) {
-            e.printStackTrace(); // 打印详细堆栈便于调试
+            log.error("Python服务健康检查失败", e);
             return Map.of(
                     "status", "error",
                     "message", "Python服务连接失败: " + e.getMessage(),
@@ -295,18 +446,10 @@ public class AspectSentimentService {
         try {
             // 准备简单的测试评论
             String testReview = "测试评论，环境很好，服务态度一般";
-            Map<String, Object> requestBody = Map.of("text", testReview);
 
-            System.out.println("发送测试请求到Python服务: " + pythonServiceUrl + "/analyze");
+            log.info("发送测试请求到Python服务: {}/analyze", pythonServiceUrl);
 
-            Map<String, Object> response = webClient.post()
-                    .uri("/analyze")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {
-                    })
-                    .block(java.time.Duration.ofSeconds(10)); // 10秒超时
+            Map<String, Object> response = analyzerClient.analyze(testReview).block();
 
             // 提取分析结果中的关键信息
             if (response != null && response.containsKey("unique_aspect_results")) {
@@ -328,7 +471,7 @@ public class AspectSentimentService {
                 );
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Python服务测试连接失败", e);
             return Map.of(
                     "status", "error",
                     "message", "测试连接失败: " + e.getMessage(),
@@ -0,0 +1,246 @@
+package com.foodmap.service.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.foodmap.entity.pojo.ChatHistory;
+import com.foodmap.mapper.ChatHistoryMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 聊天记录写缓冲
+ * 新消息先放入有界内存队列，积累到批量大小或定时任务触发时一次多行插入；
+ * 同时按会话在Redis列表中维护最近几轮对话，各节点共享，构建RAG提示词时直接读取列表；
+ * 列表不存在时先刷新本节点缓冲再查库加载。其他节点缓冲中尚未落库的消息已经写入列表，不会因为跨节点读取而缺失
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChatHistoryAppender {
+
+    private static final String RECENT_PREFIX = "chat:recent:";
+    // 列表末尾的占位元素，用来区分"已加载但没有消息"与"尚未从数据库加载"
+    private static final String LOADED_MARKER = "_";
+
+    // 列表已加载时把消息放到队首，超出上限时截掉最旧的消息并补回占位元素。返回 1=已追加 0=列表未加载
+    private static final RedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('LPUSH', KEYS[1], ARGV[1]) " +
+            "local max = tonumber(ARGV[2]) " +
+            "if redis.call('LLEN', KEYS[1]) > max + 1 then " +
+            "  redis.call('LTRIM', KEYS[1], 0, max - 1) redis.call('RPUSH', KEYS[1], ARGV[4]) " +
+            "end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) return 1",
+            Long.class);
+
+    // 仅在列表不存在时写入从数据库加载的消息（新到旧，最后一个为占位元素）。返回 1=已加载 0=列表已存在
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('RPUSH', KEYS[1], unpack(ARGV, 2)) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1]) return 1",
+            Long.class);
+
+    // 读取最新的若干条并为列表续期，列表不存在时返回空列表
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisScript<List<String>> READ_SCRIPT = (RedisScript) new DefaultRedisScript<>(
+            "local items = redis.call('LRANGE', KEYS[1], 0, tonumber(ARGV[1])) " +
+            "if #items > 0 then redis.call('PEXPIRE', KEYS[1], ARGV[2]) end " +
+            "return items",
+            List.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final ChatHistoryMapper chatHistoryMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${chat.history.buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${chat.history.flush-size:200}")
+    private int flushSize;
+
+    @Value("${chat.history.recent-messages:20}")
+    private int recentMessages;
+
+    @Value("${chat.history.expire-minutes:30}")
+    private long expireMinutes;
+
+    private BlockingQueue<ChatHistory> buffer;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Object flushLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+    }
+
+    /**
+     * 追加消息，按时间先后传入
+     */
+    public void append(List<ChatHistory> messages) {
+        for (ChatHistory message : messages) {
+            // 先写入共享列表再入缓冲，列表已加载时其他节点立即可见；
+            // 列表未加载时不写入，由下次读取刷新缓冲后从数据库加载（同一会话在提问前已读取过列表，通常已加载）
+            pushRecent(message);
+            if (!buffer.offer(message)) {
+                // 缓冲已满，由调用线程先刷一批腾出空间
+                flush();
+                if (!buffer.offer(message)) {
+                    chatHistoryMapper.insert(message);
+                }
+            }
+        }
+        if (buffer.size() >= flushSize && flushScheduled.compareAndSet(false, true)) {
+            Schedulers.boundedElastic().schedule(() -> {
+                try {
+                    flush();
+                } finally {
+                    flushScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 最近的聊天记录，按时间倒序；登录用户按用户和餐厅，匿名用户按会话
+     */
+    public List<ChatHistory> recent(Long userId, Long restaurantId, String sessionId, int limit) {
+        if (limit > recentMessages) {
+            flush();
+            return load(userId, restaurantId, sessionId, limit);
+        }
+        String listKey = RECENT_PREFIX + key(userId, restaurantId, sessionId);
+        try {
+            List<String> cached = readRecent(listKey, limit);
+            if (!cached.isEmpty()) {
+                return decode(cached, limit);
+            }
+            // 缓冲中尚未落库的消息也要包含在内
+            flush();
+            List<ChatHistory> loaded = load(userId, restaurantId, sessionId, recentMessages);
+            List<String> args = new ArrayList<>(loaded.size() + 2);
+            args.add(String.valueOf(expireMillis()));
+            for (ChatHistory message : loaded) {
+                args.add(MAPPER.writeValueAsString(message));
+            }
+            args.add(LOADED_MARKER);
+            stringRedisTemplate.execute(LOAD_SCRIPT, List.of(listKey), args.toArray());
+            // 加载期间其他节点可能已先写入列表并追加了新消息，以列表为准
+            cached = readRecent(listKey, limit);
+            return cached.isEmpty() ? loaded.stream().limit(limit).toList() : decode(cached, limit);
+        } catch (Exception e) {
+            log.warn("读取最近聊天记录列表失败，改为查库: {}", e.getMessage());
+            flush();
+            return load(userId, restaurantId, sessionId, limit);
+        }
+    }
+
+    /**
+     * 把缓冲中的消息分批写入数据库
+     */
+    @Scheduled(fixedDelayString = "${chat.history.flush-interval-ms:1000}")
+    public void flush() {
+        synchronized (flushLock) {
+            List<ChatHistory> batch = new ArrayList<>(flushSize);
+            while (buffer.drainTo(batch, flushSize) > 0) {
+                try {
+                    chatHistoryMapper.batchInsert(batch);
+                } catch (Exception e) {
+                    log.error("聊天记录批量写入失败，{}条记录将在下次重试: {}", batch.size(), e.getMessage());
+                    requeue(batch);
+                    return;
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!buffer.isEmpty()) {
+            log.warn("关闭时仍有{}条聊天记录未能写入", buffer.size());
+        }
+    }
+
+    private void requeue(List<ChatHistory> batch) {
+        int dropped = 0;
+        for (ChatHistory message : batch) {
+            if (!buffer.offer(message)) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            log.error("聊天记录缓冲已满，丢弃{}条记录", dropped);
+        }
+    }
+
+    private List<ChatHistory> load(Long userId, Long restaurantId, String sessionId, int limit) {
+        if (userId == null) {
+            // 匿名用户仅使用会话ID
+            return chatHistoryMapper.findBySessionId(sessionId, limit);
+        }
+        // 登录用户使用用户ID和餐厅ID
+        return chatHistoryMapper.findByUserIdAndRestaurantId(userId, restaurantId, limit);
+    }
+
+    private static String key(Long userId, Long restaurantId, String sessionId) {
+        return userId == null ? "s:" + sessionId : "u:" + userId + ":" + restaurantId;
+    }
+
+    private void pushRecent(ChatHistory message) {
+        String listKey = RECENT_PREFIX + key(message.getUserId(), message.getRestaurantId(), message.getSessionId());
+        try {
+            stringRedisTemplate.execute(APPEND_SCRIPT, List.of(listKey), MAPPER.writeValueAsString(message),
+                    String.valueOf(recentMessages), String.valueOf(expireMillis()), LOADED_MARKER);
+        } catch (Exception e) {
+            // 列表可能缺少这条消息，删除后由下次读取从数据库重建
+            log.warn("写入最近聊天记录列表失败: {}", e.getMessage());
+            try {
+                stringRedisTemplate.delete(listKey);
+            } catch (Exception ignored) {
+                // Redis不可用时读取也会回退到查库
+            }
+        }
+    }
+
+    private List<String> readRecent(String listKey, int limit) {
+        List<String> items = stringRedisTemplate.execute(READ_SCRIPT, List.of(listKey),
+                String.valueOf(limit), String.valueOf(expireMillis()));
+        return items == null ? List.of() : items;
+    }
+
+    private static List<ChatHistory> decode(List<String> items, int limit) throws JsonProcessingException {
+        List<ChatHistory> messages = new ArrayList<>(Math.min(items.size(), limit));
+        for (String item : items) {
+            if (LOADED_MARKER.equals(item) || messages.size() >= limit) {
+                break;
+            }
+            messages.add(MAPPER.readValue(item, ChatHistory.class));
+        }
+        return messages;
+    }
+
+    private long expireMillis() {
+        return expireMinutes * 60_000L;
+    }
+}
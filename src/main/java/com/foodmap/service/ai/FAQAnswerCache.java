@@ -0,0 +1,189 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.util.RedisCacheUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FAQ问答结果缓存
+ * 按餐厅保存"规范化问题 -> 回答"，先精确匹配规范化文本，再按字符二元组的Jaccard相似度找近似问题，
+ * 命中时跳过Python匹配和大模型生成。近似匹配要求相似度严格大于阈值，且两个问题中的否定词一致，
+ * 避免"有停车位吗"的回答被用于"没有停车位吗"。
+ * 只缓存FAQ匹配的回答和不含聊天历史的生成回答，缓存由同一餐厅的所有会话共享。
+ * 餐厅的FAQ增删改时整体失效，通过缓存失效广播同步到其他节点
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FAQAnswerCache {
+
+    // 逻辑key，仅用于借助失效广播通知各节点，Redis中并不存放数据
+    private static final String INVALIDATION_KEY_PREFIX = "faq:answers:";
+    // 否定词，近似问题的否定词序列不同时语义可能相反
+    private static final String NEGATION_CHARS = "不没无非未别莫勿否";
+
+    private final RedisCacheUtil cacheUtil;
+
+    @Value("${faq.answer-cache.max-restaurants:1000}")
+    private long maxRestaurants;
+
+    @Value("${faq.answer-cache.max-entries-per-restaurant:200}")
+    private int maxEntriesPerRestaurant;
+
+    @Value("${faq.answer-cache.expire-minutes:30}")
+    private long expireMinutes;
+
+    @Value("${faq.answer-cache.similarity-threshold:0.8}")
+    private double similarityThreshold;
+
+    private Cache<Long, RestaurantAnswers> restaurants;
+
+    @PostConstruct
+    public void init() {
+        this.restaurants = Caffeine.newBuilder()
+                .maximumSize(maxRestaurants)
+                .expireAfterAccess(expireMinutes, TimeUnit.MINUTES)
+                .build();
+        cacheUtil.addRemoteKeyInvalidationListener(key -> {
+            if (key.startsWith(INVALIDATION_KEY_PREFIX)) {
+                restaurants.invalidate(Long.valueOf(key.substring(INVALIDATION_KEY_PREFIX.length())));
+            }
+        });
+    }
+
+    /**
+     * 查找相同或近似问题的已有回答，未命中返回null
+     */
+    public String get(Long restaurantId, String question) {
+        RestaurantAnswers answers = restaurants.getIfPresent(restaurantId);
+        if (answers == null) {
+            return null;
+        }
+        String normalized = normalize(question);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        return answers.find(normalized, shingles(normalized), negations(normalized), similarityThreshold);
+    }
+
+    public void put(Long restaurantId, String question, String answer) {
+        String normalized = normalize(question);
+        if (normalized.isEmpty() || answer == null || answer.isEmpty()) {
+            return;
+        }
+        restaurants.get(restaurantId, id -> new RestaurantAnswers(maxEntriesPerRestaurant))
+                .put(normalized, new Entry(answer, shingles(normalized), negations(normalized)));
+    }
+
+    /**
+     * 餐厅FAQ变更后调用，清除本节点并广播其他节点
+     */
+    public void invalidate(Long restaurantId) {
+        restaurants.invalidate(restaurantId);
+        cacheUtil.broadcastKeyInvalidation(INVALIDATION_KEY_PREFIX + restaurantId);
+        log.debug("餐厅{}的问答缓存已失效", restaurantId);
+    }
+
+    // 全角转半角、转小写，只保留文字和数字
+    static String normalize(String question) {
+        if (question == null) {
+            return "";
+        }
+        String text = Normalizer.normalize(question, Normalizer.Form.NFKC).toLowerCase();
+        StringBuilder sb = new StringBuilder(text.length());
+        text.codePoints()
+                .filter(Character::isLetterOrDigit)
+                .forEach(sb::appendCodePoint);
+        return sb.toString();
+    }
+
+    // 字符二元组，单字问题退化为单字
+    static Set<String> shingles(String normalized) {
+        Set<String> result = new HashSet<>();
+        if (normalized.length() < 2) {
+            result.add(normalized);
+            return result;
+        }
+        for (int i = 0; i + 1 < normalized.length(); i++) {
+            result.add(normalized.substring(i, i + 2));
+        }
+        return result;
+    }
+
+    // 按出现顺序保留的否定词
+    static String negations(String normalized) {
+        StringBuilder sb = new StringBuilder();
+        normalized.codePoints()
+                .filter(c -> NEGATION_CHARS.indexOf(c) >= 0)
+                .forEach(sb::appendCodePoint);
+        return sb.toString();
+    }
+
+    static double jaccard(Set<String> a, Set<String> b) {
+        int intersection = 0;
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        for (String shingle : smaller) {
+            if (larger.contains(shingle)) {
+                intersection++;
+            }
+        }
+        int union = a.size() + b.size() - intersection;
+        return union == 0 ? 0 : (double) intersection / union;
+    }
+
+    private record Entry(String answer, Set<String> shingles, String negations) {
+    }
+
+    /**
+     * 单个餐厅的回答集合，按访问顺序淘汰最久未用的问题
+     */
+    private static class RestaurantAnswers {
+        private final LinkedHashMap<String, Entry> entries;
+
+        RestaurantAnswers(int maxEntries) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        synchronized String find(String normalized, Set<String> shingles, String negations, double threshold) {
+            Entry exact = entries.get(normalized);
+            if (exact != null) {
+                return exact.answer();
+            }
+            Entry best = null;
+            double bestScore = threshold;
+            for (Entry entry : entries.values()) {
+                if (!negations.equals(entry.negations())) {
+                    continue;
+                }
+                double score = jaccard(shingles, entry.shingles());
+                if (score > bestScore) {
+                    best = entry;
+                    bestScore = score;
+                }
+            }
+            return best == null ? null : best.answer();
+        }
+
+        synchronized void put(String normalized, Entry entry) {
+            entries.put(normalized, entry);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.entity.pojo.FAQ;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * FAQ语义匹配
+ * 餐厅FAQ集合按内容版本推送给Python服务一次，由其预先计算问题向量；
+ * 之后的匹配请求只带餐厅ID、版本号和问题。Python端缺少该版本（重启或其他节点推送了新版本）时重新推送后重试一次。
+ * 匹配返回Mono，不阻塞调用线程，最长等待python.service.timeout.match-faq-seconds；
+ * 流式问答直接组合，同步问答接口和RAG回答沉淀在各自的调用边界上等待结果
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FAQMatcher {
+
+    private final PythonAnalyzerClient analyzerClient;
+    private final FAQSearchIndex searchIndex;
+
+    @Value("${faq.matcher.max-restaurants:1000}")
+    private long maxRestaurants;
+
+    // 餐厅ID -> 本节点已推送的版本号
+    private Cache<Long, String> pushedVersions;
+
+    @PostConstruct
+    public void init() {
+        this.pushedVersions = Caffeine.newBuilder()
+                .maximumSize(maxRestaurants)
+                .build();
+    }
+
+    /**
+     * 按相似度降序的匹配结果（faq_id、question、answer、similarity），餐厅没有FAQ时为空列表
+     */
+    public Mono<List<Map<String, Object>>> match(Long restaurantId, String question) {
+        FAQSearchIndex.FAQSet faqSet = searchIndex.snapshot(restaurantId);
+        if (faqSet.faqs().isEmpty()) {
+            return Mono.just(new ArrayList<>());
+        }
+        Mono<Void> ensurePushed = Objects.equals(pushedVersions.getIfPresent(restaurantId), faqSet.version())
+                ? Mono.empty() : push(restaurantId, faqSet);
+
+        return ensurePushed
+                .then(requestMatch(restaurantId, faqSet.version(), question))
+                .flatMap(response -> {
+                    if (!Boolean.TRUE.equals(response.get("faq_set_missing"))) {
+                        return Mono.just(response);
+                    }
+                    log.info("Python端缺少餐厅{}的FAQ集合版本{}，重新推送", restaurantId, faqSet.version());
+                    return push(restaurantId, faqSet).then(requestMatch(restaurantId, faqSet.version(), question));
+                })
+                .map(response -> {
+                    Object matchedFaqs = response.get("matched_faqs");
+                    return matchedFaqs instanceof List ? (List<Map<String, Object>>) matchedFaqs : new ArrayList<>();
+                });
+    }
+
+    private Mono<Map<String, Object>> requestMatch(Long restaurantId, String version, String question) {
+        return Mono.defer(() -> {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("restaurant_id", restaurantId);
+            requestBody.put("version", version);
+            requestBody.put("question", question);
+
+            log.info("调用FAQ匹配API，餐厅ID: {}, 版本: {}", restaurantId, version);
+            return analyzerClient.matchFaq(requestBody);
+        }).defaultIfEmpty(Map.of());
+    }
+
+    private Mono<Void> push(Long restaurantId, FAQSearchIndex.FAQSet faqSet) {
+        return Mono.defer(() -> {
+            List<Map<String, Object>> faqs = new ArrayList<>(faqSet.faqs().size());
+            for (FAQ faq : faqSet.faqs()) {
+                Map<String, Object> faqMap = new HashMap<>();
+                faqMap.put("id", faq.getId());
+                faqMap.put("question", faq.getQuestion());
+                faqMap.put("answer", faq.getAnswer());
+                faqs.add(faqMap);
+            }
+
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("restaurant_id", restaurantId);
+            requestBody.put("version", faqSet.version());
+            requestBody.put("faqs", faqs);
+
+            return analyzerClient.pushFaqSet(requestBody)
+                    .doOnSuccess(response -> {
+                        pushedVersions.put(restaurantId, faqSet.version());
+                        log.info("已推送餐厅{}的FAQ集合，版本: {}, 共{}条", restaurantId, faqSet.version(), faqs.size());
+                    })
+                    .then();
+        });
+    }
+}
@@ -0,0 +1,225 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.entity.pojo.FAQ;
+import com.foodmap.mapper.FAQMapper;
+import com.foodmap.util.RedisCacheUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FAQ内存检索索引
+ * 每个餐厅一份倒排索引（问题和关键词按 {@link FAQTokenizer} 分词），使用BM25打分，
+ * 首次查询时从数据库加载，之后随FAQ增删改增量更新；其他节点通过失效广播丢弃旧索引后重新加载
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FAQSearchIndex {
+
+    private static final String INVALIDATION_KEY_PREFIX = "faq:index:";
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final FAQMapper faqMapper;
+    private final RedisCacheUtil cacheUtil;
+
+    @Value("${faq.search-index.max-restaurants:1000}")
+    private long maxRestaurants;
+
+    @Value("${faq.search-index.expire-minutes:60}")
+    private long expireMinutes;
+
+    private Cache<Long, RestaurantIndex> indexes;
+
+    @PostConstruct
+    public void init() {
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(maxRestaurants)
+                .expireAfterAccess(expireMinutes, TimeUnit.MINUTES)
+                .build();
+        cacheUtil.addRemoteKeyInvalidationListener(key -> {
+            if (key.startsWith(INVALIDATION_KEY_PREFIX)) {
+                indexes.invalidate(Long.valueOf(key.substring(INVALIDATION_KEY_PREFIX.length())));
+            }
+        });
+    }
+
+    /**
+     * 按BM25得分返回最相关的FAQ，得分为0的不返回
+     */
+    public List<FAQ> search(Long restaurantId, String query, int limit) {
+        return getIndex(restaurantId).search(FAQTokenizer.tokenize(query), limit);
+    }
+
+    /**
+     * 按ID倒序返回最新的FAQ，排除已选中的
+     */
+    public List<FAQ> latest(Long restaurantId, int limit, Collection<FAQ> exclude) {
+        return getIndex(restaurantId).latest(limit, exclude);
+    }
+
+    /**
+     * 餐厅当前的全部FAQ及其内容版本号，版本号在FAQ问答内容变化时改变
+     */
+    public FAQSet snapshot(Long restaurantId) {
+        return getIndex(restaurantId).snapshot();
+    }
+
+    /**
+     * FAQ新增或修改后调用
+     */
+    public void upsert(FAQ faq) {
+        RestaurantIndex index = indexes.getIfPresent(faq.getRestaurantId());
+        if (index != null) {
+            index.add(faq);
+        }
+        cacheUtil.broadcastKeyInvalidation(INVALIDATION_KEY_PREFIX + faq.getRestaurantId());
+    }
+
+    /**
+     * FAQ删除后调用
+     */
+    public void remove(Long restaurantId, Long faqId) {
+        RestaurantIndex index = indexes.getIfPresent(restaurantId);
+        if (index != null) {
+            index.remove(faqId);
+        }
+        cacheUtil.broadcastKeyInvalidation(INVALIDATION_KEY_PREFIX + restaurantId);
+    }
+
+    private RestaurantIndex getIndex(Long restaurantId) {
+        return indexes.get(restaurantId, id -> {
+            RestaurantIndex index = new RestaurantIndex();
+            List<FAQ> faqs = faqMapper.findByRestaurantId(id);
+            faqs.forEach(index::add);
+            log.info("餐厅{}的FAQ索引已加载，共{}条", id, faqs.size());
+            return index;
+        });
+    }
+
+    public record FAQSet(String version, List<FAQ> faqs) {
+    }
+
+    private record Doc(FAQ faq, Map<String, Integer> termFreqs, int length) {
+    }
+
+    /**
+     * 单个餐厅的倒排索引，读写都在实例锁内完成
+     */
+    private static class RestaurantIndex {
+        private final Map<Long, Doc> docs = new HashMap<>();
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+        private long totalLength;
+        // 按需计算，增删时清空
+        private FAQSet snapshot;
+
+        synchronized void add(FAQ faq) {
+            remove(faq.getId());
+            snapshot = null;
+            List<String> tokens = new ArrayList<>(FAQTokenizer.tokenize(faq.getQuestion()));
+            tokens.addAll(FAQTokenizer.tokenize(faq.getKeywords()));
+
+            Map<String, Integer> termFreqs = new HashMap<>();
+            for (String token : tokens) {
+                termFreqs.merge(token, 1, Integer::sum);
+            }
+            for (String term : termFreqs.keySet()) {
+                postings.computeIfAbsent(term, t -> new HashSet<>()).add(faq.getId());
+            }
+            docs.put(faq.getId(), new Doc(faq, termFreqs, tokens.size()));
+            totalLength += tokens.size();
+        }
+
+        synchronized void remove(Long faqId) {
+            Doc doc = docs.remove(faqId);
+            if (doc == null) {
+                return;
+            }
+            snapshot = null;
+            totalLength -= doc.length();
+            for (String term : doc.termFreqs().keySet()) {
+                Set<Long> ids = postings.get(term);
+                if (ids != null) {
+                    ids.remove(faqId);
+                    if (ids.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+
+        synchronized List<FAQ> search(List<String> queryTokens, int limit) {
+            if (docs.isEmpty() || queryTokens.isEmpty()) {
+                return new ArrayList<>();
+            }
+            int docCount = docs.size();
+            double avgLength = Math.max(1.0, (double) totalLength / docCount);
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : new HashSet<>(queryTokens)) {
+                Set<Long> ids = postings.get(term);
+                if (ids == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (docCount - ids.size() + 0.5) / (ids.size() + 0.5));
+                for (Long id : ids) {
+                    Doc doc = docs.get(id);
+                    int tf = doc.termFreqs().get(term);
+                    double norm = tf + K1 * (1 - B + B * doc.length() / avgLength);
+                    scores.merge(id, idf * tf * (K1 + 1) / norm, Double::sum);
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                    .limit(limit)
+                    .map(entry -> docs.get(entry.getKey()).faq())
+                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        }
+
+        synchronized FAQSet snapshot() {
+            if (snapshot == null) {
+                List<FAQ> faqs = docs.values().stream()
+                        .map(Doc::faq)
+                        .sorted(Comparator.comparing(FAQ::getId))
+                        .toList();
+                snapshot = new FAQSet(version(faqs), faqs);
+            }
+            return snapshot;
+        }
+
+        // ID、问题、答案的SHA-256摘要，各节点对相同内容得到相同版本号
+        private static String version(List<FAQ> faqs) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (FAQ faq : faqs) {
+                    digest.update((faq.getId() + "\u0000" + faq.getQuestion() + "\u0000" + faq.getAnswer() + "\u0001")
+                            .getBytes(StandardCharsets.UTF_8));
+                }
+                return HexFormat.of().formatHex(digest.digest(), 0, 8);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        synchronized List<FAQ> latest(int limit, Collection<FAQ> exclude) {
+            return docs.values().stream()
+                    .map(Doc::faq)
+                    .filter(faq -> !exclude.contains(faq))
+                    .sorted(Comparator.comparing(FAQ::getId).reversed())
+                    .limit(limit)
+                    .toList();
+        }
+    }
+}
@@ -3,14 +3,17 @@ package com.foodmap.service.ai;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.foodmap.entity.pojo.ChatHistory;
 import com.foodmap.entity.pojo.FAQ;
-import com.foodmap.mapper.ChatHistoryMapper;
 import com.foodmap.mapper.FAQMapper;
 import com.foodmap.mapper.ReviewMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import com.foodmap.exception.ServiceUnavailableException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -22,79 +25,76 @@ import java.util.stream.Collectors;
 public class FAQService {
 
     private final FAQMapper faqMapper;
-    private final ChatHistoryMapper chatHistoryMapper;
+    private final ChatHistoryAppender chatHistoryAppender;
     private final OllamaAiClient ollamaAiClient;
     private final ReviewMapper reviewMapper;
-    private final WebClient webClient;
+    private final PythonAnalyzerClient analyzerClient;
+    private final FAQAnswerCache answerCache;
+    private final FAQSearchIndex searchIndex;
+    private final FAQMatcher faqMatcher;
+    private final RagFollowUpQueue followUpQueue;
+    private final KeywordExtractor keywordExtractor;
+
+    @Value("${faq.keywords.llm-refine:true}")
+    private boolean llmRefineKeywords;
 
     /**
      * 自动为餐厅生成FAQ - 完全利用Python的聚类功能
+     * 聚类耗时较长，返回Mono以免占用请求线程；聚类并发已满时返回503
      * @param restaurantId 餐厅ID
      * @return 生成的FAQ列表
      */
-    public List<FAQ> autoGenerateFAQs(Long restaurantId) {
-        try {
-            log.info("开始为餐厅{}自动生成FAQ", restaurantId);
-
-            // 1. 获取餐厅的评论数据
-            List<String> reviews = reviewMapper.findReviewContentsByRestaurantId(restaurantId);
-
-            if (reviews.isEmpty()) {
-                log.warn("餐厅{}没有足够的评论来生成FAQ", restaurantId);
-                return Collections.emptyList();
-            }
-
-            log.info("获取到{}条评论，准备调用Python聚类API", reviews.size());
-
-            // 2. 调用Python API进行聚类分析
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("reviews", reviews);
+    public Mono<List<FAQ>> autoGenerateFAQs(Long restaurantId) {
+        log.info("开始为餐厅{}自动生成FAQ", restaurantId);
 
-            Map response = webClient.post()
-                    .uri("/api/cluster")  // 使用专门的FAQ聚类API端点
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .onStatus(
-                            status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> clientResponse.bodyToMono(String.class)
-                                    .flatMap(errorBody -> Mono.error(new RuntimeException("Python API调用失败: " + errorBody)))
-                    )
-                    .bodyToMono(Map.class)
-                    .block();
+        // 1. 获取餐厅的评论数据
+        List<String> reviews = reviewMapper.findReviewContentsByRestaurantId(restaurantId);
 
-            // 3. 解析结果并保存到数据库
-            if (response != null && response.containsKey("suggested_faqs")) {
-                List<Map<String, Object>> suggestedFaqs = (List<Map<String, Object>>) response.get("suggested_faqs");
-
-                log.info("成功获取Python API返回，包含{}个FAQ建议", suggestedFaqs.size());
+        if (reviews.isEmpty()) {
+            log.warn("餐厅{}没有足够的评论来生成FAQ", restaurantId);
+            return Mono.just(Collections.emptyList());
+        }
 
+        log.info("获取到{}条评论，准备调用Python聚类API", reviews.size());
+
+        // 2. 调用Python API进行聚类分析，3. 解析结果并在弹性线程池上保存到数据库
+        return analyzerClient.cluster(reviews)
+                .publishOn(Schedulers.boundedElastic())
+                .map(response -> saveSuggestedFAQs(restaurantId, response))
+                .defaultIfEmpty(Collections.emptyList())
+                .onErrorResume(e -> !(e instanceof ServiceUnavailableException), e -> {
+                    log.error("自动生成FAQ失败", e);
+                    return Mono.just(Collections.emptyList());
+                });
+    }
 
-                List<FAQ> savedFaqs = new ArrayList<>();
-                for (Map<String, Object> faqData : suggestedFaqs) {
-                    String question = (String) faqData.get("question");
-                    String answer = (String) faqData.get("answer");
+    private List<FAQ> saveSuggestedFAQs(Long restaurantId, Map<String, Object> response) {
+        if (!response.containsKey("suggested_faqs")) {
+            log.error("Python API返回异常: {}", response);
+            return Collections.emptyList();
+        }
 
-                    // 检查格式和内容
-                    if (question == null || answer == null || question.isEmpty() || answer.isEmpty()) {
-                        log.warn("跳过无效FAQ，问题或回答为空");
-                        continue;
-                    }
+        List<Map<String, Object>> suggestedFaqs = (List<Map<String, Object>>) response.get("suggested_faqs");
+        log.info("成功获取Python API返回，包含{}个FAQ建议", suggestedFaqs.size());
 
-                    // 保存到数据库
-                    FAQ faq = addFAQ(restaurantId, question, answer);
-                    savedFaqs.add(faq);
-                }
+        List<FAQ> savedFaqs = new ArrayList<>();
+        for (Map<String, Object> faqData : suggestedFaqs) {
+            String question = (String) faqData.get("question");
+            String answer = (String) faqData.get("answer");
 
-                log.info("成功为餐厅{}生成并保存了{}个FAQ", restaurantId, savedFaqs.size());
-                return savedFaqs;
-            } else {
-                log.error("Python API返回异常: {}", response);
-                return Collections.emptyList();
+            // 检查格式和内容
+            if (question == null || answer == null || question.isEmpty() || answer.isEmpty()) {
+                log.warn("跳过无效FAQ，问题或回答为空");
+                continue;
             }
-        } catch (Exception e) {
-            log.error("自动生成FAQ失败", e);
-            return Collections.emptyList();
+
+            // 保存到数据库
+            FAQ faq = addFAQ(restaurantId, question, answer);
+            savedFaqs.add(faq);
         }
+
+        log.info("成功为餐厅{}生成并保存了{}个FAQ", restaurantId, savedFaqs.size());
+        return savedFaqs;
     }
 
     /**
@@ -117,7 +117,7 @@ public class FAQService {
         faq.setAnswer(answer);
 
         // 自动提取关键词
-        String keywords = extractKeywords(question);
+        String keywords = extractKeywords(restaurantId, question);
         faq.setKeywords(keywords);
 
         faq.setCreatedAt(LocalDateTime.now());
@@ -125,6 +125,9 @@ public class FAQService {
 
         // 插入FAQ
         faqMapper.insert(faq);
+        searchIndex.upsert(faq);
+        answerCache.invalidate(restaurantId);
+        refineKeywordsAsync(faq);
         log.info("成功添加FAQ，ID: {}", faq.getId());
 
         return faq;
@@ -147,13 +150,16 @@ public class FAQService {
         faq.setAnswer(answer);
 
         // 重新提取关键词
-        String keywords = extractKeywords(question);
+        String keywords = extractKeywords(faq.getRestaurantId(), question);
         faq.setKeywords(keywords);
 
         faq.setUpdatedAt(LocalDateTime.now());
 
         // 更新数据库
         faqMapper.updateById(faq);
+        searchIndex.upsert(faq);
+        answerCache.invalidate(faq.getRestaurantId());
+        refineKeywordsAsync(faq);
         log.info("FAQ更新成功，ID: {}", id);
 
         return faq;
@@ -164,31 +170,64 @@ public class FAQService {
      */
     public void deleteFAQ(Long id) {
         log.info("删除FAQ，ID: {}", id);
+        FAQ faq = faqMapper.selectById(id);
         faqMapper.deleteById(id);
+        if (faq != null) {
+            searchIndex.remove(faq.getRestaurantId(), id);
+            answerCache.invalidate(faq.getRestaurantId());
+        }
     }
 
     /**
      * 从问题中提取关键词
-     * 简单版本，直接使用分词并保留重要词汇
+     * 使用本地词典分词和TF-IDF，不调用大模型
      */
-    private String extractKeywords(String question) {
-        // 使用Ollama或Python API提取关键词
+    private String extractKeywords(Long restaurantId, String question) {
         try {
-            String prompt = "请从以下餐厅FAQ问题中提取3-5个关键词，仅返回关键词，用逗号分隔：\n" + question;
-
-            // 调用Ollama客户端生成文本
-            String response = ollamaAiClient.generateText(prompt);
-
-            // 处理响应
-            if (response != null && !response.isEmpty()) {
-                return response.trim();
-            }
+            return keywordExtractor.extract(restaurantId, question);
         } catch (Exception e) {
             log.warn("提取关键词失败，使用简单提取: {}", e.getMessage());
+            return question.replaceAll("[\\p{P}\\s]", ",").replaceAll(",+", ",");
+        }
+    }
+
+    /**
+     * 后台调用大模型改进FAQ关键词，不阻塞写入
+     * 写回前重新读取FAQ，问题已被修改或删除时放弃本次结果
+     */
+    private void refineKeywordsAsync(FAQ faq) {
+        if (!llmRefineKeywords || faq.getId() == null) {
+            return;
         }
+        Long faqId = faq.getId();
+        String question = faq.getQuestion();
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                String prompt = "请从以下餐厅FAQ问题中提取3-5个关键词，仅返回关键词，用逗号分隔：\n" + question;
+                String response = ollamaAiClient.generateText(prompt);
+                // generateText失败时返回的是提示文字而不是关键词
+                if (response == null || response.isBlank() || response.length() > 100
+                        || response.startsWith("无法生成回复") || response.startsWith("连接Ollama服务失败")) {
+                    return;
+                }
+                String keywords = response.trim().replaceAll("[，、\\s]+", ",");
 
-        // 如果API调用失败，使用简单提取方法
-        return question.replaceAll("[\\p{P}\\s]", ",").replaceAll(",+", ",");
+                FAQ current = faqMapper.selectById(faqId);
+                if (current == null || !question.equals(current.getQuestion())) {
+                    return;
+                }
+                FAQ update = new FAQ();
+                update.setId(faqId);
+                update.setKeywords(keywords);
+                faqMapper.updateById(update);
+
+                current.setKeywords(keywords);
+                searchIndex.upsert(current);
+                log.info("FAQ关键词已由大模型改进，ID: {}, 关键词: {}", faqId, keywords);
+            } catch (Exception e) {
+                log.warn("后台改进FAQ关键词失败，ID: {}, 错误: {}", faqId, e.getMessage());
+            }
+        });
     }
 
     /**
@@ -198,8 +237,8 @@ public class FAQService {
         try {
             log.info("处理用户问题，餐厅ID: {}, 问题: {}", restaurantId, question);
 
-            // 1. 获取餐厅的所有FAQ
-            List<FAQ> faqs = faqMapper.findByRestaurantId(restaurantId);
+            // 1. 获取餐厅的所有FAQ（内存索引）
+            List<FAQ> faqs = searchIndex.snapshot(restaurantId).faqs();
             if (faqs.isEmpty()) {
                 log.info("餐厅{}没有现有FAQ，将使用通用回答", restaurantId);
                 return generateGenericAnswer(question);
@@ -207,60 +246,24 @@ public class FAQService {
 
             log.info("已获取餐厅{}的{}个FAQ记录", restaurantId, faqs.size());
 
-            // 2. 转换为Python API所需的格式
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("question", question);
-
-            List<Map<String, Object>> existingFaqs = new ArrayList<>();
-            for (FAQ faq : faqs) {
-                Map<String, Object> faqMap = new HashMap<>();
-                faqMap.put("id", faq.getId());
-                faqMap.put("question", faq.getQuestion());
-                faqMap.put("answer", faq.getAnswer());
-                existingFaqs.add(faqMap);
+            // 2. 相同或近似问题近期已回答过，直接复用
+            String cachedAnswer = answerCache.get(restaurantId, question);
+            if (cachedAnswer != null) {
+                log.info("问答缓存命中，跳过FAQ匹配和生成");
+                saveChat(userId, restaurantId, sessionId, question, cachedAnswer);
+                return cachedAnswer;
             }
-            requestBody.put("existing_faqs", existingFaqs);
-
-            // 3. 调用Python API进行匹配
-            log.info("调用FAQ匹配API");
-            Map response = webClient.post()
-                    .uri("/api/match_faq")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .onStatus(
-                            status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> clientResponse.bodyToMono(String.class)
-                                    .flatMap(errorBody -> Mono.error(new RuntimeException("API调用失败: " + errorBody)))
-                    )
-                    .bodyToMono(Map.class)
-                    .block();
-
-            // 4. 处理匹配结果
-            if (response != null && response.containsKey("matched_faqs")) {
-                List<Map<String, Object>> matchedFaqs = (List<Map<String, Object>>) response.get("matched_faqs");
-
-                if (!matchedFaqs.isEmpty()) {
-                    // 如果找到匹配的FAQ，使用匹配结果
-                    Map<String, Object> bestMatch = matchedFaqs.get(0);
-                    double similarity = (double) bestMatch.get("similarity");
-                    String matchedQuestion = (String) bestMatch.get("question");
-
-                    log.info("找到FAQ匹配，最佳匹配相似度: {}, 问题: {}", similarity, matchedQuestion);
-
-                    // 如果相似度足够高，直接返回答案
-                    if (similarity > 0.75) {
-                        String answer = (String) bestMatch.get("answer");
-                        log.info("相似度超过阈值，直接返回匹配的答案");
-
-                        // 保存聊天记录
-                        saveChat(userId, restaurantId, sessionId, question, answer);
-
-                        return answer;
-                    }
-                }
+
+            // 3. 调用Python API进行匹配（同步接口，在请求线程上等待匹配结果）
+            String matchedAnswer = findMatchedAnswer(restaurantId, question).block();
+            if (matchedAnswer != null) {
+                answerCache.put(restaurantId, question, matchedAnswer);
+                // 保存聊天记录
+                saveChat(userId, restaurantId, sessionId, question, matchedAnswer);
+                return matchedAnswer;
             }
 
-            // 5. 如果没有找到匹配的FAQ或相似度不够，使用RAG生成回答
+            // 4. 如果没有找到匹配的FAQ或相似度不够，使用RAG生成回答
             log.info("未找到足够相似的FAQ，使用RAG生成回答");
             return generateAnswerUsingRAG(userId, restaurantId, sessionId, question, faqs);
 
@@ -270,6 +273,153 @@ public class FAQService {
         }
     }
 
+    /**
+     * 用Python语义匹配查找已有FAQ，相似度超过阈值时发出其答案，否则为空
+     */
+    private Mono<String> findMatchedAnswer(Long restaurantId, String question) {
+        return faqMatcher.match(restaurantId, question).flatMap(matchedFaqs -> {
+            if (!matchedFaqs.isEmpty()) {
+                // 如果找到匹配的FAQ，使用匹配结果
+                Map<String, Object> bestMatch = matchedFaqs.get(0);
+                double similarity = ((Number) bestMatch.get("similarity")).doubleValue();
+                String matchedQuestion = (String) bestMatch.get("question");
+
+                log.info("找到FAQ匹配，最佳匹配相似度: {}, 问题: {}", similarity, matchedQuestion);
+
+                // 如果相似度足够高，直接返回答案
+                if (similarity > 0.75) {
+                    log.info("相似度超过阈值，直接返回匹配的答案");
+                    return Mono.justOrEmpty((String) bestMatch.get("answer"));
+                }
+            }
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * 流式回答用户问题
+     * FAQ命中时一次发出完整答案；否则逐段转发Ollama生成的内容，生成结束后再异步保存聊天记录和新FAQ
+     */
+    public Flux<String> streamAnswer(Long userId, Long restaurantId, String question, String sessionId) {
+        return prepareStreamedAnswer(userId, restaurantId, question, sessionId)
+                .flatMapMany(plan -> {
+                    if (plan.directAnswer() != null) {
+                        return Flux.just(plan.directAnswer());
+                    }
+                    // 仅为生成结束后的落库拼接，响应本身逐段发送
+                    StringBuilder answer = new StringBuilder();
+                    return ollamaAiClient.streamText(plan.prompt())
+                            .doOnNext(answer::append)
+                            .doOnComplete(() -> Schedulers.boundedElastic().schedule(() ->
+                                    finishStreamedAnswer(plan, userId, restaurantId, sessionId, question, answer.toString())))
+                            .onErrorResume(e -> {
+                                log.error("流式生成回答失败", e);
+                                String fallbackAnswer = "非常抱歉，系统暂时出现问题，无法回答您的问题。";
+                                if (plan.rag()) {
+                                    Schedulers.boundedElastic().schedule(() ->
+                                            saveChat(userId, restaurantId, sessionId, question, fallbackAnswer));
+                                }
+                                return Flux.just(fallbackAnswer);
+                            });
+                })
+                .onErrorResume(e -> {
+                    log.error("FAQ匹配失败", e);
+                    return Flux.just("很抱歉，系统暂时无法处理您的问题，请稍后再试。");
+                });
+    }
+
+    // 流式回答的准备阶段：查缓存、FAQ匹配或构建提示词。读写缓存和聊天记录在弹性线程池上执行，
+    // FAQ匹配直接组合Python服务的响应，等待期间不占用线程
+    private Mono<StreamPlan> prepareStreamedAnswer(Long userId, Long restaurantId, String question, String sessionId) {
+        return Mono.fromCallable(() -> {
+                    log.info("处理用户问题（流式），餐厅ID: {}, 问题: {}", restaurantId, question);
+
+                    List<FAQ> faqs = searchIndex.snapshot(restaurantId).faqs();
+                    if (faqs.isEmpty()) {
+                        return new StreamPlan(null, buildGenericPrompt(question), false);
+                    }
+
+                    String cachedAnswer = answerCache.get(restaurantId, question);
+                    if (cachedAnswer != null) {
+                        saveChat(userId, restaurantId, sessionId, question, cachedAnswer);
+                        return new StreamPlan(cachedAnswer, null, false);
+                    }
+                    // 需要FAQ匹配
+                    return null;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .switchIfEmpty(Mono.defer(() -> findMatchedAnswer(restaurantId, question)
+                        .publishOn(Schedulers.boundedElastic())
+                        .map(matchedAnswer -> {
+                            answerCache.put(restaurantId, question, matchedAnswer);
+                            saveChat(userId, restaurantId, sessionId, question, matchedAnswer);
+                            return new StreamPlan(matchedAnswer, null, false);
+                        })
+                        .switchIfEmpty(Mono.fromCallable(() -> {
+                            List<FAQ> relevantFAQs = searchRelevantFAQs(restaurantId, question);
+                            List<ChatHistory> chatHistory = getChatHistory(userId, restaurantId, sessionId, 5);
+                            return new StreamPlan(null, buildRAGPrompt(question, relevantFAQs, chatHistory), true,
+                                    chatHistory.isEmpty());
+                        }).subscribeOn(Schedulers.boundedElastic()))));
+    }
+
+    private void finishStreamedAnswer(StreamPlan plan, Long userId, Long restaurantId, String sessionId,
+                                      String question, String answer) {
+        if (!plan.rag()) {
+            return;
+        }
+        saveChat(userId, restaurantId, sessionId, question, answer);
+        if (!answer.isEmpty()) {
+            if (plan.cacheable()) {
+                answerCache.put(restaurantId, question, answer);
+            }
+            submitFollowUp(new RagFollowUpQueue.FollowUp(restaurantId, question, answer));
+        }
+    }
+
+    /**
+     * RAG回答沉淀为FAQ的任务放入队列，入队失败时同步执行；同步执行失败只记录日志，不影响已生成的回答
+     */
+    private void submitFollowUp(RagFollowUpQueue.FollowUp followUp) {
+        if (!followUpQueue.enqueue(followUp)) {
+            try {
+                handleFollowUp(followUp);
+            } catch (Exception e) {
+                log.error("保存RAG答案为FAQ失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 定时执行排队的RAG后续处理
+     */
+    @Scheduled(fixedDelayString = "${faq.followups.interval-ms:1000}")
+    public void processFollowUps() {
+        try {
+            int processed = followUpQueue.drain(this::handleFollowUp);
+            if (processed > 0) {
+                log.info("已处理{}个RAG后续任务", processed);
+            }
+        } catch (Exception e) {
+            log.error("处理RAG后续任务失败: {}", e.getMessage());
+        }
+    }
+
+    private void handleFollowUp(RagFollowUpQueue.FollowUp followUp) {
+        saveFAQFromRAGAnswer(followUp.restaurantId(), followUp.question(), followUp.answer());
+    }
+
+    /**
+     * 流式回答的执行计划：directAnswer非空时直接返回，否则用prompt生成；rag表示生成后需要落库，
+     * cacheable表示提示词不含聊天历史，生成的回答可以放入问答缓存供其他会话使用
+     */
+    private record StreamPlan(String directAnswer, String prompt, boolean rag, boolean cacheable) {
+
+        StreamPlan(String directAnswer, String prompt, boolean rag) {
+            this(directAnswer, prompt, rag, false);
+        }
+    }
+
     /**
      * 使用RAG方法生成回答
      */
@@ -294,11 +444,15 @@ public class FAQService {
                 answer = "非常抱歉，我暂时无法回答这个问题。您可以询问其他问题，或者稍后再试。";
                 log.warn("RAG回答生成失败，使用默认回答");
             } else {
-                // 将高质量的RAG回答保存为新的FAQ
-                saveFAQFromRAGAnswer(restaurantId, question, answer);
+                // 问答缓存按餐厅共享，参考了本会话聊天历史的回答不能给其他会话
+                if (chatHistory.isEmpty()) {
+                    answerCache.put(restaurantId, question, answer);
+                }
+                // 将高质量的RAG回答保存为新的FAQ，在后台执行
+                submitFollowUp(new RagFollowUpQueue.FollowUp(restaurantId, question, answer));
             }
 
-            // 保存聊天记录
+            // 保存聊天记录（写缓冲）
             saveChat(userId, restaurantId, sessionId, question, answer);
 
             return answer;
@@ -314,32 +468,12 @@ public class FAQService {
      * 搜索相关FAQ
      */
     private List<FAQ> searchRelevantFAQs(Long restaurantId, String question) {
-        // 1. 先使用关键词搜索
-        List<String> keywords = Arrays.asList(extractKeywords(question).split(","));
-        List<FAQ> results = new ArrayList<>();
-
-        for (String keyword : keywords) {
-            if (keyword.trim().isEmpty()) continue;
+        // 1. 内存倒排索引按BM25取最相关的FAQ
+        List<FAQ> results = searchIndex.search(restaurantId, question, 5);
 
-            List<FAQ> matched = faqMapper.searchByKeyword(restaurantId, keyword.trim());
-            for (FAQ faq : matched) {
-                if (!results.contains(faq)) {
-                    results.add(faq);
-                }
-            }
-
-            // 限制结果数量
-            if (results.size() >= 5) break;
-        }
-
-        // 2. 如果关键词搜索结果不足，添加一些默认FAQ
+        // 2. 如果检索结果不足，补充最新的FAQ
         if (results.size() < 3) {
-            List<FAQ> defaultFAQs = faqMapper.findTopByRestaurantId(restaurantId, 3 - results.size());
-            for (FAQ faq : defaultFAQs) {
-                if (!results.contains(faq)) {
-                    results.add(faq);
-                }
-            }
+            results.addAll(searchIndex.latest(restaurantId, 3 - results.size(), results));
         }
 
         return results;
@@ -349,13 +483,7 @@ public class FAQService {
      * 获取最近的聊天历史
      */
     private List<ChatHistory> getChatHistory(Long userId, Long restaurantId, String sessionId, int limit) {
-        if (userId == null) {
-            // 匿名用户仅使用会话ID
-            return chatHistoryMapper.findBySessionId(sessionId, limit);
-        } else {
-            // 登录用户使用用户ID和餐厅ID
-            return chatHistoryMapper.findByUserIdAndRestaurantId(userId, restaurantId, limit);
-        }
+        return chatHistoryAppender.recent(userId, restaurantId, sessionId, limit);
     }
 
     /**
@@ -402,15 +530,19 @@ public class FAQService {
      * 生成通用回答
      * 当餐厅没有FAQ数据时使用
      */
+    private String buildGenericPrompt(String question) {
+        return "你是一个餐厅客服AI助手。用户问了一个问题，但我们没有特定的FAQ来回答。\n\n" +
+                "请生成一个友好、专业的回复，告知用户我们目前没有相关信息，并鼓励他们询问其他问题。\n\n" +
+                "用户问题: " + question + "\n\n" +
+                "回复应该简短、礼貌，不要编造信息。";
+    }
+
     private String generateGenericAnswer(String question) {
         log.info("生成通用回答，问题: {}", question);
 
         try {
             // 构建提示词
-            String prompt = "你是一个餐厅客服AI助手。用户问了一个问题，但我们没有特定的FAQ来回答。\n\n" +
-                    "请生成一个友好、专业的回复，告知用户我们目前没有相关信息，并鼓励他们询问其他问题。\n\n" +
-                    "用户问题: " + question + "\n\n" +
-                    "回复应该简短、礼貌，不要编造信息。";
+            String prompt = buildGenericPrompt(question);
 
             // 调用AI生成回答
             String answer = ollamaAiClient.generateText(prompt);
@@ -439,7 +571,6 @@ public class FAQService {
         userChat.setIsUserMessage(true);
         userChat.setContent(question);
         userChat.setCreatedAt(LocalDateTime.now());
-        chatHistoryMapper.insert(userChat);
 
         // 保存AI回答
         ChatHistory aiChat = new ChatHistory();
@@ -449,86 +580,53 @@ public class FAQService {
         aiChat.setIsUserMessage(false);
         aiChat.setContent(answer);
         aiChat.setCreatedAt(LocalDateTime.now());
-        chatHistoryMapper.insert(aiChat);
+
+        chatHistoryAppender.append(List.of(userChat, aiChat));
     }
 
     /**
      * 保存高质量的RAG回答为新的FAQ
+     * 保存失败时抛出异常，由 {@link RagFollowUpQueue} 放回队列重试
      * @param restaurantId 餐厅ID
      * @param question 用户问题
      * @param answer 生成的回答
      */
     private void saveFAQFromRAGAnswer(Long restaurantId, String question, String answer) {
-        try {
-            log.info("尝试将RAG生成的回答保存为FAQ - 问题: {}", question);
-            
-            // 2. 检查是否已存在相似问题
-            List<FAQ> existingFaqs = faqMapper.findByRestaurantId(restaurantId);
-            
-            // 3. 转换为Python API所需的格式
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("question", question);
-
-            List<Map<String, Object>> faqList = new ArrayList<>();
-            for (FAQ faq : existingFaqs) {
-                Map<String, Object> faqMap = new HashMap<>();
-                faqMap.put("id", faq.getId());
-                faqMap.put("question", faq.getQuestion());
-                faqMap.put("answer", faq.getAnswer());
-                faqList.add(faqMap);
+        log.info("尝试将RAG生成的回答保存为FAQ - 问题: {}", question);
+        
+        // 2. 检查是否已存在相似问题 (阈值设置较高以避免重复)
+        log.info("检查问题【{}】与现有FAQ的相似度", question);
+        // 在后续任务线程上等待匹配结果，失败时抛出异常由队列重试
+        List<Map<String, Object>> matchedFaqs = faqMatcher.match(restaurantId, question).block();
+        if (matchedFaqs != null && !matchedFaqs.isEmpty()) {
+            double similarity = ((Number) matchedFaqs.get(0).get("similarity")).doubleValue();
+
+            // 如果存在高相似度FAQ，不再保存
+            if (similarity > 0.85) {
+                log.info("已存在相似问题，相似度: {}, 不保存为新FAQ", similarity);
+                return;
             }
-            requestBody.put("existing_faqs", faqList);
-            
-            // 4. 调用Python API检查相似度
-            log.info("检查问题【{}】与现有FAQ的相似度", question);
-            Map response = webClient.post()
-                    .uri("/api/match_faq")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .onStatus(
-                            status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> clientResponse.bodyToMono(String.class)
-                                    .flatMap(errorBody -> Mono.error(new RuntimeException("API调用失败: " + errorBody)))
-                    )
-                    .bodyToMono(Map.class)
-                    .block();
-            
-            // 判断是否保存为新FAQ (阈值设置较高以避免重复)
-            if (response != null && response.containsKey("matched_faqs")) {
-                List<Map<String, Object>> matchedFaqs = (List<Map<String, Object>>) response.get("matched_faqs");
-                
-                if (!matchedFaqs.isEmpty()) {
-                    // 找到最佳匹配
-                    Map<String, Object> bestMatch = matchedFaqs.get(0);
-                    double similarity = (double) bestMatch.get("similarity");
-                    
-                    // 如果存在高相似度FAQ，不再保存
-                    if (similarity > 0.85) {
-                        log.info("已存在相似问题，相似度: {}, 不保存为新FAQ", similarity);
-                        return;
-                    }
-                }
-            }
-            
-            // 5. 创建并保存新FAQ
-            FAQ newFaq = new FAQ();
-            newFaq.setRestaurantId(restaurantId);
-            newFaq.setQuestion(question);
-            newFaq.setAnswer(answer);
-            
-            // 自动提取关键词
-            String keywords = extractKeywords(question);
-            newFaq.setKeywords(keywords);
-            
-            // 添加自动生成标记和时间戳
-            newFaq.setCreatedAt(LocalDateTime.now());
-            newFaq.setUpdatedAt(LocalDateTime.now());
-            
-            faqMapper.insert(newFaq);
-            log.info("成功将RAG回答保存为新FAQ，ID: {}", newFaq.getId());
-        } catch (Exception e) {
-            log.error("保存RAG答案为FAQ失败: {}", e.getMessage());
         }
+
+        // 3. 创建并保存新FAQ
+        FAQ newFaq = new FAQ();
+        newFaq.setRestaurantId(restaurantId);
+        newFaq.setQuestion(question);
+        newFaq.setAnswer(answer);
+        
+        // 自动提取关键词
+        String keywords = extractKeywords(restaurantId, question);
+        newFaq.setKeywords(keywords);
+        
+        // 添加自动生成标记和时间戳
+        newFaq.setCreatedAt(LocalDateTime.now());
+        newFaq.setUpdatedAt(LocalDateTime.now());
+        
+        faqMapper.insert(newFaq);
+        searchIndex.upsert(newFaq);
+        answerCache.invalidate(restaurantId);
+        refineKeywordsAsync(newFaq);
+        log.info("成功将RAG回答保存为新FAQ，ID: {}", newFaq.getId());
     }
 
 }
\ No newline at end of file
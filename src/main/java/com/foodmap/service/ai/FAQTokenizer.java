@@ -0,0 +1,61 @@
+package com.foodmap.service.ai;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FAQ检索分词：连续汉字切成二元组（单个汉字保留单字），连续字母数字作为一个词，其余字符作为分隔
+ */
+final class FAQTokenizer {
+
+    private FAQTokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase();
+        StringBuilder han = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        normalized.codePoints().forEach(cp -> {
+            if (Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN) {
+                flushWord(word, tokens);
+                han.appendCodePoint(cp);
+            } else if (Character.isLetterOrDigit(cp)) {
+                flushHan(han, tokens);
+                word.appendCodePoint(cp);
+            } else {
+                flushHan(han, tokens);
+                flushWord(word, tokens);
+            }
+        });
+        flushHan(han, tokens);
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static void flushHan(StringBuilder han, List<String> tokens) {
+        if (han.isEmpty()) {
+            return;
+        }
+        int[] cps = han.codePoints().toArray();
+        if (cps.length == 1) {
+            tokens.add(new String(cps, 0, 1));
+        } else {
+            for (int i = 0; i + 1 < cps.length; i++) {
+                tokens.add(new String(cps, i, 2));
+            }
+        }
+        han.setLength(0);
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.entity.pojo.FAQ;
+import com.foodmap.mapper.FAQMapper;
+import com.foodmap.mapper.ReviewMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 本地关键词提取
+ * 用餐饮词典（与Python服务共用restaurant_terms.txt）做正向最大匹配分词，未登录的汉字串切成二元组，
+ * 再按餐厅FAQ和评论语料的TF-IDF打分取前几个词；词典词额外加权
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KeywordExtractor {
+
+    private static final int MAX_KEYWORDS = 5;
+    private static final double DICTIONARY_BOOST = 1.5;
+    // 参与IDF统计的最近评论数
+    private static final int CORPUS_REVIEW_LIMIT = 500;
+
+    // 提问中常见但没有区分度的词；多字停用词同时作为未登录汉字串的切分边界，
+    // 单字停用词只过滤分词结果，否则会把和牛、成都这类词从中间切开
+    private static final Set<String> STOP_WORDS = Set.of(
+            "请问", "什么", "怎么样", "怎么", "怎样", "如何", "可以", "是否", "有没有", "没有", "你们", "我们",
+            "这个", "那个", "哪些", "哪里", "多少", "需要", "一下", "吗", "呢", "的", "了", "是", "有", "在",
+            "吧", "和", "与", "也", "都", "还", "么", "啊");
+    private static final int MAX_STOP_WORD_LENGTH = 3;
+
+    private final FAQMapper faqMapper;
+    private final ReviewMapper reviewMapper;
+
+    @Value("${faq.keywords.dictionary-path:python/restaurant_terms.txt}")
+    private String dictionaryPath;
+
+    @Value("${faq.keywords.corpus-expire-minutes:360}")
+    private long corpusExpireMinutes;
+
+    private Set<String> dictionary = Set.of();
+    private int maxTermLength = 1;
+    private Cache<Long, CorpusStats> corpusStats;
+
+    @PostConstruct
+    public void init() {
+        Path path = Path.of(dictionaryPath);
+        try {
+            if (Files.exists(path)) {
+                dictionary = Files.readAllLines(path, StandardCharsets.UTF_8).stream()
+                        .map(line -> line.trim().split("\\s+")[0])
+                        .filter(term -> !term.isEmpty())
+                        .map(KeywordExtractor::normalize)
+                        .collect(Collectors.toUnmodifiableSet());
+                maxTermLength = dictionary.stream().mapToInt(String::length).max().orElse(1);
+            } else {
+                log.warn("关键词词典不存在: {}，仅使用二元组切分", path.toAbsolutePath());
+            }
+        } catch (IOException e) {
+            log.warn("加载关键词词典失败: {}", e.getMessage());
+        }
+        this.corpusStats = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(corpusExpireMinutes, TimeUnit.MINUTES)
+                .build();
+        log.info("关键词词典加载完成，共{}个词", dictionary.size());
+    }
+
+    /**
+     * 提取关键词，逗号分隔
+     */
+    public String extract(Long restaurantId, String text) {
+        List<String> terms = segment(text);
+        if (terms.isEmpty()) {
+            return "";
+        }
+        Map<String, Integer> termFreqs = new LinkedHashMap<>();
+        for (String term : terms) {
+            termFreqs.merge(term, 1, Integer::sum);
+        }
+
+        CorpusStats stats = restaurantId == null ? CorpusStats.EMPTY
+                : corpusStats.get(restaurantId, this::loadCorpusStats);
+        return termFreqs.entrySet().stream()
+                .sorted(Comparator.comparingDouble((Map.Entry<String, Integer> e) ->
+                        score(e.getKey(), e.getValue(), stats)).reversed())
+                .limit(MAX_KEYWORDS)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * 词典正向最大匹配分词，去掉停用词和单个汉字
+     */
+    List<String> segment(String text) {
+        List<String> terms = new ArrayList<>();
+        String normalized = normalize(text);
+        int i = 0;
+        while (i < normalized.length()) {
+            int cp = normalized.codePointAt(i);
+            if (Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN) {
+                int end = i;
+                while (end < normalized.length()
+                        && Character.UnicodeScript.of(normalized.codePointAt(end)) == Character.UnicodeScript.HAN) {
+                    end += Character.charCount(normalized.codePointAt(end));
+                }
+                segmentHan(normalized.substring(i, end), terms);
+                i = end;
+            } else if (Character.isLetterOrDigit(cp)) {
+                int end = i;
+                while (end < normalized.length() && Character.isLetterOrDigit(normalized.codePointAt(end))
+                        && Character.UnicodeScript.of(normalized.codePointAt(end)) != Character.UnicodeScript.HAN) {
+                    end += Character.charCount(normalized.codePointAt(end));
+                }
+                terms.add(normalized.substring(i, end));
+                i = end;
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        // 单个汉字区分度太低
+        terms.removeIf(term -> STOP_WORDS.contains(term)
+                || (term.length() == 1 && Character.UnicodeScript.of(term.charAt(0)) == Character.UnicodeScript.HAN));
+        return terms;
+    }
+
+    // 对一段连续汉字做最大匹配，多字停用词作为边界丢弃，其余词典外的部分切成二元组
+    private void segmentHan(String han, List<String> terms) {
+        StringBuilder unknown = new StringBuilder();
+        int i = 0;
+        while (i < han.length()) {
+            String matched = null;
+            for (int len = Math.min(maxTermLength, han.length() - i); len >= 2; len--) {
+                String candidate = han.substring(i, i + len);
+                if (dictionary.contains(candidate)) {
+                    matched = candidate;
+                    break;
+                }
+            }
+            String stopWord = matched == null ? matchStopWord(han, i) : null;
+            if (matched != null) {
+                terms.addAll(FAQTokenizer.tokenize(unknown.toString()));
+                unknown.setLength(0);
+                terms.add(matched);
+                i += matched.length();
+            } else if (stopWord != null) {
+                terms.addAll(FAQTokenizer.tokenize(unknown.toString()));
+                unknown.setLength(0);
+                i += stopWord.length();
+            } else {
+                unknown.append(han.charAt(i));
+                i++;
+            }
+        }
+        terms.addAll(FAQTokenizer.tokenize(unknown.toString()));
+    }
+
+    private String matchStopWord(String han, int start) {
+        for (int len = Math.min(MAX_STOP_WORD_LENGTH, han.length() - start); len >= 2; len--) {
+            String candidate = han.substring(start, start + len);
+            if (STOP_WORDS.contains(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private double score(String term, int termFreq, CorpusStats stats) {
+        int df = stats.docFreqs().getOrDefault(term, 0);
+        double idf = Math.log((stats.docCount() + 1.0) / (df + 1.0)) + 1.0;
+        double boost = dictionary.contains(term) ? DICTIONARY_BOOST : 1.0;
+        return termFreq * idf * boost;
+    }
+
+    private CorpusStats loadCorpusStats(Long restaurantId) {
+        List<String> documents = new ArrayList<>();
+        for (FAQ faq : faqMapper.findByRestaurantId(restaurantId)) {
+            documents.add(faq.getQuestion() + " " + faq.getAnswer());
+        }
+        for (Map<String, Object> review : reviewMapper.getRecentReviewsForAnalysis(restaurantId, CORPUS_REVIEW_LIMIT)) {
+            Object content = review.get("content");
+            if (content != null) {
+                documents.add(content.toString());
+            }
+        }
+
+        Map<String, Integer> docFreqs = new HashMap<>();
+        for (String document : documents) {
+            for (String term : new HashSet<>(segment(document))) {
+                docFreqs.merge(term, 1, Integer::sum);
+            }
+        }
+        return new CorpusStats(documents.size(), docFreqs);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase();
+    }
+
+    private record CorpusStats(int docCount, Map<String, Integer> docFreqs) {
+        static final CorpusStats EMPTY = new CorpusStats(0, Map.of());
+    }
+}
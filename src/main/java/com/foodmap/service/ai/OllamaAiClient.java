@@ -6,7 +6,10 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,15 +17,22 @@ import java.util.Map;
 public class OllamaAiClient {
 
     private final RestTemplate restTemplate;
+    // 流式生成使用非阻塞客户端，逐行读取Ollama的NDJSON输出
+    private final WebClient streamClient;
     private final String ollamaEndpoint;
     private final String model;
+    private final Duration streamTimeout;
 
     public OllamaAiClient(
             @Value("${ollama.api.endpoint:http://localhost:11434}") String ollamaEndpoint,
-            @Value("${ollama.model:llama3.2:latest}") String model) {
+            @Value("${ollama.model:llama3.2:latest}") String model,
+            @Value("${ollama.request.timeout:60000}") long requestTimeoutMillis,
+            WebClient.Builder webClientBuilder) {
         this.restTemplate = new RestTemplate();
+        this.streamClient = webClientBuilder.baseUrl(ollamaEndpoint).build();
         this.ollamaEndpoint = ollamaEndpoint;
         this.model = model;
+        this.streamTimeout = Duration.ofMillis(requestTimeoutMillis);
 
         // 输出配置信息，便于调试
         System.out.println("Ollama AI Client initialized with endpoint: " + ollamaEndpoint);
@@ -62,4 +72,29 @@ public class OllamaAiClient {
             return "连接Ollama服务失败: " + e.getMessage();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 流式生成文本，每收到Ollama输出的一个片段就向下游发出，不在内存中拼接完整回复
+     * 两个片段之间超过请求超时时间视为失败
+     */
+    public Flux<String> streamText(String prompt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("prompt", prompt);
+        requestBody.put("stream", true);
+        requestBody.put("temperature", 0.7);
+        requestBody.put("max_tokens", 500);
+
+        return streamClient.post()
+                .uri("/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToFlux(Map.class)
+                .timeout(streamTimeout)
+                .takeUntil(chunk -> Boolean.TRUE.equals(chunk.get("done")))
+                .map(chunk -> chunk.get("response") == null ? "" : chunk.get("response").toString())
+                .filter(text -> !text.isEmpty());
+    }
+}
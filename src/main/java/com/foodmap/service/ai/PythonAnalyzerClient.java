@@ -0,0 +1,127 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.exception.ServiceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Python分析服务客户端
+ * 所有接口返回Mono，每个接口有独立超时。耗时的批量分析和聚类结果一直以Mono返回到控制器，等待期间不占用请求线程，
+ * 两者各自限制并发数，超出时立即拒绝而不是排队占用资源；FAQ匹配、健康检查等短请求由调用方阻塞等待，耗时受超时约束
+ */
+@Component
+@Slf4j
+public class PythonAnalyzerClient {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> MAP_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final WebClient webClient;
+    private final Duration analyzeBatchTimeout;
+    private final Duration clusterTimeout;
+    private final Duration matchFaqTimeout;
+    private final Duration analyzeTimeout;
+    private final Duration healthTimeout;
+    private final Semaphore analyzeBatchPermits;
+    private final Semaphore clusterPermits;
+
+    public PythonAnalyzerClient(WebClient webClient,
+                                @Value("${python.service.timeout.analyze-batch-seconds:500}") long analyzeBatchSeconds,
+                                @Value("${python.service.timeout.cluster-seconds:300}") long clusterSeconds,
+                                @Value("${python.service.timeout.match-faq-seconds:10}") long matchFaqSeconds,
+                                @Value("${python.service.timeout.analyze-seconds:10}") long analyzeSeconds,
+                                @Value("${python.service.timeout.health-seconds:5}") long healthSeconds,
+                                @Value("${python.service.max-concurrent.analyze-batch:2}") int maxConcurrentAnalyzeBatch,
+                                @Value("${python.service.max-concurrent.cluster:2}") int maxConcurrentCluster) {
+        this.webClient = webClient;
+        this.analyzeBatchTimeout = Duration.ofSeconds(analyzeBatchSeconds);
+        this.clusterTimeout = Duration.ofSeconds(clusterSeconds);
+        this.matchFaqTimeout = Duration.ofSeconds(matchFaqSeconds);
+        this.analyzeTimeout = Duration.ofSeconds(analyzeSeconds);
+        this.healthTimeout = Duration.ofSeconds(healthSeconds);
+        this.analyzeBatchPermits = new Semaphore(maxConcurrentAnalyzeBatch);
+        this.clusterPermits = new Semaphore(maxConcurrentCluster);
+    }
+
+    /**
+     * 批量评论方面情感分析
+     */
+    public Mono<Map<String, Object>> analyzeBatch(List<String> reviews) {
+        return withPermit(analyzeBatchPermits, "评论批量分析",
+                post("/analyze_batch", Map.of("reviews", reviews), analyzeBatchTimeout));
+    }
+
+    /**
+     * 评论聚类生成FAQ建议
+     */
+    public Mono<Map<String, Object>> cluster(List<String> reviews) {
+        return withPermit(clusterPermits, "评论聚类",
+                post("/api/cluster", Map.of("reviews", reviews), clusterTimeout));
+    }
+
+    /**
+     * 问题与已有FAQ的相似度匹配
+     */
+    public Mono<Map<String, Object>> matchFaq(Map<String, Object> requestBody) {
+        return post("/api/match_faq", requestBody, matchFaqTimeout);
+    }
+
+    /**
+     * 推送餐厅FAQ集合，Python端按版本缓存问题向量
+     */
+    public Mono<Map<String, Object>> pushFaqSet(Map<String, Object> requestBody) {
+        return post("/api/faq_sets", requestBody, matchFaqTimeout);
+    }
+
+    /**
+     * 单条评论分析
+     */
+    public Mono<Map<String, Object>> analyze(String text) {
+        return post("/analyze", Map.of("text", text), analyzeTimeout);
+    }
+
+    public Mono<Map<String, Object>> health() {
+        return webClient.get()
+                .uri("/health")
+                .retrieve()
+                .bodyToMono(MAP_TYPE)
+                .timeout(healthTimeout);
+    }
+
+    private Mono<Map<String, Object>> post(String uri, Object body, Duration timeout) {
+        return webClient.post()
+                .uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .onStatus(
+                        status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .flatMap(errorBody -> Mono.error(new RuntimeException("Python API调用失败: " + errorBody)))
+                )
+                .bodyToMono(MAP_TYPE)
+                .timeout(timeout);
+    }
+
+    // 订阅时才申请许可，请求结束、失败或取消时归还
+    private Mono<Map<String, Object>> withPermit(Semaphore permits, String name, Mono<Map<String, Object>> call) {
+        return Mono.defer(() -> {
+            if (!permits.tryAcquire()) {
+                log.warn("{}并发已达上限，拒绝新请求", name);
+                return Mono.error(new ServiceUnavailableException(name + "任务繁忙，请稍后再试"));
+            }
+            return call.doFinally(signal -> permits.release());
+        });
+    }
+}
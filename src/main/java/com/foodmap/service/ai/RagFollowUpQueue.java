@@ -0,0 +1,148 @@
+package com.foodmap.service.ai;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodmap.util.RedisLock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * RAG回答后续处理队列
+ * 回答返回给用户前只把"沉淀为FAQ"任务写入Redis列表，由定时任务分批取出执行。
+ * 取出的任务先移入处理中列表，执行完一条删除一条，中途宕机时下次会从处理中列表继续；
+ * 执行失败的任务放回队列重试，超过次数后丢弃。处理锁带令牌，每条任务完成后续期，
+ * 锁已过期或被其他节点获得时停止处理，剩余任务留在处理中列表由持锁节点继续
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RagFollowUpQueue {
+
+    private static final String PENDING_KEY = "faq:followups";
+    private static final String PROCESSING_KEY = "faq:followups:processing";
+    private static final String DRAIN_LOCK_KEY = "faq:followups:lock";
+
+    // 上次未处理完时直接返回处理中列表的长度，否则从队尾（最早的任务）移入最多ARGV[1]条
+    private static final RedisScript<Long> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then return redis.call('LLEN', KEYS[2]) end " +
+            "local n = 0 " +
+            "for i = 1, tonumber(ARGV[1]) do " +
+            "  if not redis.call('RPOPLPUSH', KEYS[1], KEYS[2]) then break end " +
+            "  n = n + 1 " +
+            "end " +
+            "return n",
+            Long.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Duration DRAIN_LOCK_TTL = Duration.ofMinutes(5);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisLock redisLock;
+
+    @Value("${faq.followups.batch-size:50}")
+    private int batchSize;
+
+    @Value("${faq.followups.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * 入队，Redis不可用时返回false由调用方同步执行
+     */
+    public boolean enqueue(FollowUp followUp) {
+        try {
+            stringRedisTemplate.opsForList().leftPush(PENDING_KEY, MAPPER.writeValueAsString(followUp));
+            return true;
+        } catch (Exception e) {
+            log.warn("RAG后续任务入队失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 取出一批任务依次交给handler执行，返回处理的任务数；集群中同一时刻只有一个节点在处理
+     */
+    public int drain(Consumer<FollowUp> handler) {
+        String token = redisLock.tryLock(DRAIN_LOCK_KEY, DRAIN_LOCK_TTL);
+        if (token == null) {
+            return 0;
+        }
+        try {
+            Long claimed = stringRedisTemplate.execute(CLAIM_SCRIPT, List.of(PENDING_KEY, PROCESSING_KEY),
+                    String.valueOf(batchSize));
+            if (claimed == null || claimed == 0) {
+                return 0;
+            }
+
+            List<String> jobs = stringRedisTemplate.opsForList().range(PROCESSING_KEY, 0, -1);
+            List<String> oldestFirst = jobs == null ? List.of() : new ArrayList<>(jobs).reversed();
+            int processed = 0;
+            for (String json : oldestFirst) {
+                FollowUp followUp = parse(json);
+                if (followUp != null) {
+                    run(handler, followUp);
+                }
+                // 锁已丢失时处理中列表可能已归其他节点，不能再弹出
+                if (!redisLock.renew(DRAIN_LOCK_KEY, token, DRAIN_LOCK_TTL)) {
+                    log.warn("RAG后续任务处理锁已过期或被其他节点获得，停止本轮处理");
+                    return processed;
+                }
+                // 处理中列表的队尾就是当前任务
+                stringRedisTemplate.opsForList().rightPop(PROCESSING_KEY);
+                processed++;
+            }
+            return processed;
+        } finally {
+            redisLock.unlock(DRAIN_LOCK_KEY, token);
+        }
+    }
+
+    private void run(Consumer<FollowUp> handler, FollowUp followUp) {
+        try {
+            handler.accept(followUp);
+        } catch (Exception e) {
+            int attempts = followUp.attempts() + 1;
+            if (attempts >= maxAttempts) {
+                log.error("RAG后续任务失败{}次，已丢弃，餐厅ID: {}, 问题: {}, 错误: {}",
+                        attempts, followUp.restaurantId(), followUp.question(), e.getMessage());
+                return;
+            }
+            log.warn("RAG后续任务失败，稍后重试，错误: {}", e.getMessage());
+            enqueue(followUp.withAttempts(attempts));
+        }
+    }
+
+    private FollowUp parse(String json) {
+        try {
+            return MAPPER.readValue(json, FollowUp.class);
+        } catch (JsonProcessingException e) {
+            log.error("无法解析RAG后续任务，已丢弃: {}", json);
+            return null;
+        }
+    }
+
+    /**
+     * 一次RAG回答的后续处理：尝试把回答沉淀为FAQ
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record FollowUp(Long restaurantId, String question, String answer, int attempts) {
+
+        public FollowUp(Long restaurantId, String question, String answer) {
+            this(restaurantId, question, answer, 0);
+        }
+
+        FollowUp withAttempts(int attempts) {
+            return new FollowUp(restaurantId, question, answer, attempts);
+        }
+    }
+}
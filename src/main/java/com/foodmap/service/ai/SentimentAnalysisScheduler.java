@@ -0,0 +1,224 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.exception.ServiceUnavailableException;
+import com.foodmap.mapper.AspectSummaryMapper;
+import com.foodmap.util.RedisLock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多餐厅情感分析调度
+ * 每轮找出水位之后有变动的餐厅，按餐厅分组增量分析，同时最多parallelism个餐厅的批次在运行；
+ * 每个餐厅连续处理到没有剩余评论或达到批次上限，批量大小由 {@link SentimentBatchMetrics} 按Python服务实测吞吐调整。
+ * 各节点的定时任务都会触发，一轮分析先获取Redis锁，同一时间只有一个节点在分析，锁在每批完成后续期；
+ * 候选餐厅只从上一轮完整结束以来updatedAt有变化的评论中查找，走idx_updated_restaurant索引
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SentimentAnalysisScheduler {
+
+    private static final String RUN_LOCK_KEY = "lock:sentiment:analysis";
+    // 上一轮完整结束时的数据库时间
+    private static final String SCAN_WATERMARK_KEY = "sentiment:scan-watermark";
+
+    private final AspectSentimentService aspectSentimentService;
+    private final AspectSummaryMapper aspectSummaryMapper;
+    private final SentimentBatchMetrics metrics;
+    private final RedisLock redisLock;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // 不应超过python.service.max-concurrent.analyze-batch，否则多出的批次会被拒绝
+    @Value("${sentiment.scheduler.parallelism:2}")
+    private int parallelism;
+
+    @Value("${sentiment.scheduler.max-restaurants-per-run:50}")
+    private int maxRestaurantsPerRun;
+
+    @Value("${sentiment.scheduler.max-batches-per-restaurant:10}")
+    private int maxBatchesPerRestaurant;
+
+    // 应大于单批分析的最长耗时，每批完成后续期
+    @Value("${sentiment.scheduler.lock-seconds:600}")
+    private long lockSeconds;
+
+    // 扫描起点向前多取的秒数，覆盖事务提交晚于updatedAt的评论
+    @Value("${sentiment.scheduler.scan-overlap-seconds:300}")
+    private long scanOverlapSeconds;
+
+    // 与AspectSentimentService一致，水位之前这段时间内变动的评论所在餐厅也作为候选
+    @Value("${sentiment.analysis.rescan-seconds:300}")
+    private long rescanSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${sentiment.analysis.cron:0 0 */3 * * *}")
+    public void scheduledAnalysis() {
+        // 默认调度器只有一个线程，等待整轮分析会拖住点赞刷新等其他定时任务；running标记已防止两轮重叠
+        run().subscribe(
+                result -> log.debug("定时情感分析结束: {}", result),
+                e -> log.error("定时情感分析异常: {}", e.getMessage()));
+    }
+
+    /**
+     * 执行一轮分析，本节点或其他节点的上一轮未结束时直接返回
+     */
+    public Mono<Map<String, Object>> run() {
+        return Mono.defer(() -> {
+            if (!running.compareAndSet(false, true)) {
+                return Mono.just(Map.<String, Object>of("status", "skipped", "message", "上一轮分析尚未结束"));
+            }
+            return Mono.fromCallable(() -> Optional.ofNullable(redisLock.tryLock(RUN_LOCK_KEY, lockTtl())))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(token -> token
+                            .map(this::runLocked)
+                            .orElseGet(() -> Mono.just(Map.<String, Object>of(
+                                    "status", "skipped", "message", "其他节点正在分析"))))
+                    .doFinally(signal -> running.set(false));
+        });
+    }
+
+    private Mono<Map<String, Object>> runLocked(String token) {
+        long start = System.currentTimeMillis();
+        RunState state = new RunState(token);
+        return Mono.fromCallable(() -> {
+                    state.scanStart = aspectSummaryMapper.selectNow();
+                    return aspectSummaryMapper.findRestaurantsWithReviewChanges(readScanWatermark(), rescanSeconds,
+                            maxRestaurantsPerRun);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(restaurantIds -> Flux.fromIterable(restaurantIds)
+                        .takeWhile(restaurantId -> !state.lockLost.get())
+                        .flatMap(restaurantId -> drainRestaurant(restaurantId, state)
+                                .doOnNext(result -> state.batches.incrementAndGet())
+                                .then(), parallelism)
+                        .then(Mono.fromCallable(() -> {
+                            if (restaurantIds.size() < maxRestaurantsPerRun && !state.incomplete.get()
+                                    && !state.lockLost.get()) {
+                                // 本轮没有遗留，下一轮从本轮开始时间查起
+                                writeScanWatermark(state.scanStart);
+                            }
+                            long millis = System.currentTimeMillis() - start;
+                            metrics.recordRun(restaurantIds.size(), millis);
+                            log.info("情感分析调度完成: {}个餐厅, {}个批次, 耗时{}ms, 指标: {}",
+                                    restaurantIds.size(), state.batches.get(), millis, metrics.snapshot());
+                            return Map.<String, Object>of(
+                                    "status", "success",
+                                    "restaurants", restaurantIds.size(),
+                                    "batches", state.batches.get(),
+                                    "millis", millis);
+                        }).subscribeOn(Schedulers.boundedElastic())))
+                .doFinally(signal -> redisLock.unlock(RUN_LOCK_KEY, token));
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> snapshot = metrics.snapshot();
+        snapshot.put("running", running.get());
+        snapshot.put("parallelism", parallelism);
+        return snapshot;
+    }
+
+    // 同一餐厅的批次按顺序执行，上一批返回hasMore时继续；每批完成后续期锁，锁已丢失时停止
+    private Flux<Map<String, Object>> drainRestaurant(Long restaurantId, RunState state) {
+        AtomicInteger remaining = new AtomicInteger(maxBatchesPerRestaurant);
+        return analyzeBatch(restaurantId, state)
+                .doOnNext(result -> renewLock(state))
+                .expand(result -> {
+                    if (!Boolean.TRUE.equals(result.get("hasMore"))) {
+                        return Mono.empty();
+                    }
+                    if (remaining.decrementAndGet() <= 0 || state.lockLost.get()) {
+                        state.incomplete.set(true);
+                        return Mono.empty();
+                    }
+                    return analyzeBatch(restaurantId, state).doOnNext(next -> renewLock(state));
+                })
+                .onErrorResume(e -> {
+                    state.incomplete.set(true);
+                    if (e instanceof ServiceUnavailableException) {
+                        metrics.recordRejection();
+                        log.warn("餐厅{}的分析被拒绝，留到下一轮: {}", restaurantId, e.getMessage());
+                    } else {
+                        metrics.recordFailure();
+                        log.error("餐厅{}的情感分析失败: {}", restaurantId, e.getMessage());
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Map<String, Object>> analyzeBatch(Long restaurantId, RunState state) {
+        return aspectSentimentService.analyzeIncrementally(restaurantId, metrics.nextBatchSize())
+                .flatMap(result -> {
+                    if (Boolean.TRUE.equals(result.get("skipped"))) {
+                        // 该餐厅正由手动触发的分析处理，留到下一轮
+                        state.incomplete.set(true);
+                        return Mono.empty();
+                    }
+                    if (!"success".equals(result.get("status"))) {
+                        state.incomplete.set(true);
+                        metrics.recordFailure();
+                        log.warn("餐厅{}的情感分析未完成: {}", restaurantId, result.get("message"));
+                        return Mono.empty();
+                    }
+                    Object reviews = result.get("totalReviews");
+                    Object millis = result.get("analysisMillis");
+                    if (reviews instanceof Number && millis instanceof Number) {
+                        metrics.recordBatch(((Number) reviews).intValue(), ((Number) millis).longValue());
+                    }
+                    return Mono.just(result);
+                });
+    }
+
+    private void renewLock(RunState state) {
+        if (!redisLock.renew(RUN_LOCK_KEY, state.token, lockTtl()) && !state.lockLost.getAndSet(true)) {
+            log.warn("情感分析锁已过期或被其他节点获得，停止本轮剩余批次");
+        }
+    }
+
+    private Duration lockTtl() {
+        return Duration.ofSeconds(lockSeconds);
+    }
+
+    // 首次运行或记录丢失时返回null，查询全部评论
+    private LocalDateTime readScanWatermark() {
+        String value = stringRedisTemplate.opsForValue().get(SCAN_WATERMARK_KEY);
+        return value == null ? null : LocalDateTime.parse(value).minusSeconds(scanOverlapSeconds);
+    }
+
+    private void writeScanWatermark(LocalDateTime scanStart) {
+        try {
+            stringRedisTemplate.opsForValue().set(SCAN_WATERMARK_KEY, scanStart.toString());
+        } catch (Exception e) {
+            log.error("保存情感分析扫描水位失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一轮分析的状态：incomplete表示有餐厅未处理完，本轮结束后不推进扫描水位
+     */
+    private static final class RunState {
+        final String token;
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicBoolean incomplete = new AtomicBoolean();
+        final AtomicBoolean lockLost = new AtomicBoolean();
+        volatile LocalDateTime scanStart;
+
+        RunState(String token) {
+            this.token = token;
+        }
+    }
+}
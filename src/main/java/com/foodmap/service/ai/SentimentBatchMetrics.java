@@ -0,0 +1,103 @@
+package com.foodmap.service.ai;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 情感分析批次指标与自适应批量大小
+ * 按指数加权平均估计Python服务每条评论的耗时，下一批的评论数取"目标批次耗时 / 单条耗时"，并限制在上下限之间
+ */
+@Component
+public class SentimentBatchMetrics {
+
+    // 指数加权平均的平滑系数
+    private static final double ALPHA = 0.3;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetBatchMillis;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder reviewsAnalyzed = new LongAdder();
+    private final AtomicLong lastBatchMillis = new AtomicLong();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+    private final AtomicLong lastRunRestaurants = new AtomicLong();
+
+    // 以下两项只在record中更新
+    private double avgBatchMillis;
+    private double millisPerReview;
+    private volatile int nextBatchSize;
+
+    public SentimentBatchMetrics(@Value("${sentiment.scheduler.min-batch-size:20}") int minBatchSize,
+                                 @Value("${sentiment.scheduler.max-batch-size:500}") int maxBatchSize,
+                                 @Value("${sentiment.scheduler.target-batch-seconds:60}") long targetBatchSeconds,
+                                 @Value("${sentiment.analysis.batch-size:100}") int initialBatchSize) {
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetBatchMillis = targetBatchSeconds * 1000;
+        this.nextBatchSize = Math.max(minBatchSize, Math.min(maxBatchSize, initialBatchSize));
+    }
+
+    /**
+     * 下一批应发送的评论数
+     */
+    public int nextBatchSize() {
+        return nextBatchSize;
+    }
+
+    /**
+     * 记录一次成功的批次：reviews为实际发给Python服务的评论数，analysisMillis为其耗时
+     */
+    public synchronized void recordBatch(int reviews, long analysisMillis) {
+        batches.increment();
+        reviewsAnalyzed.add(reviews);
+        if (reviews == 0) {
+            return;
+        }
+        lastBatchMillis.set(analysisMillis);
+        avgBatchMillis = avgBatchMillis == 0 ? analysisMillis : ALPHA * analysisMillis + (1 - ALPHA) * avgBatchMillis;
+
+        double perReview = (double) Math.max(1, analysisMillis) / reviews;
+        millisPerReview = millisPerReview == 0 ? perReview : ALPHA * perReview + (1 - ALPHA) * millisPerReview;
+        int size = (int) (targetBatchMillis / millisPerReview);
+        nextBatchSize = Math.max(minBatchSize, Math.min(maxBatchSize, size));
+    }
+
+    public void recordFailure() {
+        failures.increment();
+    }
+
+    /**
+     * Python服务并发已满被拒绝
+     */
+    public void recordRejection() {
+        rejections.increment();
+    }
+
+    public void recordRun(int restaurants, long millis) {
+        lastRunRestaurants.set(restaurants);
+        lastRunMillis.set(millis);
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("batches", batches.sum());
+        result.put("failures", failures.sum());
+        result.put("rejections", rejections.sum());
+        result.put("reviewsAnalyzed", reviewsAnalyzed.sum());
+        result.put("lastBatchMillis", lastBatchMillis.get());
+        result.put("avgBatchMillis", Math.round(avgBatchMillis));
+        result.put("reviewsPerSecond", millisPerReview == 0 ? 0 : Math.round(1000 / millisPerReview * 100) / 100.0);
+        result.put("nextBatchSize", nextBatchSize);
+        result.put("lastRunRestaurants", lastRunRestaurants.get());
+        result.put("lastRunMillis", lastRunMillis.get());
+        return result;
+    }
+}
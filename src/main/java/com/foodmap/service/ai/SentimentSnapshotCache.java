@@ -0,0 +1,104 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.entity.dto.SentimentSnapshot;
+import com.foodmap.entity.pojo.AspectSummary;
+import com.foodmap.mapper.AspectSummaryMapper;
+import com.foodmap.util.RedisCacheUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 餐厅情感看板快照
+ * aspect_summary每次变化后重建并写入两级缓存，看板接口直接读取快照，不再做数据库聚合；
+ * 快照的内容摘要作为ETag，内容未变时客户端可得到304
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SentimentSnapshotCache {
+
+    private static final String KEY_PREFIX = "sentiment:snapshot:";
+    private static final int TOP_ASPECTS = 5;
+
+    private final AspectSummaryMapper aspectSummaryMapper;
+    private final RedisCacheUtil cacheUtil;
+
+    // 快照随写入重建，过期只是兜底
+    @Value("${sentiment.snapshot.expire-hours:24}")
+    private long expireHours;
+
+    public SentimentSnapshot get(Long restaurantId) {
+        Object cached = cacheUtil.get(KEY_PREFIX + restaurantId);
+        if (cached instanceof SentimentSnapshot snapshot) {
+            return snapshot;
+        }
+        SentimentSnapshot snapshot = build(restaurantId);
+        cacheUtil.set(KEY_PREFIX + restaurantId, snapshot, expireHours, TimeUnit.HOURS);
+        return snapshot;
+    }
+
+    /**
+     * aspect_summary变化后调用，重建快照并让其他节点丢弃本地副本
+     */
+    public void refresh(Long restaurantId) {
+        SentimentSnapshot snapshot = build(restaurantId);
+        cacheUtil.delete(KEY_PREFIX + restaurantId);
+        cacheUtil.set(KEY_PREFIX + restaurantId, snapshot, expireHours, TimeUnit.HOURS);
+        log.debug("餐厅{}的情感快照已重建, ETag: {}", restaurantId, snapshot.getEtag());
+    }
+
+    private SentimentSnapshot build(Long restaurantId) {
+        List<AspectSummary> aspects = aspectSummaryMapper.getAspectSummaryByRestaurant(restaurantId).stream()
+                .sorted(Comparator.comparing(AspectSummary::getTotalCount, Comparator.nullsFirst(Integer::compare))
+                        .reversed()
+                        .thenComparing(AspectSummary::getAspect))
+                .toList();
+
+        int positive = 0;
+        int total = 0;
+        StringBuilder fingerprint = new StringBuilder();
+        for (AspectSummary aspect : aspects) {
+            positive += value(aspect.getPositiveCount());
+            total += value(aspect.getTotalCount());
+            fingerprint.append(aspect.getAspect()).append('|')
+                    .append(aspect.getPositiveCount()).append('|')
+                    .append(aspect.getNegativeCount()).append('|')
+                    .append(aspect.getTotalCount()).append(';');
+        }
+
+        // 与原GROUP_CONCAT摘要格式一致："方面:好评率%好评"，按提及次数排序
+        String summaryText = aspects.stream()
+                .map(aspect -> aspect.getAspect() + ":" + percentage(aspect.getPositivePercentage()) + "%好评")
+                .collect(Collectors.joining("，"));
+        List<String> topAspects = aspects.stream()
+                .limit(TOP_ASPECTS)
+                .map(AspectSummary::getAspect)
+                .toList();
+        double positivePercentage = total == 0 ? 0
+                : BigDecimal.valueOf(positive * 100.0 / total).setScale(2, RoundingMode.HALF_UP).doubleValue();
+        String etag = DigestUtils.md5DigestAsHex(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+
+        return new SentimentSnapshot(restaurantId, aspects, topAspects, positivePercentage, total,
+                summaryText, etag, LocalDateTime.now());
+    }
+
+    private static int value(Integer count) {
+        return count == null ? 0 : count;
+    }
+
+    private static String percentage(BigDecimal value) {
+        return value == null ? "0" : value.setScale(0, RoundingMode.HALF_UP).toPlainString();
+    }
+}
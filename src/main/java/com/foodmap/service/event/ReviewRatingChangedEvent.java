@@ -0,0 +1,67 @@
+package com.foodmap.service.event;
+
+import com.foodmap.entity.pojo.Review;
+import lombok.Getter;
+
+/**
+ * 评论评分变化事件，携带各评分维度的增量（分数之和与评论数）
+ * 由评论的创建、修改、删除发布，{@link com.foodmap.service.impl.ShopRatingAggregator} 负责累加到商铺评分
+ */
+@Getter
+public class ReviewRatingChangedEvent {
+
+    private final Long restaurantId;
+    private final long compositeDelta;
+    private final long environmentDelta;
+    private final long serviceDelta;
+    private final long tasteDelta;
+    private final long countDelta;
+
+    public ReviewRatingChangedEvent(Long restaurantId, long compositeDelta, long environmentDelta,
+                                    long serviceDelta, long tasteDelta, long countDelta) {
+        this.restaurantId = restaurantId;
+        this.compositeDelta = compositeDelta;
+        this.environmentDelta = environmentDelta;
+        this.serviceDelta = serviceDelta;
+        this.tasteDelta = tasteDelta;
+        this.countDelta = countDelta;
+    }
+
+    /**
+     * 新增一条有效评论
+     */
+    public static ReviewRatingChangedEvent added(Review review) {
+        return new ReviewRatingChangedEvent(review.getRestaurantId(),
+                score(review.getCompositeScore()), score(review.getEnvironmentScore()),
+                score(review.getServiceScore()), score(review.getTasteScore()), 1);
+    }
+
+    /**
+     * 移除一条有效评论
+     */
+    public static ReviewRatingChangedEvent removed(Review review) {
+        return new ReviewRatingChangedEvent(review.getRestaurantId(),
+                -score(review.getCompositeScore()), -score(review.getEnvironmentScore()),
+                -score(review.getServiceScore()), -score(review.getTasteScore()), -1);
+    }
+
+    /**
+     * 修改了有效评论的评分，评论数不变
+     */
+    public static ReviewRatingChangedEvent changed(Review before, Review after) {
+        return new ReviewRatingChangedEvent(after.getRestaurantId(),
+                score(after.getCompositeScore()) - score(before.getCompositeScore()),
+                score(after.getEnvironmentScore()) - score(before.getEnvironmentScore()),
+                score(after.getServiceScore()) - score(before.getServiceScore()),
+                score(after.getTasteScore()) - score(before.getTasteScore()), 0);
+    }
+
+    public boolean isEmpty() {
+        return compositeDelta == 0 && environmentDelta == 0 && serviceDelta == 0
+                && tasteDelta == 0 && countDelta == 0;
+    }
+
+    private static long score(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
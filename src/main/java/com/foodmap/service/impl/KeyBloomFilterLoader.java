@@ -0,0 +1,51 @@
+package com.foodmap.service.impl;
+
+import com.foodmap.entity.pojo.Shop;
+import com.foodmap.mapper.ShopMapper;
+import com.foodmap.mapper.UserMapper;
+import com.foodmap.util.KeyBloomFilter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动完成后在后台从数据库读取全部商铺ID、商铺名和用户名，构建缓存key布隆过滤器
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KeyBloomFilterLoader {
+
+    private final KeyBloomFilter bloomFilter;
+    private final ShopMapper shopMapper;
+    private final UserMapper userMapper;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!bloomFilter.isEnabled()) {
+            return;
+        }
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                List<String> keys = new ArrayList<>();
+                for (Shop shop : shopMapper.selectAllBrief()) {
+                    keys.add("shops:id:" + shop.getShopId());
+                    keys.add("shops:name:" + shop.getShopName());
+                }
+                for (String userName : userMapper.selectAllUserNames()) {
+                    keys.add("users:name:" + userName);
+                }
+                bloomFilter.rebuild(keys);
+            } catch (Exception e) {
+                // 未构建时过滤器放行所有查询，不影响正确性
+                log.error("布隆过滤器构建失败: {}", e.getMessage());
+            }
+        });
+    }
+}
@@ -1,30 +1,24 @@
 package com.foodmap.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.foodmap.entity.dto.LikeCreateDTO;
-import com.foodmap.entity.pojo.Like;
 import com.foodmap.entity.pojo.Review;
 import com.foodmap.entity.pojo.User;
 import com.foodmap.exception.ResourceNotFoundException;
-import com.foodmap.mapper.LikeMapper;
 import com.foodmap.mapper.ReviewMapper;
 import com.foodmap.service.LikeService;
 import com.foodmap.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
 public class LikeServiceImpl implements LikeService {
 
-    private final LikeMapper likeMapper;
     private final ReviewMapper reviewMapper;
     private final UserService userService;
+    private final LikeWriteBuffer likeWriteBuffer;
 
     @Override
-    @Transactional
     public boolean toggleLike(LikeCreateDTO dto) {
         User currentUser = userService.getCurrentUser();
 
@@ -33,54 +27,14 @@ public class LikeServiceImpl implements LikeService {
             throw new ResourceNotFoundException("评论不存在");
         }
 
-        LambdaQueryWrapper<Like> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Like::getUserId, currentUser.getUserId())
-                .eq(Like::getReviewId, dto.getReviewId());
-
-        Like existingLike = likeMapper.selectOne(queryWrapper);
-
-        if (existingLike != null) {
-            // 已点赞，则取消点赞
-            likeMapper.deleteById(existingLike.getId());
-
-            // 更新点赞数
-            updateLikeCount(review, false);
-            return false;
-        } else {
-            // 未点赞，则添加点赞
-            Like like = Like.builder()
-                    .userId(currentUser.getUserId())
-                    .reviewId(dto.getReviewId())
-                    .type(dto.getType())
-                    .build();
-
-            likeMapper.insert(like);
-
-            // 更新点赞数
-            updateLikeCount(review, true);
-            return true;
-        }
+        // 点赞状态先写入Redis缓冲，由定时任务批量落库并刷新点赞数，避免热门评论行锁竞争
+        return likeWriteBuffer.toggle(dto.getReviewId(), currentUser.getUserId(), dto.getType());
     }
 
     @Override
-    @Transactional(readOnly = true)
     public boolean hasUserLiked(Long reviewId) {
         User currentUser = userService.getCurrentUser();
 
-        Integer count = likeMapper.checkUserLiked(currentUser.getUserId(), reviewId);
-        return count != null && count > 0;
-    }
-
-    private void updateLikeCount(Review review, boolean isIncrease) {
-        LambdaUpdateWrapper<Review> updateWrapper = new LambdaUpdateWrapper<>();
-        updateWrapper.eq(Review::getId, review.getId());
-
-        if (isIncrease) {
-            updateWrapper.setSql("likeCount = likeCount + 1");  // 改为 likeCount
-        } else {
-            updateWrapper.setSql("likeCount = GREATEST(0, likeCount - 1)");  // 改为 likeCount
-        }
-
-        reviewMapper.update(null, updateWrapper);
+        return likeWriteBuffer.isLiked(reviewId, currentUser.getUserId());
     }
 }
\ No newline at end of file
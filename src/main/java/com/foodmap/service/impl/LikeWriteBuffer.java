@@ -0,0 +1,276 @@
+package com.foodmap.service.impl;
+
+import com.foodmap.entity.pojo.Like;
+import com.foodmap.exception.ServiceUnavailableException;
+import com.foodmap.mapper.LikeMapper;
+import com.foodmap.mapper.ReviewMapper;
+import com.foodmap.util.RedisLock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * 点赞写缓冲
+ * 每条评论的点赞用户保存在Redis集合中，点击时只修改集合并在待刷新哈希里记录该用户的最终状态；
+ * 定时任务把待刷新哈希批量写入likes表并按实际记录刷新reviews.likeCount。
+ * 待刷新数据始终保存在Redis中，刷新中途宕机时下次启动会重新回放，写入操作均可重复执行。
+ * 点赞集合带过期时间，每次点击续期；过期或被淘汰后从数据库重建时合并尚未刷新的操作，不会丢失点击
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LikeWriteBuffer {
+
+    private static final String LIKE_SET_PREFIX = "likes:review:";
+    private static final String PENDING_KEY = "likes:pending";
+    private static final String FLUSHING_KEY = "likes:pending:flushing";
+    private static final String FLUSH_LOCK_KEY = "likes:flush:lock";
+    // 每次刷新提交后自增，重建集合期间发生过刷新时重新读取数据库
+    private static final String FLUSH_GENERATION_KEY = "likes:flush:generation";
+    // 集合中的占位成员，用来区分"已加载但无人点赞"与"尚未从数据库加载"
+    private static final String LOADED_MARKER = "_";
+    // 待刷新哈希中表示"取消点赞"的值，其余值为点赞类型
+    private static final String UNLIKED = "";
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    // 返回 1=点赞 0=取消点赞 -1=集合未加载，修改后为集合续期
+    private static final RedisScript<Long> TOGGLE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[5]) " +
+            "if redis.call('SISMEMBER', KEYS[1], ARGV[1]) == 1 then " +
+            "  redis.call('SREM', KEYS[1], ARGV[1]) redis.call('HSET', KEYS[2], ARGV[2], ARGV[4]) return 0 " +
+            "end " +
+            "redis.call('SADD', KEYS[1], ARGV[1]) redis.call('HSET', KEYS[2], ARGV[2], ARGV[3]) return 1",
+            Long.class);
+
+    // 仅在集合不存在时加载数据库中的点赞用户，再依次叠加刷新中、待刷新哈希里该评论的操作；
+    // 读取数据库后发生过刷新时返回-1，由调用方重新加载。返回 1=已加载 0=集合已存在。
+    // unpack的参数个数受Lua栈大小限制，点赞用户按ARGV[4]指定的数量分段写入
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "if (redis.call('GET', KEYS[4]) or '0') ~= ARGV[1] then return -1 end " +
+            "local chunk = tonumber(ARGV[4]) " +
+            "for i = 5, #ARGV, chunk do " +
+            "  redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + chunk - 1, #ARGV))) " +
+            "end " +
+            "for k = 2, 3 do " +
+            "  local cursor = '0' " +
+            "  repeat " +
+            "    local page = redis.call('HSCAN', KEYS[k], cursor, 'MATCH', ARGV[2] .. '*', 'COUNT', 500) " +
+            "    cursor = page[1] " +
+            "    for i = 1, #page[2], 2 do " +
+            "      local member = string.sub(page[2][i], #ARGV[2] + 1) " +
+            "      if page[2][i + 1] == '' then redis.call('SREM', KEYS[1], member) " +
+            "      else redis.call('SADD', KEYS[1], member) end " +
+            "    end " +
+            "  until cursor == '0' " +
+            "end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) return 1",
+            Long.class);
+
+    // 重建集合时刷新并发提交的最大重试次数
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+    // 重建集合时每次SADD的成员数
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    // 把待刷新哈希切换为刷新中，上次刷新未完成时直接返回1以便回放
+    private static final RedisScript<Long> SNAPSHOT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then return 1 end " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('RENAME', KEYS[1], KEYS[2]) return 1",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final LikeMapper likeMapper;
+    private final ReviewMapper reviewMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisLock redisLock;
+
+    @Value("${likes.set-ttl-seconds:86400}")
+    private long setTtlSeconds;
+
+    /**
+     * 切换点赞状态
+     * @return true表示点赞，false表示取消点赞
+     */
+    public boolean toggle(Long reviewId, Long userId, String type) {
+        String setKey = LIKE_SET_PREFIX + reviewId;
+        String field = reviewId + ":" + userId;
+        String likeType = type == null || type.isEmpty() ? Like.TYPE_LIKE : type;
+
+        Long result = runToggle(setKey, userId, field, likeType);
+        if (result != null && result < 0) {
+            load(reviewId);
+            result = runToggle(setKey, userId, field, likeType);
+            if (result != null && result < 0) {
+                // 刚加载的集合又被淘汰，不能返回错误的点赞状态
+                throw new ServiceUnavailableException("点赞状态加载失败，请稍后再试");
+            }
+        }
+        return result != null && result == 1;
+    }
+
+    /**
+     * 用户是否已点赞（含尚未刷新到数据库的操作）
+     */
+    public boolean isLiked(Long reviewId, Long userId) {
+        String setKey = LIKE_SET_PREFIX + reviewId;
+        if (Boolean.FALSE.equals(stringRedisTemplate.hasKey(setKey))) {
+            load(reviewId);
+        }
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(setKey, String.valueOf(userId)));
+    }
+
+    /**
+     * 批量读取评论的实时点赞数和当前用户的点赞状态，一次管道往返完成
+     * 只返回集合已加载到Redis的评论，未加载的评论由调用方使用数据库中的数据
+     */
+    public Map<Long, LikeState> getLoadedStates(List<Long> reviewIds, Long userId) {
+        if (reviewIds.isEmpty()) {
+            return Map.of();
+        }
+        String member = userId == null ? null : String.valueOf(userId);
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (Long reviewId : reviewIds) {
+                conn.sCard(LIKE_SET_PREFIX + reviewId);
+                if (member != null) {
+                    conn.sIsMember(LIKE_SET_PREFIX + reviewId, member);
+                }
+            }
+            return null;
+        });
+
+        int step = member == null ? 1 : 2;
+        Map<Long, LikeState> states = new HashMap<>();
+        for (int i = 0; i < reviewIds.size(); i++) {
+            Long size = (Long) results.get(i * step);
+            // 集合不存在说明尚未加载，已加载的集合至少包含占位成员
+            if (size == null || size == 0) {
+                continue;
+            }
+            boolean liked = member != null && Boolean.TRUE.equals(results.get(i * step + 1));
+            states.put(reviewIds.get(i), new LikeState((int) (size - 1), liked));
+        }
+        return states;
+    }
+
+    /**
+     * 定时把缓冲的点赞操作批量写入数据库
+     */
+    @Scheduled(fixedDelayString = "${likes.flush-interval-ms:5000}")
+    public void flush() {
+        String token = redisLock.tryLock(FLUSH_LOCK_KEY, Duration.ofSeconds(60));
+        if (token == null) {
+            return;
+        }
+        try {
+            Long hasWork = stringRedisTemplate.execute(SNAPSHOT_SCRIPT, List.of(PENDING_KEY, FLUSHING_KEY));
+            if (hasWork == null || hasWork == 0) {
+                return;
+            }
+
+            Map<Object, Object> pending = stringRedisTemplate.opsForHash().entries(FLUSHING_KEY);
+            List<Like> toInsert = new ArrayList<>();
+            List<Like> toDelete = new ArrayList<>();
+            Set<Long> touchedReviews = new HashSet<>();
+            for (Map.Entry<Object, Object> entry : pending.entrySet()) {
+                String[] ids = entry.getKey().toString().split(":");
+                Like like = Like.builder()
+                        .reviewId(Long.valueOf(ids[0]))
+                        .userId(Long.valueOf(ids[1]))
+                        .type(entry.getValue().toString())
+                        .build();
+                touchedReviews.add(like.getReviewId());
+                if (UNLIKED.equals(like.getType())) {
+                    toDelete.add(like);
+                } else {
+                    toInsert.add(like);
+                }
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                for (List<Like> batch : partition(toInsert)) {
+                    likeMapper.batchInsertIgnore(batch);
+                }
+                for (List<Like> batch : partition(toDelete)) {
+                    likeMapper.batchDelete(batch);
+                }
+                for (List<Long> batch : partition(new ArrayList<>(touchedReviews))) {
+                    reviewMapper.refreshLikeCounts(batch);
+                }
+            });
+
+            // 数据库提交成功后才删除快照，失败时保留以便下次回放；先推进代数，正在重建的集合会重新读取数据库
+            stringRedisTemplate.opsForValue().increment(FLUSH_GENERATION_KEY);
+            stringRedisTemplate.delete(FLUSHING_KEY);
+            log.info("点赞缓冲刷新完成: 新增{}条, 取消{}条, 涉及{}条评论",
+                    toInsert.size(), toDelete.size(), touchedReviews.size());
+        } catch (Exception e) {
+            log.error("点赞缓冲刷新失败，将在下次重试: {}", e.getMessage());
+        } finally {
+            // 只释放自己持有的锁，刷新超过锁有效期时不会删掉其他节点的锁
+            redisLock.unlock(FLUSH_LOCK_KEY, token);
+        }
+    }
+
+    private Long runToggle(String setKey, Long userId, String field, String likeType) {
+        return stringRedisTemplate.execute(TOGGLE_SCRIPT, List.of(setKey, PENDING_KEY),
+                String.valueOf(userId), field, likeType, UNLIKED, String.valueOf(setTtlMillis()));
+    }
+
+    /**
+     * 从数据库重建点赞集合，多次重试后仍与刷新冲突时抛出异常，不能让调用方把未加载的集合当作无人点赞
+     */
+    private void load(Long reviewId) {
+        List<String> keys = List.of(LIKE_SET_PREFIX + reviewId, FLUSHING_KEY, PENDING_KEY, FLUSH_GENERATION_KEY);
+        for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+            String generation = stringRedisTemplate.opsForValue().get(FLUSH_GENERATION_KEY);
+            List<Long> userIds = likeMapper.findUserIdsByReviewId(reviewId);
+            Object[] args = new Object[userIds.size() + 5];
+            args[0] = generation == null ? "0" : generation;
+            args[1] = reviewId + ":";
+            args[2] = String.valueOf(setTtlMillis());
+            args[3] = String.valueOf(LOAD_CHUNK_SIZE);
+            args[4] = LOADED_MARKER;
+            for (int i = 0; i < userIds.size(); i++) {
+                args[i + 5] = String.valueOf(userIds.get(i));
+            }
+            Long result = stringRedisTemplate.execute(LOAD_SCRIPT, keys, args);
+            if (result == null || result >= 0) {
+                return;
+            }
+        }
+        log.warn("重建点赞集合时刷新频繁提交，放弃加载: 评论{}", reviewId);
+        throw new ServiceUnavailableException("点赞状态加载失败，请稍后再试");
+    }
+
+    private long setTtlMillis() {
+        return setTtlSeconds * 1000;
+    }
+
+    /**
+     * 评论的点赞数及当前用户是否已点赞
+     */
+    public record LikeState(int likeCount, boolean liked) {
+    }
+
+    private static <T> List<List<T>> partition(List<T> items) {
+        List<List<T>> batches = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += FLUSH_BATCH_SIZE) {
+            batches.add(items.subList(i, Math.min(i + FLUSH_BATCH_SIZE, items.size())));
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,147 @@
+package com.foodmap.service.impl;
+
+import com.foodmap.entity.dto.ReviewDTO;
+import com.foodmap.entity.pojo.Shop;
+import com.foodmap.entity.pojo.User;
+import com.foodmap.mapper.LikeMapper;
+import com.foodmap.mapper.ShopMapper;
+import com.foodmap.mapper.UserMapper;
+import com.foodmap.util.RedisCacheUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 评论列表组装
+ * 评论查询只读reviews表，用户名、头像、餐厅名按页内去重后从两级缓存批量获取（一次MGET），
+ * 未命中的一次IN查询补齐并流水线回写缓存；
+ * 点赞数和当前用户点赞状态优先取点赞缓冲中的实时数据
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReviewHydrator {
+
+    static final String USER_BRIEF_PREFIX = "users:brief:";
+    static final String SHOP_BRIEF_PREFIX = "shops:brief:";
+
+    private final UserMapper userMapper;
+    private final ShopMapper shopMapper;
+    private final LikeMapper likeMapper;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final RedisCacheUtil cacheUtil;
+
+    /**
+     * 补齐评论的展示字段
+     * @param currentUserId 当前登录用户，未登录为null
+     */
+    public void hydrate(List<ReviewDTO> reviews, Long currentUserId) {
+        if (reviews == null || reviews.isEmpty()) {
+            return;
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> shopIds = new HashSet<>();
+        List<Long> reviewIds = new ArrayList<>(reviews.size());
+        for (ReviewDTO review : reviews) {
+            userIds.add(review.getUserId());
+            shopIds.add(review.getRestaurantId());
+            reviewIds.add(review.getId());
+        }
+
+        Map<Long, User> users = loadUsers(userIds);
+        Map<Long, String> shopNames = loadShopNames(shopIds);
+        Map<Long, LikeWriteBuffer.LikeState> likeStates = loadLikeStates(reviewIds, currentUserId);
+
+        // 点赞集合未加载的评论，再按数据库判断当前用户是否点赞
+        Set<Long> likedInDb = Set.of();
+        if (currentUserId != null && likeStates.size() < reviewIds.size()) {
+            List<Long> unloaded = reviewIds.stream().filter(id -> !likeStates.containsKey(id)).toList();
+            likedInDb = new HashSet<>(likeMapper.findLikedReviewIds(currentUserId, unloaded));
+        }
+
+        for (ReviewDTO review : reviews) {
+            User user = users.get(review.getUserId());
+            if (user != null) {
+                review.setUsername(user.getUserName());
+                review.setUserAvatar(user.getPhone());
+            }
+            review.setRestaurantName(shopNames.get(review.getRestaurantId()));
+
+            LikeWriteBuffer.LikeState state = likeStates.get(review.getId());
+            if (state != null) {
+                review.setLikeCount(state.likeCount());
+                review.setUserLiked(state.liked());
+            } else {
+                review.setUserLiked(likedInDb.contains(review.getId()));
+            }
+        }
+    }
+
+    /**
+     * 补齐单条评论
+     */
+    public void hydrate(ReviewDTO review, Long currentUserId) {
+        if (review != null) {
+            hydrate(List.of(review), currentUserId);
+        }
+    }
+
+    private Map<Long, User> loadUsers(Set<Long> userIds) {
+        Map<Long, User> result = new HashMap<>();
+        List<Long> ids = new ArrayList<>(userIds);
+        List<Object> cached = cacheUtil.multiGet(ids.stream().map(id -> USER_BRIEF_PREFIX + id).toList());
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (cached.get(i) != null) {
+                result.put(ids.get(i), (User) cached.get(i));
+            } else {
+                missing.add(ids.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, Object> toCache = new HashMap<>();
+            for (User user : userMapper.selectBriefByIds(missing)) {
+                result.put(user.getUserId(), user);
+                toCache.put(USER_BRIEF_PREFIX + user.getUserId(), user);
+            }
+            cacheUtil.multiSet(toCache);
+        }
+        return result;
+    }
+
+    private Map<Long, String> loadShopNames(Set<Long> shopIds) {
+        Map<Long, String> result = new HashMap<>();
+        List<Long> ids = new ArrayList<>(shopIds);
+        List<Object> cached = cacheUtil.multiGet(ids.stream().map(id -> SHOP_BRIEF_PREFIX + id).toList());
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (cached.get(i) != null) {
+                result.put(ids.get(i), (String) cached.get(i));
+            } else {
+                missing.add(ids.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, Object> toCache = new HashMap<>();
+            for (Shop shop : shopMapper.selectBriefByIds(missing)) {
+                result.put(shop.getShopId(), shop.getShopName());
+                toCache.put(SHOP_BRIEF_PREFIX + shop.getShopId(), shop.getShopName());
+            }
+            cacheUtil.multiSet(toCache);
+        }
+        return result;
+    }
+
+    private Map<Long, LikeWriteBuffer.LikeState> loadLikeStates(List<Long> reviewIds, Long currentUserId) {
+        try {
+            return likeWriteBuffer.getLoadedStates(reviewIds, currentUserId);
+        } catch (Exception e) {
+            // Redis不可用时退回数据库中的点赞数
+            log.error("读取点赞缓冲失败: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.foodmap.service.impl;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.foodmap.entity.dto.CursorPage;
 import com.foodmap.entity.dto.ReviewCreateDTO;
 import com.foodmap.entity.dto.ReviewDTO;
 import com.foodmap.entity.dto.ReviewUpdateDTO;
@@ -14,14 +15,18 @@ import com.foodmap.mapper.ReviewMapper;
 import com.foodmap.mapper.ShopMapper;
 import com.foodmap.service.ReviewService;
 import com.foodmap.service.UserService;
+import com.foodmap.service.event.ReviewRatingChangedEvent;
+import com.foodmap.util.ReviewCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -29,9 +34,14 @@ import java.util.Map;
 @Slf4j
 public class ReviewServiceImpl implements ReviewService {
 
+    // 游标分页单页最大条数
+    private static final int MAX_FEED_SIZE = 50;
+
     private final ReviewMapper reviewMapper;
     private final ShopMapper shopMapper;
     private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReviewHydrator reviewHydrator;
 
     @Override
     @Transactional
@@ -61,6 +71,9 @@ public class ReviewServiceImpl implements ReviewService {
         // 6. 保存评论
         reviewMapper.insert(review);
 
+        // 提交后累加到商铺评分
+        eventPublisher.publishEvent(ReviewRatingChangedEvent.added(review));
+
         // 7. 返回结果
         return toReviewDTO(review);
     }
@@ -111,15 +124,29 @@ public class ReviewServiceImpl implements ReviewService {
             throw new UnauthorizedException("您无权修改此评论");
         }
 
+        Review before = Review.builder()
+                .restaurantId(review.getRestaurantId())
+                .compositeScore(review.getCompositeScore())
+                .environmentScore(review.getEnvironmentScore())
+                .serviceScore(review.getServiceScore())
+                .tasteScore(review.getTasteScore())
+                .build();
+
         review.setContent(dto.getContent());
         review.setCompositeScore(dto.getScore());
+        // 清空后由MyMetaObjectHandler填充当前时间，否则会把读到的旧updatedAt原样写回，情感分析水位感知不到修改
+        review.setUpdatedAt(null);
 
         reviewMapper.updateById(review);
 
-        // 更新餐厅评分
-        updateShopRatings(review.getRestaurantId());
+        // 更新餐厅评分（只发布评分增量）
+        if (Review.STATUS_ACTIVE.equals(review.getStatus())) {
+            eventPublisher.publishEvent(ReviewRatingChangedEvent.changed(before, review));
+        }
 
-        return reviewMapper.getReviewById(reviewId, currentUser.getUserId());
+        ReviewDTO result = reviewMapper.getReviewById(reviewId);
+        reviewHydrator.hydrate(result, currentUser.getUserId());
+        return result;
     }
 
     @Override
@@ -136,11 +163,15 @@ public class ReviewServiceImpl implements ReviewService {
             throw new UnauthorizedException("您无权删除此评论");
         }
 
+        boolean wasActive = Review.STATUS_ACTIVE.equals(review.getStatus());
         review.setStatus(Review.STATUS_DELETED);
+        review.setUpdatedAt(null);
         reviewMapper.updateById(review);
 
-        // 更新餐厅评分
-        updateShopRatings(review.getRestaurantId());
+        // 更新餐厅评分（只发布评分增量）
+        if (wasActive) {
+            eventPublisher.publishEvent(ReviewRatingChangedEvent.removed(review));
+        }
     }
 
     @Override
@@ -154,7 +185,9 @@ public class ReviewServiceImpl implements ReviewService {
         User currentUser = userService.getCurrentUserOptional().orElse(null);
         Long userId = currentUser != null ? currentUser.getUserId() : null;
 
-        return reviewMapper.getReviewsByRestaurant(page, restaurantId, userId);
+        IPage<ReviewDTO> result = reviewMapper.getReviewsByRestaurant(page, restaurantId);
+        reviewHydrator.hydrate(result.getRecords(), userId);
+        return result;
     }
 
     @Override
@@ -168,7 +201,59 @@ public class ReviewServiceImpl implements ReviewService {
         User currentUser = userService.getCurrentUserOptional().orElse(null);
         Long currentUserId = currentUser != null ? currentUser.getUserId() : null;
 
-        return reviewMapper.getReviewsByUser(page, userId, currentUserId);
+        IPage<ReviewDTO> result = reviewMapper.getReviewsByUser(page, userId);
+        reviewHydrator.hydrate(result.getRecords(), currentUserId);
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ReviewDTO> getReviewFeedByRestaurant(Long restaurantId, String cursor, int size) {
+        Shop shop = shopMapper.selectById(restaurantId);
+        if (shop == null) {
+            throw new ResourceNotFoundException("餐厅不存在");
+        }
+
+        ReviewCursor after = ReviewCursor.decode(cursor);
+        int limit = normalizeFeedSize(size);
+        Long currentUserId = userService.getCurrentUserOptional().map(User::getUserId).orElse(null);
+
+        List<ReviewDTO> rows = reviewMapper.getReviewFeedByRestaurant(restaurantId,
+                after == null ? null : after.createdAt(), after == null ? null : after.id(), limit + 1);
+        return toCursorPage(rows, limit, currentUserId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ReviewDTO> getReviewFeedByUser(Long userId, String cursor, int size) {
+        if (userId == null) {
+            throw new ResourceNotFoundException("用户不存在");
+        }
+
+        ReviewCursor after = ReviewCursor.decode(cursor);
+        int limit = normalizeFeedSize(size);
+        Long currentUserId = userService.getCurrentUserOptional().map(User::getUserId).orElse(null);
+
+        List<ReviewDTO> rows = reviewMapper.getReviewFeedByUser(userId,
+                after == null ? null : after.createdAt(), after == null ? null : after.id(), limit + 1);
+        return toCursorPage(rows, limit, currentUserId);
+    }
+
+    private int normalizeFeedSize(int size) {
+        return Math.max(1, Math.min(size, MAX_FEED_SIZE));
+    }
+
+    // 多查的一条只用来判断是否还有下一页
+    private CursorPage<ReviewDTO> toCursorPage(List<ReviewDTO> rows, int limit, Long currentUserId) {
+        boolean hasMore = rows.size() > limit;
+        List<ReviewDTO> records = hasMore ? rows.subList(0, limit) : rows;
+        reviewHydrator.hydrate(records, currentUserId);
+        String nextCursor = null;
+        if (hasMore) {
+            ReviewDTO last = records.get(records.size() - 1);
+            nextCursor = new ReviewCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(records, nextCursor, hasMore);
     }
 
     @Override
@@ -177,10 +262,11 @@ public class ReviewServiceImpl implements ReviewService {
         User currentUser = userService.getCurrentUserOptional().orElse(null);
         Long userId = currentUser != null ? currentUser.getUserId() : null;
 
-        ReviewDTO review = reviewMapper.getReviewById(reviewId, userId);
+        ReviewDTO review = reviewMapper.getReviewById(reviewId);
         if (review == null) {
             throw new ResourceNotFoundException("评论不存在或已被删除");
         }
+        reviewHydrator.hydrate(review, userId);
 
         return review;
     }
@@ -194,6 +280,7 @@ public class ReviewServiceImpl implements ReviewService {
 
     /**
      * 更新所有商铺的评分数据
+     * 全表聚合，仅用于校准；日常评分由 {@link ShopRatingAggregator} 增量维护
      */
     @Override
     @Transactional
@@ -0,0 +1,158 @@
+package com.foodmap.service.impl;
+
+import com.foodmap.entity.pojo.Shop;
+import com.foodmap.mapper.ReviewMapper;
+import com.foodmap.mapper.ShopMapper;
+import com.foodmap.service.ShopService;
+import com.foodmap.service.event.ReviewRatingChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 商铺评分累加器
+ * 在Redis哈希中为每个商铺维护各评分维度的总分与评论数，评论变更时只累加增量，
+ * 再把算出的平均分写回shop表，读商铺时不再触发任何聚合或写操作。
+ * 评分变更只清除该商铺的详情缓存；商铺列表（按评分排序）不逐条失效，由定时任务合并刷新
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShopRatingAggregator {
+
+    private static final String KEY_PREFIX = "ratings:shop:";
+    private static final String[] FIELDS = {"compositeSum", "environmentSum", "serviceSum", "tasteSum", "reviewCount"};
+
+    // 累加器存在时原子累加各字段并返回最新值，不存在时返回空，由调用方从数据库初始化
+    private static final RedisScript<List> APPLY_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return {} end " +
+            "for i = 1, 5 do redis.call('HINCRBY', KEYS[1], ARGV[i * 2 - 1], ARGV[i * 2]) end " +
+            "return redis.call('HMGET', KEYS[1], ARGV[1], ARGV[3], ARGV[5], ARGV[7], ARGV[9])",
+            List.class);
+
+    // 仅在累加器不存在时写入初始值，返回最终生效的值
+    private static final RedisScript<List> SEED_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then " +
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2], ARGV[3], ARGV[4], ARGV[5], ARGV[6], ARGV[7], ARGV[8], ARGV[9], ARGV[10]) end " +
+            "return redis.call('HMGET', KEYS[1], ARGV[1], ARGV[3], ARGV[5], ARGV[7], ARGV[9])",
+            List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ReviewMapper reviewMapper;
+    private final ShopMapper shopMapper;
+    private final ShopService shopService;
+
+    // 上次刷新后是否有商铺评分发生变化
+    private final AtomicBoolean listDirty = new AtomicBoolean();
+
+    /**
+     * 评论事务提交后累加评分增量
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReviewRatingChanged(ReviewRatingChangedEvent event) {
+        if (event.getRestaurantId() == null || event.isEmpty()) {
+            return;
+        }
+
+        Long shopId = event.getRestaurantId();
+        try {
+            String key = KEY_PREFIX + shopId;
+            List<?> totals = stringRedisTemplate.execute(APPLY_SCRIPT, List.of(key),
+                    FIELDS[0], String.valueOf(event.getCompositeDelta()),
+                    FIELDS[1], String.valueOf(event.getEnvironmentDelta()),
+                    FIELDS[2], String.valueOf(event.getServiceDelta()),
+                    FIELDS[3], String.valueOf(event.getTasteDelta()),
+                    FIELDS[4], String.valueOf(event.getCountDelta()));
+
+            if (totals == null || totals.isEmpty()) {
+                // 首次出现该商铺：数据库中已包含本次提交的变更，直接以数据库为准初始化
+                totals = seed(shopId);
+            }
+
+            writeRatings(shopId, totals);
+        } catch (Exception e) {
+            log.error("累加商铺评分失败, 商铺ID: {}, 错误: {}", shopId, e.getMessage());
+        }
+    }
+
+    /**
+     * 合并刷新商铺列表缓存，评分变化最多延迟一个周期反映到列表
+     */
+    @Scheduled(fixedDelayString = "${ratings.list-refresh-millis:30000}")
+    public void refreshShopLists() {
+        if (listDirty.getAndSet(false)) {
+            shopService.evictShopListCache();
+        }
+    }
+
+    /**
+     * 每天凌晨以数据库为准全量校准一次，修正初始化并发等极端情况下的累计误差
+     */
+    @Scheduled(cron = "${ratings.reconcile-cron:0 30 4 * * *}")
+    public void reconcile() {
+        int updated = reviewMapper.updateAllShopsRatings();
+
+        // 清空累加器，下次变更时重新从数据库初始化
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(500).build();
+        List<String> keys = new ArrayList<>();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            cursor.forEachRemaining(keys::add);
+        }
+        if (!keys.isEmpty()) {
+            stringRedisTemplate.delete(keys);
+        }
+        shopService.evictShopListCache();
+        log.info("商铺评分校准完成, 更新{}家商铺, 重置{}个累加器", updated, keys.size());
+    }
+
+    private List<?> seed(Long shopId) {
+        Map<String, Object> row = reviewMapper.selectShopRatingTotals(shopId);
+        String[] args = new String[FIELDS.length * 2];
+        for (int i = 0; i < FIELDS.length; i++) {
+            Object value = row == null ? null : row.get(FIELDS[i]);
+            args[i * 2] = FIELDS[i];
+            args[i * 2 + 1] = value == null ? "0" : String.valueOf(((Number) value).longValue());
+        }
+        return stringRedisTemplate.execute(SEED_SCRIPT, List.of(KEY_PREFIX + shopId), (Object[]) args);
+    }
+
+    private void writeRatings(Long shopId, List<?> totals) {
+        long count = toLong(totals.get(4));
+
+        Shop shop = new Shop();
+        shop.setShopId(shopId);
+        shop.setReviewCount(Math.max(count, 0));
+        shop.setCompositeScore(average(toLong(totals.get(0)), count));
+        shop.setEnvironmentScore(average(toLong(totals.get(1)), count));
+        shop.setServiceScore(average(toLong(totals.get(2)), count));
+        shop.setTasteScore(average(toLong(totals.get(3)), count));
+
+        shopMapper.updateRatings(shop);
+        shopService.evictShopCache(shopId);
+        listDirty.set(true);
+    }
+
+    // 与原SQL的 ROUND(AVG(x), 1) 保持一致
+    private static Float average(long sum, long count) {
+        if (count <= 0) {
+            return 0f;
+        }
+        return Math.round(sum * 10.0 / count) / 10.0f;
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+}
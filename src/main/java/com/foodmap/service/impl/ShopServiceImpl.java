@@ -9,9 +9,11 @@ import com.foodmap.entity.pojo.Shop;
 import com.foodmap.entity.dto.ShopAuthInfo;
 import com.foodmap.exception.*;
 import com.foodmap.security.service.JwtUserDetailsService;
+import com.foodmap.security.service.PrincipalCache;
 import com.foodmap.service.ShopService;
 import com.foodmap.util.RedisCacheUtil;
 import com.foodmap.util.SecurityUtil;
+import com.foodmap.util.SingleFlightLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,22 +21,31 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class ShopServiceImpl extends ServiceImpl<ShopMapper,Shop> implements ShopService {
     private static final Logger log = LoggerFactory.getLogger(ShopServiceImpl.class);
 
+    // 商铺列表缓存命名空间，任何商铺变更都使整个命名空间失效
+    private static final String SHOP_LIST_NAMESPACE = "shops:list";
+
     private static final org.junit.platform.commons.logging.Logger logger = org.junit.platform.commons.logging.LoggerFactory.getLogger(JwtUserDetailsService.class);
 
 
     private final ShopMapper shopMapper;
     private final RedisCacheUtil cacheUtil;
+    private final SingleFlightLoader cacheLoader;
+    private final PrincipalCache principalCache;
 
     @Autowired
-    public ShopServiceImpl(ShopMapper shopMapper, RedisCacheUtil cacheUtil) {
+    public ShopServiceImpl(ShopMapper shopMapper, RedisCacheUtil cacheUtil, SingleFlightLoader cacheLoader,
+                           PrincipalCache principalCache) {
         this.shopMapper = shopMapper;
         this.cacheUtil = cacheUtil;
+        this.cacheLoader = cacheLoader;
+        this.principalCache = principalCache;
     }
 
     // 商铺注册 (不变，但添加缓存清理)
@@ -54,8 +65,12 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper,Shop> implements Sho
             throw new BadRequestException("商铺注册失败");
         }
 
+        // 清除此前查询留下的空值缓存，同时通知布隆过滤器
+        cacheUtil.delete("shops:id:" + shop.getShopId());
+        cacheUtil.delete("shops:name:" + shop.getShopName());
+
         // 清除商铺列表缓存
-        cacheUtil.deleteByPattern("shops:list:*");
+        cacheUtil.invalidateNamespace(SHOP_LIST_NAMESPACE);
     }
 
     @Override
@@ -82,33 +97,28 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper,Shop> implements Sho
         }
 
         // 构建缓存key
-        String cacheKey = "shops:list:" + (category == null ? "all" : category) + ":"
-                + (district == null ? "all" : district) + ":" + sortField;
-
-        // 尝试从缓存获取
-        Object cachedData = cacheUtil.get(cacheKey);
-        if (cachedData != null) {
-            return (List<Shop>) cachedData;
-        }
-
-        // 缓存未命中，从数据库获取
-        List<Shop> shops = shopMapper.selectShopList(category, district, sortField);
-
-        // 记录数据完整性检查
-        if (shops != null && !shops.isEmpty()) {
-            Shop firstShop = shops.getFirst();
-            log.info("数据库获取商铺列表，第一个商铺: id={}, name={}, address={}",
-                    firstShop.getShopId(),
-                    firstShop.getShopName(),
-                    firstShop.getAddress());
-        }
-
-        // 存入缓存
-        if (shops != null && !shops.isEmpty()) {
-            cacheUtil.set(cacheKey, shops);
-        }
-
-        return shops;
+        String cacheKey = cacheUtil.namespacedKey(SHOP_LIST_NAMESPACE,
+                (category == null ? "all" : category) + ":"
+                        + (district == null ? "all" : district) + ":" + sortField);
+
+        // 缓存未命中时同一key只回源一次，并发请求等待同一结果
+        String sort = sortField;
+        List<Shop> shops = cacheLoader.get(cacheKey, () -> {
+            List<Shop> loaded = shopMapper.selectShopList(category, district, sort);
+
+            // 记录数据完整性检查
+            if (loaded != null && !loaded.isEmpty()) {
+                Shop firstShop = loaded.getFirst();
+                log.info("数据库获取商铺列表，第一个商铺: id={}, name={}, address={}",
+                        firstShop.getShopId(),
+                        firstShop.getShopName(),
+                        firstShop.getAddress());
+            }
+            // 空列表按空值短期缓存
+            return loaded == null || loaded.isEmpty() ? null : loaded;
+        });
+
+        return shops != null ? shops : new ArrayList<>();
     }
 
     // 获取商铺详情 (添加缓存)
@@ -121,25 +131,19 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper,Shop> implements Sho
         // 构建缓存key
         String cacheKey = "shops:id:" + shopId;
 
-        // 尝试从缓存获取
-        Object cachedData = cacheUtil.get(cacheKey);
-        if (cachedData != null) {
-            return (Shop) cachedData;
-        }
-
-        // 缓存未命中，从数据库获取
-        Shop shop = shopMapper.selectById(shopId);
+        // 缓存未命中时同一key只回源一次，并发请求等待同一结果
+        Shop shop = cacheLoader.get(cacheKey, () -> {
+            Shop loaded = shopMapper.selectById(shopId);
+            if (loaded != null) {
+                log.info("数据库获取商铺详情: id={}, name={}, address={}",
+                        loaded.getShopId(), loaded.getShopName(), loaded.getAddress());
+            }
+            return loaded;
+        });
         if (shop == null) {
             throw new NotFoundException("商铺不存在");
         }
 
-        // 记录日志
-        log.info("数据库获取商铺详情: id={}, name={}, address={}",
-                shop.getShopId(), shop.getShopName(), shop.getAddress());
-
-        // 存入缓存
-        cacheUtil.set(cacheKey, shop);
-
         return shop;
     }
 
@@ -151,7 +155,8 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper,Shop> implements Sho
         }
 
         // 先检查商铺是否存在
-        if (shopMapper.selectById(shopId) == null) {
+        Shop existing = shopMapper.selectById(shopId);
+        if (existing == null) {
             throw new NotFoundException("商铺不存在");
         }
 
@@ -165,7 +170,11 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper,Shop> implements Sho
 
         // 清除相关缓存
         cacheUtil.delete("shops:id:" + shopId);
-        cacheUtil.deleteByPattern("shops:list:*");
+        cacheUtil.delete("shops:name:" + existing.getShopName());
+        cacheUtil.invalidateNamespace(SHOP_LIST_NAMESPACE);
+
+        // 状态变更后此前签发的令牌不再有效
+        principalCache.revokeShop(existing.getShopName());
     }
 
     // 更新商铺信息 (添加缓存清理)
@@ -175,6 +184,10 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper,Shop> implements Sho
  */
 @Override
 public boolean updateShopInfo(ShopInfoUpdateDTO dto) {
+    // 改名或改状态时需要原名称清除缓存并吊销令牌
+    ShopAuthInfo before = dto.getShopName() != null || dto.getStatus() != null
+            ? shopMapper.selectShopAuthInfo(dto.getShopId()) : null;
+
     // 1. 创建更新条件包装器
     UpdateWrapper<Shop> updateWrapper = new UpdateWrapper<>();
 
@@ -199,7 +212,17 @@ public boolean updateShopInfo(ShopInfoUpdateDTO dto) {
     // 5. 如果需要清除缓存，可以添加缓存清理代码
     if (updated && cacheUtil != null) {
         cacheUtil.delete("shops:id:" + dto.getShopId());
-        cacheUtil.deleteByPattern("shops:list:*");
+        cacheUtil.delete("shops:brief:" + dto.getShopId());
+        if (dto.getShopName() != null) {
+            // 新名称可能有空值缓存
+            cacheUtil.delete("shops:name:" + dto.getShopName());
+        }
+        if (before != null) {
+            cacheUtil.delete("shops:name:" + before.getShopName());
+            // 令牌主体是原名称，改名或改状态后原令牌不再有效
+            principalCache.revokeShop(before.getShopName());
+        }
+        cacheUtil.invalidateNamespace(SHOP_LIST_NAMESPACE);
     }
 
     return updated;
@@ -216,27 +239,21 @@ public boolean updateShopInfo(ShopInfoUpdateDTO dto) {
         // 构建缓存key
         String cacheKey = "shops:name:" + shopName;
 
-        // 尝试从缓存获取
-        Object cachedData = cacheUtil.get(cacheKey);
-        if (cachedData != null) {
-            return (Shop) cachedData;
-        }
-
-        // 从数据库查询商铺信息
-        Shop shop = shopMapper.selectByShopName(shopName);
+        // 缓存未命中时同一key只回源一次，并发请求等待同一结果
+        Shop shop = cacheLoader.get(cacheKey, () -> {
+            Shop loaded = shopMapper.selectByShopName(shopName);
+            if (loaded != null) {
+                log.info("数据库获取商铺详情(按名称): id={}, name={}, address={}",
+                        loaded.getShopId(), loaded.getShopName(), loaded.getAddress());
+            }
+            return loaded;
+        });
 
         // 商铺不存在时的处理
         if (shop == null) {
             throw new NotFoundException("商铺不存在");
         }
 
-        // 记录日志
-        log.info("数据库获取商铺详情(按名称): id={}, name={}, address={}",
-                shop.getShopId(), shop.getShopName(), shop.getAddress());
-
-        // 存入缓存
-        cacheUtil.set(cacheKey, shop);
-
         return shop;
     }
 
@@ -268,9 +285,9 @@ public boolean updateShopInfo(ShopInfoUpdateDTO dto) {
         }
 
         // 清除相关缓存
-        cacheUtil.delete("shops:id:" + shopId);
-        cacheUtil.delete("shops:name:" + shopName);
-        cacheUtil.deleteByPattern("shops:list:*");
+        cacheUtil.delete(List.of("shops:id:" + shopId, "shops:name:" + shopName, "shops:brief:" + shopId));
+        cacheUtil.invalidateNamespace(SHOP_LIST_NAMESPACE);
+        principalCache.revokeShop(shopName);
     }
 
     //更新商铺密码
@@ -322,6 +339,26 @@ public boolean updateShopInfo(ShopInfoUpdateDTO dto) {
         cacheUtil.delete("shops:id:" + shopId);
         cacheUtil.delete("shops:name:" + shop.getShopName());
 
+        // 密码修改后此前签发的令牌不再有效
+        principalCache.revokeShop(shop.getShopName());
+
         log.info("商铺 {} ({}) 密码修改成功", shopId, shop.getShopName());
     }
+
+    // 清除商铺详情缓存，按名称的缓存中同样保存着评分，一并清除
+    @Override
+    public void evictShopCache(Long shopId) {
+        List<String> keys = new ArrayList<>(List.of("shops:id:" + shopId, "shops:brief:" + shopId));
+        ShopAuthInfo info = shopMapper.selectShopAuthInfo(shopId);
+        if (info != null) {
+            keys.add("shops:name:" + info.getShopName());
+        }
+        cacheUtil.delete(keys);
+    }
+
+    // 清除商铺列表缓存
+    @Override
+    public void evictShopListCache() {
+        cacheUtil.invalidateNamespace(SHOP_LIST_NAMESPACE);
+    }
 }
\ No newline at end of file
@@ -7,10 +7,12 @@ import com.foodmap.exception.BadRequestException;
 import com.foodmap.exception.NotFoundException;
 import com.foodmap.exception.UnauthorizedException;
 import com.foodmap.mapper.UserMapper;
+import com.foodmap.security.service.PrincipalCache;
 import com.foodmap.entity.pojo.User;
 import com.foodmap.service.UserService;
 import com.foodmap.util.RedisCacheUtil;
 import com.foodmap.util.SecurityUtil;
+import com.foodmap.util.SingleFlightLoader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +24,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -30,12 +33,17 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
     private final UserMapper userMapper;
     private final RedisCacheUtil cacheUtil;
+    private final SingleFlightLoader cacheLoader;
+    private final PrincipalCache principalCache;
 
     // 修改构造函数，添加RedisCacheUtil
     @Autowired
-    public UserServiceImpl(UserMapper userMapper, RedisCacheUtil cacheUtil) {
+    public UserServiceImpl(UserMapper userMapper, RedisCacheUtil cacheUtil, SingleFlightLoader cacheLoader,
+                           PrincipalCache principalCache) {
         this.userMapper = userMapper;
         this.cacheUtil = cacheUtil;
+        this.cacheLoader = cacheLoader;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -55,27 +63,24 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
         // 插入用户
         userMapper.insertUser(user);
+
+        // 清除此前查询留下的空值缓存，同时通知布隆过滤器
+        cacheUtil.delete("users:name:" + user.getUserName());
     }
 
     @Override
     public User login(String username, String rawPassword) {
         // 尝试从缓存获取用户信息
         String cacheKey = "users:name:" + username;
-        Object cachedData = cacheUtil.get(cacheKey);
-        User user;
-
-        if (cachedData != null) {
-            user = (User) cachedData;
-            log.info("缓存命中: 用户 {}", username);
-        } else {
-            // 缓存未命中，从数据库查询
-            user = userMapper.selectByUsername(username);
-            if (user == null) throw new IllegalArgumentException("用户不存在");
-
-            // 写入缓存
-            cacheUtil.set(cacheKey, user);
-            log.info("数据库查询并缓存: 用户 {}", user.getUserName());
-        }
+        // 与getUserByName共用缓存，不存在的用户名会缓存空值
+        User user = cacheLoader.get(cacheKey, () -> {
+            User loaded = userMapper.selectByUsername(username);
+            if (loaded != null) {
+                log.info("数据库查询并缓存: 用户 {}", loaded.getUserName());
+            }
+            return loaded;
+        });
+        if (user == null) throw new IllegalArgumentException("用户不存在");
 
         // 验证密码 - 保持原有逻辑
         if (!SecurityUtil.checkPassword(rawPassword, user.getPassword())) {
@@ -94,25 +99,20 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         // 构建缓存key
         String cacheKey = "users:name:" + username;
 
-        // 尝试从缓存获取
-        Object cachedData = cacheUtil.get(cacheKey);
-        if (cachedData != null) {
-            log.info("从缓存获取用户信息: {}", username);
-            return (User) cachedData;
-        }
-
-        // 从数据库查询用户信息
-        User user = userMapper.selectByUsername(username);
+        // 缓存未命中时同一key只回源一次，并发请求等待同一结果
+        User user = cacheLoader.get(cacheKey, () -> {
+            User loaded = userMapper.selectByUsername(username);
+            if (loaded != null) {
+                log.info("数据库获取用户信息并缓存: {}", username);
+            }
+            return loaded;
+        });
 
         // 用户不存在时的处理
         if (user == null) {
             throw new IllegalArgumentException("用户不存在");
         }
 
-        // 存入缓存
-        cacheUtil.set(cacheKey, user);
-        log.info("数据库获取用户信息并缓存: {}", username);
-
         return user;
     }
 
@@ -171,9 +171,11 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             throw new BadRequestException("密码更新失败");
         }
 
-        // 清除相关缓存
-        cacheUtil.delete("users:id:" + userId);
-        cacheUtil.delete("users:name:" + user.getUserName());
+        // 清除相关缓存（含评论列表使用的用户简要信息）
+        cacheUtil.delete(List.of("users:id:" + userId, "users:brief:" + userId, "users:name:" + user.getUserName()));
+
+        // 密码修改后此前签发的令牌不再有效
+        principalCache.revoke(user.getUserName());
 
         log.info("用户 {} ({}) 密码修改成功", userId, user.getUserName());
     }
@@ -0,0 +1,29 @@
+package com.foodmap.util;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订阅缓存失效频道，收到其他节点的删除通知后清除本地缓存
+ */
+@Component
+public class CacheInvalidationListener implements MessageListener {
+
+    private final RedisCacheUtil cacheUtil;
+
+    public CacheInvalidationListener(RedisCacheUtil cacheUtil) {
+        this.cacheUtil = cacheUtil;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        cacheUtil.onInvalidationMessage(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    public String getChannel() {
+        return cacheUtil.getInvalidationChannel();
+    }
+}
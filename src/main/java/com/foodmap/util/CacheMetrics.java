@@ -0,0 +1,146 @@
+package com.foodmap.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级缓存的监控指标，通过 /actuator/prometheus 暴露
+ * cache.requests: 按key前缀和命中层级（local/redis）统计命中、未命中次数
+ * cache.redis.latency: 按key前缀和操作统计Redis读写耗时，批量操作的前缀为batch
+ * cache.value.size: 按key前缀统计写入Redis的编码后字节数
+ * cache.invalidations: 按失效类型和来源（本节点/其他节点）统计失效次数；
+ * 本地缓存的大小、容量淘汰等由Caffeine统计，见 cache.size、cache.evictions（cache=local）
+ * key前缀取前两段（如 shops:id、shops:list），避免按完整key产生大量时间序列
+ */
+@Component
+public class CacheMetrics {
+
+    private static final String LOCAL_CACHE_NAME = "local";
+    private static final String BATCH_PREFIX = "batch";
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, PrefixMeters> prefixMeters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> invalidations = new ConcurrentHashMap<>();
+
+    public CacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 绑定本地缓存的大小、命中和淘汰统计，缓存需开启recordStats
+     */
+    public void monitorLocalCache(Cache<String, ?> localCache) {
+        CaffeineCacheMetrics.monitor(registry, localCache, LOCAL_CACHE_NAME);
+    }
+
+    public void recordLocalHit(String key) {
+        meters(prefixOf(key)).localHits.increment();
+    }
+
+    public void recordRedisGet(String key, boolean hit, long nanos) {
+        PrefixMeters meters = meters(prefixOf(key));
+        (hit ? meters.redisHits : meters.misses).increment();
+        meters.getLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSet(String key, int bytes, long nanos) {
+        PrefixMeters meters = meters(prefixOf(key));
+        meters.setLatency.record(nanos, TimeUnit.NANOSECONDS);
+        meters.valueSize.record(bytes);
+    }
+
+    /**
+     * 批量读取的命中统计按各key前缀记录，耗时记在batch前缀下
+     */
+    public void recordMultiGet(long nanos) {
+        meters(BATCH_PREFIX).getLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordMultiSet(long nanos) {
+        meters(BATCH_PREFIX).setLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRedisHit(String key) {
+        meters(prefixOf(key)).redisHits.increment();
+    }
+
+    public void recordMiss(String key) {
+        meters(prefixOf(key)).misses.increment();
+    }
+
+    public void recordValueSize(String key, int bytes) {
+        meters(prefixOf(key)).valueSize.record(bytes);
+    }
+
+    public void recordInvalidation(String type, boolean remote) {
+        String source = remote ? "remote" : "local";
+        invalidations.computeIfAbsent(type + "|" + source, k -> Counter.builder("cache.invalidations")
+                .tag("type", type)
+                .tag("source", source)
+                .register(registry)).increment();
+    }
+
+    static String prefixOf(String key) {
+        int first = key.indexOf(':');
+        if (first < 0) {
+            return "other";
+        }
+        int second = key.indexOf(':', first + 1);
+        return second < 0 ? key.substring(0, first) : key.substring(0, second);
+    }
+
+    private PrefixMeters meters(String prefix) {
+        return prefixMeters.computeIfAbsent(prefix, p -> new PrefixMeters(registry, p));
+    }
+
+    private static final class PrefixMeters {
+        final Counter localHits;
+        final Counter redisHits;
+        final Counter misses;
+        final Timer getLatency;
+        final Timer setLatency;
+        final DistributionSummary valueSize;
+
+        PrefixMeters(MeterRegistry registry, String prefix) {
+            this.localHits = requests(registry, prefix, "hit", "local");
+            this.redisHits = requests(registry, prefix, "hit", "redis");
+            this.misses = requests(registry, prefix, "miss", "redis");
+            this.getLatency = latency(registry, prefix, "get");
+            this.setLatency = latency(registry, prefix, "set");
+            this.valueSize = DistributionSummary.builder("cache.value.size")
+                    .baseUnit("bytes")
+                    .tag("prefix", prefix)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(64.0)
+                    .maximumExpectedValue(1024.0 * 1024)
+                    .register(registry);
+        }
+
+        private static Counter requests(MeterRegistry registry, String prefix, String result, String level) {
+            return Counter.builder("cache.requests")
+                    .tag("prefix", prefix)
+                    .tag("result", result)
+                    .tag("level", level)
+                    .register(registry);
+        }
+
+        private static Timer latency(MeterRegistry registry, String prefix, String operation) {
+            return Timer.builder("cache.redis.latency")
+                    .tag("prefix", prefix)
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100_000))
+                    .maximumExpectedValue(Duration.ofSeconds(1))
+                    .register(registry);
+        }
+    }
+}
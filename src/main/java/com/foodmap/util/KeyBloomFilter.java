@@ -0,0 +1,168 @@
+package com.foodmap.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 缓存key的布隆过滤器（可选）
+ * 启动时用数据库中已存在的商铺ID、商铺名、用户名对应的缓存key构建，判定不存在的key无需回源查库；
+ * 之后任何节点删除或失效这些key（注册、改名都会触发）时把key加入过滤器，保证新数据不会被误判为不存在。
+ * 过滤器只增不减，删除的数据由空值缓存兜底；构建完成前所有key都视为可能存在
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KeyBloomFilter {
+
+    private final RedisCacheUtil cacheUtil;
+
+    @Value("${cache.bloom.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cache.bloom.prefixes:shops:id:,shops:name:,users:name:}")
+    private String prefixes;
+
+    @Value("${cache.bloom.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${cache.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private List<String> prefixList;
+    private volatile Bits bits;
+    // 构建期间失效的key，构建完成后补入
+    private final List<String> pending = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        this.prefixList = Arrays.stream(prefixes.split(","))
+                .map(String::trim)
+                .filter(p -> !p.isEmpty())
+                .toList();
+        if (enabled) {
+            cacheUtil.addKeyInvalidationListener(this::put);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * key可能存在时返回true；未启用、尚未构建或key不在过滤范围内也返回true
+     */
+    public boolean mightContain(String key) {
+        Bits current = bits;
+        return current == null || !covers(key) || current.mightContain(key);
+    }
+
+    /**
+     * 用全量key重建过滤器
+     */
+    public void rebuild(List<String> keys) {
+        if (!enabled) {
+            return;
+        }
+        Bits rebuilt = new Bits(Math.max(expectedInsertions, keys.size()), falsePositiveRate);
+        keys.forEach(rebuilt::put);
+        synchronized (pending) {
+            pending.forEach(rebuilt::put);
+            pending.clear();
+            bits = rebuilt;
+        }
+        log.info("布隆过滤器构建完成，共{}个key，{}位，{}个哈希函数", keys.size(), rebuilt.bitCount, rebuilt.hashCount);
+    }
+
+    private void put(String key) {
+        if (!covers(key)) {
+            return;
+        }
+        synchronized (pending) {
+            Bits current = bits;
+            if (current == null) {
+                pending.add(key);
+            } else {
+                current.put(key);
+            }
+        }
+    }
+
+    private boolean covers(String key) {
+        for (String prefix : prefixList) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 位数组，按期望数量和误判率计算位数与哈希函数个数，两个64位哈希组合出k个位置
+     */
+    private static class Bits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        Bits(long expected, double fpp) {
+            long m = (long) Math.ceil(-expected * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.bitCount = Math.max(64, (m + 63) / 64 * 64);
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+            this.words = new AtomicLongArray((int) (bitCount / 64));
+        }
+
+        void put(String key) {
+            long[] hashes = hash(key);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = index(hashes, i);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long old;
+                do {
+                    old = words.get(word);
+                } while ((old & mask) == 0 && !words.compareAndSet(word, old, old | mask));
+            }
+        }
+
+        boolean mightContain(String key) {
+            long[] hashes = hash(key);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = index(hashes, i);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long index(long[] hashes, int i) {
+            return Math.floorMod(hashes[0] + i * hashes[1], bitCount);
+        }
+
+        // FNV-1a后分别用两组常量做混合，得到两个相互独立的哈希值
+        private static long[] hash(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+            return new long[]{mix(h, 0xbf58476d1ce4e5b9L), mix(h, 0x94d049bb133111ebL) | 1};
+        }
+
+        private static long mix(long h, long multiplier) {
+            h ^= h >>> 31;
+            h *= multiplier;
+            h ^= h >>> 29;
+            return h;
+        }
+    }
+}
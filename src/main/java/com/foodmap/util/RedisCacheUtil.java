@@ -1,27 +1,129 @@
 package com.foodmap.util;
 
+import com.foodmap.config.RedisValueCodec;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.stereotype.Component;
+import org.springframework.util.PatternMatchUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+/**
+ * 两级缓存工具：本地Caffeine(L1) + Redis(L2)
+ * 热点key先查本地缓存，未命中再查Redis；删除时通过Redis发布订阅通知其他节点清除本地副本。
+ * 本地缓存保存编码后的字节，每次命中都解码出新对象，调用方修改返回值（如清空密码）不会影响缓存中的副本。
+ * 读写不逐次打日志，命中率、耗时和值大小见 {@link CacheMetrics}
+ */
 @Component
 public class RedisCacheUtil {
     private static final Logger log = LoggerFactory.getLogger(RedisCacheUtil.class);
 
+    // 失效消息格式: 节点ID|类型|key或模式
+    static final String TYPE_KEY = "key";
+    static final String TYPE_PATTERN = "pattern";
+    static final String TYPE_NAMESPACE = "namespace";
+
+    // 命名空间版本号存放的key前缀
+    private static final String NAMESPACE_VERSION_PREFIX = "cache:ns:";
+    // SCAN每批处理的key数量
+    private static final int SCAN_BATCH_SIZE = 500;
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisValueCodec valueCodec;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Value("${cache.local.enabled:true}")
+    private boolean localEnabled;
+
+    @Value("${cache.local.prefixes:shops:,users:}")
+    private String localPrefixes;
+
+    @Value("${cache.local.maximum-size:10000}")
+    private long localMaximumSize;
+
+    @Value("${cache.local.expire-seconds:30}")
+    private long localExpireSeconds;
+
+    @Value("${cache.invalidation-channel:cache:invalidation}")
+    private String invalidationChannel;
+
+    // 当前节点标识，用于忽略自己发出的失效消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private Cache<String, byte[]> localCache;
+    // 命名空间版本号的本地副本，过期后重新从Redis读取，防止丢失失效消息后一直使用旧版本
+    private Cache<String, Long> namespaceVersions;
+    private List<String> localPrefixList;
+    // key失效回调，用于清理依附于缓存key的其他本地状态（如布隆过滤器）
+    private final List<Consumer<String>> keyInvalidationListeners = new CopyOnWriteArrayList<>();
+    // 仅响应其他节点的key失效，本节点已自行增量更新的状态使用
+    private final List<Consumer<String>> remoteKeyInvalidationListeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localExpireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        cacheMetrics.monitorLocalCache(localCache);
+        this.namespaceVersions = Caffeine.newBuilder()
+                .expireAfterWrite(localExpireSeconds, TimeUnit.SECONDS)
+                .build();
+        this.localPrefixList = Arrays.stream(localPrefixes.split(","))
+                .map(String::trim)
+                .filter(p -> !p.isEmpty())
+                .toList();
+        log.info("本地缓存初始化完成, 启用: {}, 前缀: {}, 容量: {}, 过期: {}秒",
+                localEnabled, localPrefixList, localMaximumSize, localExpireSeconds);
+    }
+
     /**
      * 设置缓存
      */
     public void set(String key, Object value, long timeout, TimeUnit unit) {
         try {
-            redisTemplate.opsForValue().set(key, value, timeout, unit);
-            log.info("缓存设置成功: {}", key);
+            // 按key前缀选择编码格式
+            RedisValueCodec.Encoded encoded = valueCodec.encode(key, value);
+            long start = System.nanoTime();
+            redisTemplate.opsForValue().set(key, encoded, timeout, unit);
+            cacheMetrics.recordSet(key, encoded.bytes().length, System.nanoTime() - start);
+            // 写入路径都会先删除旧缓存并广播失效，这里只需回填本节点
+            if (isLocalKey(key)) {
+                localCache.put(key, encoded.bytes());
+            }
         } catch (Exception e) {
             log.error("缓存设置失败: {}, 错误: {}", key, e.getMessage());
         }
@@ -35,15 +137,24 @@ public class RedisCacheUtil {
     }
 
     /**
-     * 获取缓存
+     * 获取缓存，先查本地缓存，再查Redis
      */
     public Object get(String key) {
+        boolean local = isLocalKey(key);
+        if (local) {
+            Object localValue = getLocal(key);
+            if (localValue != null) {
+                cacheMetrics.recordLocalHit(key);
+                return localValue;
+            }
+        }
+
         try {
+            long start = System.nanoTime();
             Object value = redisTemplate.opsForValue().get(key);
-            if (value != null) {
-                log.info("缓存命中: {}", key);
-            } else {
-                log.info("缓存未命中: {}", key);
+            cacheMetrics.recordRedisGet(key, value != null, System.nanoTime() - start);
+            if (value != null && local) {
+                putLocal(key, value);
             }
             return value;
         } catch (Exception e) {
@@ -54,28 +165,345 @@ public class RedisCacheUtil {
 
     /**
      * 删除缓存
+     * 先删Redis再清本地副本：反过来的话，并发读取会在两步之间把Redis中的旧值重新回填到本地缓存
      */
     public void delete(String key) {
+        cacheMetrics.recordInvalidation(TYPE_KEY, false);
         try {
             redisTemplate.delete(key);
-            log.info("缓存删除成功: {}", key);
+            log.debug("缓存删除成功: {}", key);
         } catch (Exception e) {
             log.error("缓存删除失败: {}, 错误: {}", key, e.getMessage());
         }
+        evictLocal(key);
+        notifyKeyInvalidated(key);
+        publishInvalidation(TYPE_KEY, key);
+    }
+
+    /**
+     * 批量获取缓存，一次MGET往返；结果与keys的迭代顺序一一对应，未命中的位置为null
+     */
+    public List<Object> multiGet(Collection<String> keys) {
+        List<String> keyList = new ArrayList<>(keys);
+        List<Object> result = new ArrayList<>(Collections.nCopies(keyList.size(), null));
+        // 本地未命中的key及其在结果中的位置
+        List<String> remoteKeys = new ArrayList<>();
+        List<Integer> remoteIndexes = new ArrayList<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            String key = keyList.get(i);
+            Object localValue = isLocalKey(key) ? getLocal(key) : null;
+            if (localValue != null) {
+                cacheMetrics.recordLocalHit(key);
+                result.set(i, localValue);
+            } else {
+                remoteKeys.add(key);
+                remoteIndexes.add(i);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return result;
+        }
+
+        try {
+            long start = System.nanoTime();
+            List<Object> values = redisTemplate.opsForValue().multiGet(remoteKeys);
+            cacheMetrics.recordMultiGet(System.nanoTime() - start);
+            for (int j = 0; j < remoteKeys.size(); j++) {
+                String key = remoteKeys.get(j);
+                Object value = values == null ? null : values.get(j);
+                if (value != null) {
+                    cacheMetrics.recordRedisHit(key);
+                    result.set(remoteIndexes.get(j), value);
+                    if (isLocalKey(key)) {
+                        putLocal(key, value);
+                    }
+                } else {
+                    cacheMetrics.recordMiss(key);
+                }
+            }
+        } catch (Exception e) {
+            log.error("批量获取缓存失败, 数量: {}, 错误: {}", remoteKeys.size(), e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 批量设置缓存，MSET不支持过期时间，改为流水线发送带过期时间的SET，一次往返
+     */
+    public void multiSet(Map<String, Object> values, long timeout, TimeUnit unit) {
+        if (values.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, RedisValueCodec.Encoded> encoded = new LinkedHashMap<>();
+            values.forEach((key, value) -> {
+                RedisValueCodec.Encoded bytes = valueCodec.encode(key, value);
+                cacheMetrics.recordValueSize(key, bytes.bytes().length);
+                encoded.put(key, bytes);
+            });
+            long start = System.nanoTime();
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    ValueOperations<String, Object> ops = ((RedisOperations<String, Object>) operations).opsForValue();
+                    encoded.forEach((key, bytes) -> ops.set(key, bytes, timeout, unit));
+                    return null;
+                }
+            });
+            cacheMetrics.recordMultiSet(System.nanoTime() - start);
+            encoded.forEach((key, bytes) -> {
+                if (isLocalKey(key)) {
+                    localCache.put(key, bytes.bytes());
+                }
+            });
+        } catch (Exception e) {
+            log.error("批量设置缓存失败, 数量: {}, 错误: {}", values.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 批量设置缓存（默认2小时过期）
+     */
+    public void multiSet(Map<String, Object> values) {
+        this.multiSet(values, 2, TimeUnit.HOURS);
+    }
+
+    /**
+     * 批量删除缓存，一次DEL删除全部key，失效消息在一个流水线中发布；与单个删除相同，先删Redis再清本地副本
+     */
+    public void delete(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            Long count = redisTemplate.delete(keys);
+            log.debug("批量删除缓存成功, 数量: {}, 实际删除: {}", keys.size(), count);
+        } catch (Exception e) {
+            log.error("批量删除缓存失败, 数量: {}, 错误: {}", keys.size(), e.getMessage());
+        }
+        for (String key : keys) {
+            cacheMetrics.recordInvalidation(TYPE_KEY, false);
+            evictLocal(key);
+            notifyKeyInvalidated(key);
+        }
+        publishInvalidations(TYPE_KEY, keys);
     }
 
     /**
      * 删除匹配的缓存
+     * 使用SCAN分批遍历，不会像KEYS那样长时间阻塞Redis，仅用于调试和运维场景；
+     * 业务代码批量失效请使用 {@link #invalidateNamespace(String)}
      */
     public void deleteByPattern(String pattern) {
-        try {
-            var keys = redisTemplate.keys(pattern);
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.info("批量删除缓存成功, 模式: {}, 删除数量: {}", pattern, keys.size());
+        cacheMetrics.recordInvalidation(TYPE_PATTERN, false);
+        evictLocalByPattern(pattern);
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build();
+        int deleted = 0;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= SCAN_BATCH_SIZE) {
+                    deleted += deleteBatch(batch);
+                }
             }
+            deleted += deleteBatch(batch);
+            log.info("批量删除缓存成功, 模式: {}, 删除数量: {}", pattern, deleted);
         } catch (Exception e) {
             log.error("批量删除缓存失败, 模式: {}, 错误: {}", pattern, e.getMessage());
         }
+        publishInvalidation(TYPE_PATTERN, pattern);
+    }
+
+    /**
+     * 构建带版本号的命名空间key，如 shops:list:v3:all:all:compositeScore
+     */
+    public String namespacedKey(String namespace, String suffix) {
+        return namespace + ":v" + getNamespaceVersion(namespace) + ":" + suffix;
+    }
+
+    /**
+     * 使整个命名空间失效：版本号自增后旧key不再被访问，由TTL自然过期，复杂度O(1)
+     */
+    public void invalidateNamespace(String namespace) {
+        cacheMetrics.recordInvalidation(TYPE_NAMESPACE, false);
+        try {
+            Long version = stringRedisTemplate.opsForValue().increment(NAMESPACE_VERSION_PREFIX + namespace);
+            if (version != null) {
+                namespaceVersions.put(namespace, version);
+            }
+            log.debug("命名空间缓存已失效: {}, 新版本: {}", namespace, version);
+        } catch (Exception e) {
+            namespaceVersions.invalidate(namespace);
+            log.error("命名空间失效失败: {}, 错误: {}", namespace, e.getMessage());
+        }
+        // 旧版本的本地副本已不可达，顺便释放内存
+        evictLocalByPattern(namespace + ":*");
+        publishInvalidation(TYPE_NAMESPACE, namespace);
+    }
+
+    /**
+     * 注册key失效回调，本节点删除key或收到其他节点的key失效消息时触发
+     */
+    public void addKeyInvalidationListener(Consumer<String> listener) {
+        keyInvalidationListeners.add(listener);
+    }
+
+    /**
+     * 注册key失效回调，仅在收到其他节点的key失效消息时触发
+     */
+    public void addRemoteKeyInvalidationListener(Consumer<String> listener) {
+        remoteKeyInvalidationListeners.add(listener);
+    }
+
+    /**
+     * 只通知其他节点某个key已失效，不删除Redis中的数据
+     * 用于本节点已增量更新、其他节点需要丢弃副本的本地状态
+     */
+    public void broadcastKeyInvalidation(String key) {
+        publishInvalidation(TYPE_KEY, key);
+    }
+
+    /**
+     * 处理其他节点发来的失效消息
+     */
+    void onInvalidationMessage(String message) {
+        String[] parts = message.split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        cacheMetrics.recordInvalidation(parts[1], true);
+        if (TYPE_PATTERN.equals(parts[1])) {
+            evictLocalByPattern(parts[2]);
+        } else if (TYPE_NAMESPACE.equals(parts[1])) {
+            namespaceVersions.invalidate(parts[2]);
+            evictLocalByPattern(parts[2] + ":*");
+        } else {
+            evictLocal(parts[2]);
+            notifyKeyInvalidated(parts[2]);
+            notifyListeners(remoteKeyInvalidationListeners, parts[2]);
+        }
+    }
+
+    String getInvalidationChannel() {
+        return invalidationChannel;
+    }
+
+    private long getNamespaceVersion(String namespace) {
+        Long version = namespaceVersions.getIfPresent(namespace);
+        if (version != null) {
+            return version;
+        }
+        try {
+            String value = stringRedisTemplate.opsForValue().get(NAMESPACE_VERSION_PREFIX + namespace);
+            version = value == null ? 0L : Long.parseLong(value);
+            namespaceVersions.put(namespace, version);
+            return version;
+        } catch (Exception e) {
+            // Redis不可用时不缓存版本号，下次重试
+            log.error("获取命名空间版本失败: {}, 错误: {}", namespace, e.getMessage());
+            return 0L;
+        }
+    }
+
+    private int deleteBatch(List<String> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Long count = redisTemplate.delete(batch);
+        batch.clear();
+        return count == null ? 0 : count.intValue();
+    }
+
+    private boolean isLocalKey(String key) {
+        if (!localEnabled) {
+            return false;
+        }
+        for (String prefix : localPrefixList) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object getLocal(String key) {
+        byte[] bytes = localCache.getIfPresent(key);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return valueCodec.deserialize(bytes);
+        } catch (Exception e) {
+            localCache.invalidate(key);
+            log.error("本地缓存解码失败: {}, 错误: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    // 从Redis读到的值重新编码后回填，保证本地副本与调用方拿到的对象互不影响
+    private void putLocal(String key, Object value) {
+        try {
+            localCache.put(key, valueCodec.encode(key, value).bytes());
+        } catch (Exception e) {
+            log.error("本地缓存回填失败: {}, 错误: {}", key, e.getMessage());
+        }
+    }
+
+    private void evictLocal(String key) {
+        localCache.invalidate(key);
+    }
+
+    private void notifyKeyInvalidated(String key) {
+        notifyListeners(keyInvalidationListeners, key);
+    }
+
+    private void notifyListeners(List<Consumer<String>> listeners, String key) {
+        for (Consumer<String> listener : listeners) {
+            try {
+                listener.accept(key);
+            } catch (Exception e) {
+                log.error("缓存失效回调执行失败: {}, 错误: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private void evictLocalByPattern(String pattern) {
+        localCache.asMap().keySet().removeIf(key -> PatternMatchUtils.simpleMatch(pattern, key));
+    }
+
+    private void publishInvalidation(String type, String target) {
+        if (!shouldPublish(type)) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(invalidationChannel, nodeId + "|" + type + "|" + target);
+        } catch (Exception e) {
+            log.error("发布缓存失效消息失败: {}, 错误: {}", target, e.getMessage());
+        }
+    }
+
+    private void publishInvalidations(String type, Collection<String> targets) {
+        if (!shouldPublish(type)) {
+            return;
+        }
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String target : targets) {
+                    stringConnection.publish(invalidationChannel, nodeId + "|" + type + "|" + target);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("批量发布缓存失效消息失败, 数量: {}, 错误: {}", targets.size(), e.getMessage());
+        }
+    }
+
+    // 本地缓存关闭且没有回调时，key失效无需通知其他节点
+    private boolean shouldPublish(String type) {
+        return localEnabled || TYPE_NAMESPACE.equals(type)
+                || !keyInvalidationListeners.isEmpty() || !remoteKeyInvalidationListeners.isEmpty();
     }
-}
\ No newline at end of file
+}
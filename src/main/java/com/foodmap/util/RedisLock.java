@@ -0,0 +1,83 @@
+package com.foodmap.util;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 跨节点互斥锁
+ * 加锁时写入随机令牌，续期和释放都先比对令牌，锁过期后被其他节点重新获得时不会误续、误删。
+ * 用于定时任务、批量刷新等只允许一个节点执行的操作，以及 {@link SingleFlightLoader} 的加载锁
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RedisLock {
+
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 尝试加锁，成功返回令牌；锁被占用或Redis不可用返回null
+     */
+    public String tryLock(String key, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, token, ttl)) ? token : null;
+        } catch (Exception e) {
+            log.error("获取锁失败: {}, 错误: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 延长仍由自己持有的锁，锁已过期或被其他节点获得时返回false
+     */
+    public boolean renew(String key, String token, Duration ttl) {
+        try {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(key), token,
+                    String.valueOf(ttl.toMillis()));
+            return renewed != null && renewed == 1L;
+        } catch (Exception e) {
+            log.error("锁续期失败: {}, 错误: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 锁是否被任意节点持有，Redis不可用时返回false，等待方不再等待
+     */
+    public boolean isLocked(String key) {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(key));
+        } catch (Exception e) {
+            log.error("查询锁状态失败: {}, 错误: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 释放锁，只删除自己持有的锁
+     */
+    public void unlock(String key, String token) {
+        try {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, List.of(key), token);
+        } catch (Exception e) {
+            log.error("释放锁失败: {}, 错误: {}", key, e.getMessage());
+        }
+    }
+}
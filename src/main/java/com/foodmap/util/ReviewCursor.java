@@ -0,0 +1,36 @@
+package com.foodmap.util;
+
+import com.foodmap.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 评论游标：最后一条记录的 (createdAt, id)，对外编码为不透明的Base64字符串
+ */
+public record ReviewCursor(LocalDateTime createdAt, Long id) {
+
+    public String encode() {
+        String raw = createdAt + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，空字符串表示从第一页开始
+     */
+    public static ReviewCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int comma = raw.lastIndexOf(',');
+            return new ReviewCursor(LocalDateTime.parse(raw.substring(0, comma)),
+                    Long.valueOf(raw.substring(comma + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new BadRequestException("无效的分页游标");
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.foodmap.util;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 合并并发回源的缓存加载器（cache-aside）
+ * 同一个key缓存未命中时，本节点只有一个线程执行加载，其余线程等待同一个结果；
+ * 加载前再用Redis短锁协调各节点，未抢到锁的节点轮询缓存等待持锁节点写入，
+ * 锁过期或Redis不可用时退化为自行加载，保证不会因为协调失败而拒绝请求。
+ * 加载结果为null时写入短期空值标记，重复查询不存在的数据不再回源；布隆过滤器判定不存在的key直接返回null
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SingleFlightLoader {
+
+    private static final String LOCK_PREFIX = "lock:load:";
+    // 空值标记，字符串经JSON序列化后类型不变
+    private static final String NULL_MARKER = "__null__";
+
+    private final RedisCacheUtil cacheUtil;
+    private final RedisLock redisLock;
+    private final KeyBloomFilter bloomFilter;
+
+    @Value("${cache.load.lock-millis:3000}")
+    private long lockMillis;
+
+    @Value("${cache.load.poll-millis:50}")
+    private long pollMillis;
+
+    @Value("${cache.load.null-ttl-seconds:60}")
+    private long nullTtlSeconds;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 读取缓存，未命中时加载并写入缓存（默认2小时过期）
+     */
+    public <T> T get(String key, Supplier<T> loader) {
+        return get(key, loader, 2, TimeUnit.HOURS);
+    }
+
+    /**
+     * 读取缓存，未命中时加载并写入缓存；加载结果为null时缓存空值标记，加载抛出的异常会传给所有等待者
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader, long timeout, TimeUnit unit) {
+        Object cached = cacheUtil.get(key);
+        if (cached != null) {
+            return (T) unwrap(cached);
+        }
+        if (!bloomFilter.mightContain(key)) {
+            return null;
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return (T) unwrap(await(existing));
+        }
+        try {
+            Object value = load(key, loader, timeout, unit);
+            future.complete(value);
+            return (T) unwrap(value);
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    // 返回缓存中的原始值，不存在时为空值标记
+    private Object load(String key, Supplier<?> loader, long timeout, TimeUnit unit) {
+        // 上一轮加载可能刚好在本线程未命中之后完成
+        Object cached = cacheUtil.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        String lockKey = LOCK_PREFIX + key;
+        // 锁被占用或Redis不可用时都返回null；Redis不可用时下面的等待很快结束，随后自行加载
+        String token = redisLock.tryLock(lockKey, Duration.ofMillis(lockMillis));
+        if (token == null) {
+            Object loaded = awaitOtherNode(key, lockKey);
+            if (loaded != null) {
+                return loaded;
+            }
+            log.warn("等待其他节点加载超时，自行加载: {}", key);
+        }
+        try {
+            if (token != null) {
+                // 抢到锁之前其他节点可能已经写入
+                cached = cacheUtil.get(key);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            Object value = loader.get();
+            if (value == null) {
+                cacheUtil.set(key, NULL_MARKER, nullTtlSeconds, TimeUnit.SECONDS);
+                return NULL_MARKER;
+            }
+            cacheUtil.set(key, value, timeout, unit);
+            return value;
+        } finally {
+            if (token != null) {
+                redisLock.unlock(lockKey, token);
+            }
+        }
+    }
+
+    // 轮询等待持锁节点写入缓存，锁释放或过期后再读一次，仍未命中返回null
+    private Object awaitOtherNode(String key, String lockKey) {
+        long deadline = System.currentTimeMillis() + lockMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Object value = cacheUtil.get(key);
+            if (value != null) {
+                return value;
+            }
+            if (!redisLock.isLocked(lockKey)) {
+                return cacheUtil.get(key);
+            }
+        }
+        return null;
+    }
+
+    private static Object unwrap(Object value) {
+        return NULL_MARKER.equals(value) ? null : value;
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
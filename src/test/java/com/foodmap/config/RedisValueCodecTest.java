@@ -0,0 +1,142 @@
+package com.foodmap.config;
+
+import com.foodmap.entity.dto.SentimentSnapshot;
+import com.foodmap.entity.pojo.AspectSummary;
+import com.foodmap.entity.pojo.Shop;
+import com.foodmap.entity.pojo.User;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RedisValueCodecTest {
+
+    private static final String PREFIXES = "shops:=smile,users:=smile,sentiment:snapshot:=smile";
+
+    private final RedisValueCodec plain = RedisValueCodec.of("json", PREFIXES, 0);
+    private final RedisValueCodec compressing = RedisValueCodec.of("json", PREFIXES, 64);
+
+    @Test
+    void smileRoundTripsCachedTypes() {
+        for (RedisValueCodec codec : List.of(plain, compressing)) {
+            assertRoundTrip(codec, "shops:id:1", shop(1L));
+            assertRoundTrip(codec, "shops:brief:1", "测试餐厅");
+            assertRoundTrip(codec, "users:id:3", user(3L));
+            assertRoundTrip(codec, "sentiment:snapshot:1", snapshot());
+            assertRoundTrip(codec, "shops:list:v1", new ArrayList<>(List.of(shop(1L), shop(2L), shop(3L))));
+            assertRoundTrip(codec, "shops:list:v1", new ArrayList<Shop>());
+        }
+    }
+
+    @Test
+    void smileValuesAreTaggedAndCarryNoClassNames() {
+        byte[] bytes = plain.serialize(plain.encode("shops:id:1", shop(1L)));
+
+        assertEquals(0x01, bytes[0]);
+        assertFalse(new String(bytes, StandardCharsets.ISO_8859_1).contains("com.foodmap"));
+    }
+
+    @Test
+    void jsonPrefixKeepsLegacyFormat() {
+        Shop shop = shop(1L);
+        byte[] bytes = plain.serialize(plain.encode("reviews:1", shop));
+
+        // 未配置Smile的前缀与原JSON序列化器的输出完全一致
+        assertArrayEquals(RedisConfig.jsonValueSerializer().serialize(shop), bytes);
+    }
+
+    @Test
+    void readsLegacyJsonWrittenBeforeCodec() {
+        Shop shop = shop(1L);
+        byte[] legacy = RedisConfig.jsonValueSerializer().serialize(shop);
+
+        assertEquals(shop, plain.deserialize(legacy));
+        assertEquals(shop, compressing.deserialize(legacy));
+    }
+
+    @Test
+    void compressesOnlyAboveThreshold() {
+        List<Shop> shops = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            shops.add(shop(id));
+        }
+
+        byte[] smile = compressing.serialize(compressing.encode("shops:list:v1", shops));
+        byte[] json = compressing.serialize(compressing.encode("reviews:list", shops));
+        byte[] small = compressing.serialize(compressing.encode("shops:brief:1", "店"));
+
+        assertEquals(0x03, smile[0]);
+        assertEquals(0x02, json[0]);
+        assertEquals(0x01, small[0]);
+        assertEquals(shops, compressing.deserialize(smile));
+        assertEquals(shops, compressing.deserialize(json));
+    }
+
+    @Test
+    void unregisteredTypeUnderSmilePrefixFallsBackToJson() {
+        Map<String, Object> value = new HashMap<>(Map.of("name", "测试"));
+        byte[] bytes = plain.serialize(plain.encode("shops:stats:1", value));
+
+        assertEquals('{', bytes[0]);
+        assertEquals(value, plain.deserialize(bytes));
+    }
+
+    @Test
+    void nullAndEmptyValues() {
+        assertEquals(0, plain.serialize(plain.encode("shops:id:1", null)).length);
+        assertNull(plain.deserialize(null));
+        assertNull(plain.deserialize(new byte[0]));
+    }
+
+    private static void assertRoundTrip(RedisValueCodec codec, String key, Object value) {
+        byte[] bytes = codec.serialize(codec.encode(key, value));
+        assertEquals(value, codec.deserialize(bytes), key);
+    }
+
+    private static Shop shop(Long id) {
+        Shop shop = new Shop();
+        shop.setShopId(id);
+        shop.setShopName("测试餐厅" + id);
+        shop.setAddress("测试地址");
+        shop.setCategory("中餐");
+        shop.setStatus(1);
+        shop.setCompositeScore(4.5f);
+        shop.setReviewCount(12L);
+        shop.setCreateTime(LocalDateTime.of(2024, 5, 1, 12, 0));
+        return shop;
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setUserId(id);
+        user.setUserName("user" + id);
+        user.setCreateTime(LocalDateTime.of(2024, 5, 1, 12, 0));
+        return user;
+    }
+
+    private static SentimentSnapshot snapshot() {
+        AspectSummary aspect = new AspectSummary();
+        aspect.setAspect("味道");
+        aspect.setPositiveCount(8);
+        aspect.setNegativeCount(2);
+        aspect.setTotalCount(10);
+        aspect.setPositivePercentage(new BigDecimal("80.00"));
+
+        SentimentSnapshot snapshot = new SentimentSnapshot();
+        snapshot.setRestaurantId(1L);
+        snapshot.setAspects(List.of(aspect));
+        snapshot.setTopAspects(List.of("味道"));
+        snapshot.setPositivePercentage(80.0);
+        snapshot.setTotalMentions(10);
+        snapshot.setEtag("abc");
+        snapshot.setBuiltAt(LocalDateTime.of(2024, 5, 1, 12, 0));
+        return snapshot;
+    }
+}
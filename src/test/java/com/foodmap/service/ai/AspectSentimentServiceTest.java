@@ -0,0 +1,283 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.mapper.AspectSummaryMapper;
+import com.foodmap.mapper.ReviewMapper;
+import com.foodmap.util.RedisLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AspectSentimentServiceTest {
+
+    private static final Long RESTAURANT_ID = 3L;
+    private static final String LOCK_KEY = "lock:sentiment:restaurant:" + RESTAURANT_ID;
+    private static final LocalDateTime WATERMARK = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private PythonAnalyzerClient analyzerClient;
+    private ReviewMapper reviewMapper;
+    private AspectSummaryMapper aspectSummaryMapper;
+    private TransactionTemplate transactionTemplate;
+    private SentimentSnapshotCache sentimentSnapshotCache;
+    private RedisLock redisLock;
+    private AspectSentimentService service;
+
+    @BeforeEach
+    void setUp() {
+        analyzerClient = mock(PythonAnalyzerClient.class);
+        reviewMapper = mock(ReviewMapper.class);
+        aspectSummaryMapper = mock(AspectSummaryMapper.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        sentimentSnapshotCache = mock(SentimentSnapshotCache.class);
+        redisLock = mock(RedisLock.class);
+        when(redisLock.tryLock(eq(LOCK_KEY), any(Duration.class))).thenReturn("token");
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        // 没有水位记录时MyBatis返回null，即首次分析
+        when(aspectSummaryMapper.getWatermark(RESTAURANT_ID)).thenReturn(null);
+
+        service = new AspectSentimentService(analyzerClient, reviewMapper, aspectSummaryMapper,
+                transactionTemplate, sentimentSnapshotCache, redisLock);
+        ReflectionTestUtils.setField(service, "incrementalBatchSize", 100);
+        ReflectionTestUtils.setField(service, "restaurantLockSeconds", 300L);
+        ReflectionTestUtils.setField(service, "rescanSeconds", 300L);
+    }
+
+    @Test
+    void newReviewsContributePerReviewAndAspect() {
+        when(aspectSummaryMapper.findReviewsChangedSince(RESTAURANT_ID, null, 0L, 100)).thenReturn(List.of(
+                review(11L, "菜很好吃，服务慢", 1),
+                review(12L, "菜好吃", 2)));
+        respond(List.of(
+                phraseStat("菜品", "好", 0, 1),
+                phraseStat("服务", "差", 0),
+                phraseStat("服务", "中", 0)));
+
+        Map<String, Object> result = service.analyzeIncrementally(RESTAURANT_ID, 100).block();
+
+        assertEquals("success", result.get("status"));
+        verify(analyzerClient).analyzeBatch(List.of("菜很好吃，服务慢", "菜好吃"));
+        // 首次分析先清空旧统计
+        verify(aspectSummaryMapper).deleteByRestaurant(RESTAURANT_ID);
+        verify(aspectSummaryMapper).deleteContributionsByRestaurant(RESTAURANT_ID);
+
+        List<Map<String, Object>> contributions = captureContributions();
+        assertEquals(3, contributions.size());
+        assertEquals(List.of(contribution(11L, "菜品", 1, 0, 1), contribution(11L, "服务", 0, 1, 2),
+                contribution(12L, "菜品", 1, 0, 1)), sorted(contributions));
+
+        List<List<Map<String, Object>>> merges = captureMerges(1);
+        assertEquals(List.of(delta("服务", 0, 1, 2), delta("菜品", 2, 0, 2)), sortedByAspect(merges.get(0)));
+
+        verify(reviewMapper).markReviewsAsAnalyzed(List.of(11L, 12L));
+        verify(aspectSummaryMapper).upsertWatermark(RESTAURANT_ID, WATERMARK.plusMinutes(2), 12L);
+        verify(sentimentSnapshotCache).refresh(RESTAURANT_ID);
+        verify(redisLock).unlock(LOCK_KEY, "token");
+    }
+
+    @Test
+    void changedReviewRetractsOldContributionBeforeMerging() {
+        givenWatermark();
+        when(aspectSummaryMapper.findReviewsChangedSince(RESTAURANT_ID, WATERMARK, 10L, 100))
+                .thenReturn(List.of(review(11L, "服务变好了", 1)));
+        when(aspectSummaryMapper.findContentHashes(List.of(11L)))
+                .thenReturn(List.of(hashState(11L, "旧内容")));
+        // MySQL对SUM返回BigDecimal
+        when(aspectSummaryMapper.sumContributions(List.of(11L))).thenReturn(List.of(
+                sum("服务", BigDecimal.ZERO, BigDecimal.ONE, BigDecimal.ONE)));
+        respond(List.of(phraseStat("服务", "好", 0)));
+
+        service.analyzeIncrementally(RESTAURANT_ID, 100).block();
+
+        verify(aspectSummaryMapper, never()).deleteByRestaurant(any());
+        List<List<Map<String, Object>>> merges = captureMerges(2);
+        assertEquals(List.of(delta("服务", 0, -1, -1)), merges.get(0));
+        assertEquals(List.of(delta("服务", 1, 0, 1)), merges.get(1));
+        verify(aspectSummaryMapper).deleteContributions(List.of(11L));
+        verify(aspectSummaryMapper).deleteContentHashes(List.of(11L));
+        assertEquals(List.of(contribution(11L, "服务", 1, 0, 1)), captureContributions());
+    }
+
+    @Test
+    void hiddenReviewIsOnlyRetracted() {
+        givenWatermark();
+        Map<String, Object> hidden = review(11L, "菜很好吃", 1);
+        hidden.put("status", "HIDDEN");
+        when(aspectSummaryMapper.findReviewsChangedSince(RESTAURANT_ID, WATERMARK, 10L, 100)).thenReturn(List.of(hidden));
+        when(aspectSummaryMapper.findContentHashes(List.of(11L))).thenReturn(List.of(hashState(11L, "菜很好吃")));
+        when(aspectSummaryMapper.sumContributions(List.of(11L))).thenReturn(List.of(
+                sum("菜品", 1L, 0L, 1L)));
+
+        service.analyzeIncrementally(RESTAURANT_ID, 100).block();
+
+        verifyNoInteractions(analyzerClient);
+        assertEquals(List.of(delta("菜品", -1, 0, -1)), captureMerges(1).get(0));
+        verify(aspectSummaryMapper, never()).insertContributions(any(), anyList());
+        verify(reviewMapper, never()).markReviewsAsAnalyzed(anyList());
+        verify(aspectSummaryMapper).upsertWatermark(RESTAURANT_ID, WATERMARK.plusMinutes(1), 11L);
+    }
+
+    @Test
+    void unchangedContentIsSkipped() {
+        givenWatermark();
+        when(aspectSummaryMapper.findReviewsChangedSince(RESTAURANT_ID, WATERMARK, 10L, 100))
+                .thenReturn(List.of(review(11L, "菜很好吃", 1)));
+        when(aspectSummaryMapper.findContentHashes(List.of(11L))).thenReturn(List.of(hashState(11L, "菜很好吃")));
+
+        service.analyzeIncrementally(RESTAURANT_ID, 100).block();
+
+        verifyNoInteractions(analyzerClient);
+        verify(aspectSummaryMapper, never()).mergeAspectDeltas(any(), anyList());
+        verify(aspectSummaryMapper, never()).sumContributions(anyList());
+        // 水位仍然推进，避免下次重复读取
+        verify(aspectSummaryMapper).upsertWatermark(RESTAURANT_ID, WATERMARK.plusMinutes(1), 11L);
+    }
+
+    @Test
+    void rescanPicksUpReviewSkippedByCursor() {
+        givenWatermark();
+        // 与水位同一秒、id更小且提交较晚的评论，以及已分析过的水位评论本身
+        when(aspectSummaryMapper.findReviewsUpdatedBehind(RESTAURANT_ID, WATERMARK.minusSeconds(300), WATERMARK, 10L, 100))
+                .thenReturn(List.of(review(10L, "菜很好吃", 0), review(9L, "服务很好", 0)));
+        when(aspectSummaryMapper.findContentHashes(List.of(10L, 9L))).thenReturn(List.of(hashState(10L, "菜很好吃")));
+        respond(List.of(phraseStat("服务", "好", 0)));
+
+        Map<String, Object> result = service.analyzeIncrementally(RESTAURANT_ID, 100).block();
+
+        assertEquals("success", result.get("status"));
+        verify(analyzerClient).analyzeBatch(List.of("服务很好"));
+        assertEquals(List.of(contribution(9L, "服务", 1, 0, 1)), captureContributions());
+        verify(aspectSummaryMapper, never()).sumContributions(anyList());
+        // 水位之后没有评论，水位保持不变
+        verify(aspectSummaryMapper, never()).upsertWatermark(any(), any(), any());
+    }
+
+    @Test
+    void rescanOfAnalyzedReviewsDoesNothing() {
+        givenWatermark();
+        when(aspectSummaryMapper.findReviewsUpdatedBehind(RESTAURANT_ID, WATERMARK.minusSeconds(300), WATERMARK, 10L, 100))
+                .thenReturn(List.of(review(10L, "菜很好吃", 0)));
+        when(aspectSummaryMapper.findContentHashes(List.of(10L))).thenReturn(List.of(hashState(10L, "菜很好吃")));
+
+        Map<String, Object> result = service.analyzeIncrementally(RESTAURANT_ID, 100).block();
+
+        assertEquals("没有新增或变动的评论", result.get("message"));
+        verifyNoInteractions(analyzerClient, transactionTemplate);
+    }
+
+    @Test
+    void pythonErrorSummaryDoesNotAdvanceWatermark() {
+        when(aspectSummaryMapper.findReviewsChangedSince(RESTAURANT_ID, null, 0L, 100))
+                .thenReturn(List.of(review(11L, "菜很好吃", 1)));
+        when(analyzerClient.analyzeBatch(anyList())).thenReturn(Mono.just(Map.of(
+                "phrase_stats", List.of(), "summary", "分析过程中发生错误: 模型未加载")));
+
+        Map<String, Object> result = service.analyzeIncrementally(RESTAURANT_ID, 100).block();
+
+        assertEquals("error", result.get("status"));
+        assertEquals("分析过程中发生错误: 模型未加载", result.get("message"));
+        verifyNoInteractions(transactionTemplate, sentimentSnapshotCache);
+        verify(redisLock).unlock(LOCK_KEY, "token");
+    }
+
+    @Test
+    void skippedWhileAnotherNodeAnalyzes() {
+        when(redisLock.tryLock(eq(LOCK_KEY), any(Duration.class))).thenReturn(null);
+
+        Map<String, Object> result = service.analyzeIncrementally(RESTAURANT_ID, 100).block();
+
+        assertEquals(true, result.get("skipped"));
+        verifyNoInteractions(aspectSummaryMapper, analyzerClient);
+        verify(redisLock, never()).unlock(anyString(), anyString());
+    }
+
+    private void givenWatermark() {
+        when(aspectSummaryMapper.getWatermark(RESTAURANT_ID)).thenReturn(Map.of(
+                "watermark_time", WATERMARK, "watermark_review_id", 10L));
+    }
+
+    private void respond(List<Map<String, Object>> phraseStats) {
+        when(analyzerClient.analyzeBatch(anyList())).thenReturn(Mono.just(Map.of(
+                "phrase_stats", phraseStats, "summary", "整体评价较好")));
+    }
+
+    private List<Map<String, Object>> captureContributions() {
+        ArgumentCaptor<List<Map<String, Object>>> captor = listCaptor();
+        verify(aspectSummaryMapper).insertContributions(eq(RESTAURANT_ID), captor.capture());
+        return captor.getValue();
+    }
+
+    private List<List<Map<String, Object>>> captureMerges(int times) {
+        ArgumentCaptor<List<Map<String, Object>>> captor = listCaptor();
+        verify(aspectSummaryMapper, times(times)).mergeAspectDeltas(eq(RESTAURANT_ID), captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static Map<String, Object> review(Long id, String content, int minutesAfterWatermark) {
+        Map<String, Object> review = new HashMap<>();
+        review.put("id", id);
+        review.put("content", content);
+        review.put("status", "ACTIVE");
+        review.put("updatedAt", WATERMARK.plusMinutes(minutesAfterWatermark));
+        return review;
+    }
+
+    private static Map<String, Object> hashState(Long reviewId, String content) {
+        return Map.of("review_id", reviewId,
+                "content_hash", DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Map<String, Object> phraseStat(String phrase, String sentiment, Integer... reviewIndices) {
+        return Map.of("phrase", phrase, "sentiment", sentiment, "count", reviewIndices.length,
+                "confidence", 0.9, "review_indices", List.of(reviewIndices));
+    }
+
+    private static Map<String, Object> sum(String aspect, Number positive, Number negative, Number total) {
+        return Map.of("aspect", aspect, "positive", positive, "negative", negative, "total", total);
+    }
+
+    private static Map<String, Object> contribution(Long reviewId, String aspect, int positive, int negative, int total) {
+        return Map.of("reviewId", reviewId, "aspect", aspect, "positive", positive, "negative", negative, "total", total);
+    }
+
+    private static Map<String, Object> delta(String aspect, int positive, int negative, int total) {
+        return Map.of("aspect", aspect, "positive", positive, "negative", negative, "total", total);
+    }
+
+    private static List<Map<String, Object>> sorted(List<Map<String, Object>> contributions) {
+        return contributions.stream()
+                .sorted(Comparator.comparing((Map<String, Object> c) -> (Long) c.get("reviewId"))
+                        .thenComparing(c -> (String) c.get("aspect"), Comparator.reverseOrder()))
+                .toList();
+    }
+
+    private static List<Map<String, Object>> sortedByAspect(List<Map<String, Object>> deltas) {
+        return deltas.stream().sorted(Comparator.comparing(d -> (String) d.get("aspect"))).toList();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> ArgumentCaptor<List<T>> listCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+    }
+}
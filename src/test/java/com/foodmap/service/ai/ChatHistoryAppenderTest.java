@@ -0,0 +1,111 @@
+package com.foodmap.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.foodmap.entity.pojo.ChatHistory;
+import com.foodmap.mapper.ChatHistoryMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ChatHistoryAppenderTest {
+
+    private static final String LIST_KEY = "chat:recent:s:abc";
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private ChatHistoryMapper chatHistoryMapper;
+    private StringRedisTemplate stringRedisTemplate;
+    private ChatHistoryAppender appender;
+
+    @BeforeEach
+    void setUp() {
+        chatHistoryMapper = mock(ChatHistoryMapper.class);
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        appender = new ChatHistoryAppender(chatHistoryMapper, stringRedisTemplate);
+        ReflectionTestUtils.setField(appender, "bufferCapacity", 100);
+        ReflectionTestUtils.setField(appender, "flushSize", 200);
+        ReflectionTestUtils.setField(appender, "recentMessages", 20);
+        ReflectionTestUtils.setField(appender, "expireMinutes", 30L);
+        appender.init();
+    }
+
+    @Test
+    void recentServedFromSharedListWithoutDatabase() throws Exception {
+        // 其他节点追加、尚未落库的消息也在共享列表中
+        readReturns(List.of(json(message("新问题")), json(message("旧问题")), "_"));
+
+        List<ChatHistory> recent = appender.recent(null, 1L, "abc", 5);
+
+        assertEquals(List.of("新问题", "旧问题"), recent.stream().map(ChatHistory::getContent).toList());
+        verifyNoInteractions(chatHistoryMapper);
+    }
+
+    @Test
+    void missingListLoadedFromDatabaseWithMarker() throws Exception {
+        ChatHistory stored = message("库中消息");
+        readReturns(List.of(), List.of(json(stored), "_"));
+        when(chatHistoryMapper.findBySessionId("abc", 20)).thenReturn(List.of(stored));
+
+        List<ChatHistory> recent = appender.recent(null, 1L, "abc", 5);
+
+        assertEquals(List.of("库中消息"), recent.stream().map(ChatHistory::getContent).toList());
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(stringRedisTemplate).execute(argThat(script -> script.getScriptAsString().contains("RPUSH")
+                && !script.getScriptAsString().contains("LPUSH")), eq(List.of(LIST_KEY)), args.capture());
+        // 过期毫秒数、新到旧的消息、占位元素
+        assertArrayEquals(new Object[]{"1800000", json(stored), "_"}, args.getValue());
+    }
+
+    @Test
+    void appendPushesToSharedList() throws Exception {
+        ChatHistory message = message("你好");
+
+        appender.append(List.of(message));
+
+        verify(stringRedisTemplate).execute(argThat(script -> script.getScriptAsString().contains("LPUSH")),
+                eq(List.of(LIST_KEY)), eq(json(message)), eq("20"), eq("1800000"), eq("_"));
+    }
+
+    @Test
+    void redisFailureFallsBackToDatabase() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new IllegalStateException("Redis不可用"));
+        ChatHistory stored = message("库中消息");
+        when(chatHistoryMapper.findBySessionId("abc", 5)).thenReturn(List.of(stored));
+
+        assertEquals(List.of(stored), appender.recent(null, 1L, "abc", 5));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readReturns(List<String> first, List<String>... rest) {
+        when(stringRedisTemplate.execute(argThat(script -> script != null && script.getScriptAsString().contains("LRANGE")),
+                eq(List.of(LIST_KEY)), any(Object[].class))).thenReturn(first, (Object[]) rest);
+    }
+
+    private static ChatHistory message(String content) {
+        ChatHistory message = new ChatHistory();
+        message.setSessionId("abc");
+        message.setRestaurantId(1L);
+        message.setIsUserMessage(true);
+        message.setContent(content);
+        message.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 0));
+        return message;
+    }
+
+    private static String json(ChatHistory message) throws Exception {
+        return MAPPER.writeValueAsString(message);
+    }
+}
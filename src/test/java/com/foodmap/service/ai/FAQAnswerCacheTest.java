@@ -0,0 +1,85 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.util.RedisCacheUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class FAQAnswerCacheTest {
+
+    private static final Long RESTAURANT_ID = 1L;
+
+    private RedisCacheUtil cacheUtil;
+    private FAQAnswerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cacheUtil = mock(RedisCacheUtil.class);
+        cache = new FAQAnswerCache(cacheUtil);
+        ReflectionTestUtils.setField(cache, "maxRestaurants", 100L);
+        ReflectionTestUtils.setField(cache, "maxEntriesPerRestaurant", 10);
+        ReflectionTestUtils.setField(cache, "expireMinutes", 30L);
+        ReflectionTestUtils.setField(cache, "similarityThreshold", 0.8);
+        cache.init();
+    }
+
+    @Test
+    void exactAndNormalizedQuestionHit() {
+        cache.put(RESTAURANT_ID, "有停车位吗？", "有，地下车库免费停车");
+
+        assertEquals("有，地下车库免费停车", cache.get(RESTAURANT_ID, "有停车位吗"));
+        assertEquals("有，地下车库免费停车", cache.get(RESTAURANT_ID, " 有停车位吗! "));
+        assertNull(cache.get(2L, "有停车位吗"));
+    }
+
+    @Test
+    void negatedQuestionDoesNotReuseAnswer() {
+        cache.put(RESTAURANT_ID, "有停车位吗", "有，地下车库免费停车");
+
+        // 二元组相似度恰好为0.8，且否定词不同
+        assertEquals(0.8, FAQAnswerCache.jaccard(FAQAnswerCache.shingles("有停车位吗"),
+                FAQAnswerCache.shingles("没有停车位吗")), 1e-9);
+        assertNull(cache.get(RESTAURANT_ID, "没有停车位吗"));
+        assertNull(cache.get(RESTAURANT_ID, "是不是有停车位吗"));
+    }
+
+    @Test
+    void similarityMustExceedThreshold() {
+        cache.put(RESTAURANT_ID, "你们店里晚上几点钟关门呢", "晚上十点");
+
+        assertEquals("晚上十点", cache.get(RESTAURANT_ID, "你们店里晚上几点钟关门啊"));
+        assertNull(cache.get(RESTAURANT_ID, "晚上几点关门"));
+    }
+
+    @Test
+    void invalidateClearsLocallyAndBroadcasts() {
+        cache.put(RESTAURANT_ID, "有停车位吗", "有");
+
+        cache.invalidate(RESTAURANT_ID);
+
+        assertNull(cache.get(RESTAURANT_ID, "有停车位吗"));
+        verify(cacheUtil).broadcastKeyInvalidation("faq:answers:" + RESTAURANT_ID);
+        verify(cacheUtil, never()).delete(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void remoteInvalidationClearsRestaurant() {
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(cacheUtil).addRemoteKeyInvalidationListener(listener.capture());
+        cache.put(RESTAURANT_ID, "有停车位吗", "有");
+        cache.put(2L, "有停车位吗", "没有");
+
+        listener.getValue().accept("faq:answers:" + RESTAURANT_ID);
+
+        assertNull(cache.get(RESTAURANT_ID, "有停车位吗"));
+        assertEquals("没有", cache.get(2L, "有停车位吗"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.entity.pojo.FAQ;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class FAQMatcherTest {
+
+    private PythonAnalyzerClient analyzerClient;
+    private FAQSearchIndex searchIndex;
+    private FAQMatcher matcher;
+
+    @BeforeEach
+    void setUp() {
+        analyzerClient = mock(PythonAnalyzerClient.class);
+        searchIndex = mock(FAQSearchIndex.class);
+        matcher = new FAQMatcher(analyzerClient, searchIndex);
+        ReflectionTestUtils.setField(matcher, "maxRestaurants", 100L);
+        matcher.init();
+
+        FAQ faq = new FAQ();
+        faq.setId(1L);
+        faq.setQuestion("几点营业");
+        faq.setAnswer("十点");
+        when(searchIndex.snapshot(7L)).thenReturn(new FAQSearchIndex.FAQSet("v1", List.of(faq)));
+        when(analyzerClient.pushFaqSet(anyMap())).thenReturn(Mono.just(Map.of()));
+    }
+
+    @Test
+    void nothingSentUntilSubscribed() {
+        Mono<List<Map<String, Object>>> result = matcher.match(7L, "几点开门");
+
+        verifyNoInteractions(analyzerClient);
+        when(analyzerClient.matchFaq(anyMap())).thenReturn(Mono.just(Map.of("matched_faqs", List.of(Map.of("faq_id", 1)))));
+        assertEquals(1, result.block().size());
+        // 首次匹配前推送一次FAQ集合
+        verify(analyzerClient).pushFaqSet(anyMap());
+    }
+
+    @Test
+    void missingFaqSetPushedAgainAndRetried() {
+        when(analyzerClient.matchFaq(anyMap())).thenReturn(
+                Mono.just(Map.of("faq_set_missing", true)),
+                Mono.just(Map.of("matched_faqs", List.of())));
+
+        assertEquals(List.of(), matcher.match(7L, "几点开门").block());
+
+        verify(analyzerClient, times(2)).pushFaqSet(anyMap());
+        verify(analyzerClient, times(2)).matchFaq(anyMap());
+    }
+
+    @Test
+    void pushedVersionNotPushedAgain() {
+        when(analyzerClient.matchFaq(anyMap())).thenReturn(Mono.just(Map.of("matched_faqs", List.of())));
+
+        matcher.match(7L, "几点开门").block();
+        matcher.match(7L, "几点关门").block();
+
+        verify(analyzerClient, times(1)).pushFaqSet(anyMap());
+    }
+
+    @Test
+    void restaurantWithoutFaqsSkipsPython() {
+        when(searchIndex.snapshot(8L)).thenReturn(new FAQSearchIndex.FAQSet("v0", List.of()));
+
+        assertEquals(List.of(), matcher.match(8L, "几点开门").block());
+        verifyNoInteractions(analyzerClient);
+    }
+}
@@ -0,0 +1,120 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.entity.pojo.FAQ;
+import com.foodmap.mapper.FAQMapper;
+import com.foodmap.util.RedisCacheUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FAQSearchIndexTest {
+
+    private static final Long RESTAURANT_ID = 1L;
+
+    private FAQMapper faqMapper;
+    private RedisCacheUtil cacheUtil;
+    private FAQSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        faqMapper = mock(FAQMapper.class);
+        cacheUtil = mock(RedisCacheUtil.class);
+        index = new FAQSearchIndex(faqMapper, cacheUtil);
+        ReflectionTestUtils.setField(index, "maxRestaurants", 100L);
+        ReflectionTestUtils.setField(index, "expireMinutes", 60L);
+        index.init();
+
+        when(faqMapper.findByRestaurantId(RESTAURANT_ID)).thenReturn(new ArrayList<>(List.of(
+                faq(1L, "营业时间是几点", "营业时间,几点"),
+                faq(2L, "可以停车吗", "停车"),
+                faq(3L, "有没有包间", "包间"),
+                faq(4L, "招牌菜是什么", "招牌菜"),
+                faq(5L, "可以刷卡吗", "刷卡")
+        )));
+    }
+
+    @Test
+    void ranksMatchingFaqFirst() {
+        List<FAQ> results = index.search(RESTAURANT_ID, "附近能停车吗", 3);
+
+        assertFalse(results.isEmpty());
+        assertEquals(2L, results.get(0).getId());
+    }
+
+    @Test
+    void rareTermOutweighsCommonTerm() {
+        // “可以”出现在两条FAQ中，“刷卡”只出现在一条中，IDF更高
+        List<FAQ> results = index.search(RESTAURANT_ID, "可以刷卡", 5);
+
+        assertEquals(5L, results.get(0).getId());
+        assertEquals(List.of(5L, 2L), results.stream().map(FAQ::getId).toList());
+    }
+
+    @Test
+    void unrelatedQueryReturnsNothing() {
+        assertTrue(index.search(RESTAURANT_ID, "wifi密码", 3).isEmpty());
+        assertTrue(index.search(RESTAURANT_ID, "", 3).isEmpty());
+    }
+
+    @Test
+    void respectsLimit() {
+        assertEquals(1, index.search(RESTAURANT_ID, "可以", 1).size());
+    }
+
+    @Test
+    void loadsEachRestaurantOnce() {
+        index.search(RESTAURANT_ID, "停车", 3);
+        index.search(RESTAURANT_ID, "包间", 3);
+
+        verify(faqMapper, times(1)).findByRestaurantId(RESTAURANT_ID);
+    }
+
+    @Test
+    void upsertAndRemoveUpdateLoadedIndex() {
+        index.search(RESTAURANT_ID, "停车", 3);
+
+        index.upsert(faq(6L, "能带宠物吗", "宠物"));
+        assertEquals(6L, index.search(RESTAURANT_ID, "宠物", 3).get(0).getId());
+
+        index.upsert(faq(2L, "停车收费吗", "停车,收费"));
+        assertEquals("停车收费吗", index.search(RESTAURANT_ID, "收费", 3).get(0).getQuestion());
+
+        index.remove(RESTAURANT_ID, 6L);
+        assertTrue(index.search(RESTAURANT_ID, "宠物", 3).isEmpty());
+
+        verify(cacheUtil, times(3)).broadcastKeyInvalidation("faq:index:" + RESTAURANT_ID);
+        verify(faqMapper, times(1)).findByRestaurantId(RESTAURANT_ID);
+    }
+
+    @Test
+    void snapshotVersionChangesOnlyWithContent() {
+        FAQSearchIndex.FAQSet first = index.snapshot(RESTAURANT_ID);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), first.faqs().stream().map(FAQ::getId).toList());
+        assertEquals(first.version(), index.snapshot(RESTAURANT_ID).version());
+
+        // 只改关键词不影响版本号
+        index.upsert(faq(3L, "有没有包间", "包间,包厢"));
+        assertEquals(first.version(), index.snapshot(RESTAURANT_ID).version());
+
+        FAQ changed = faq(3L, "有没有包间", "包间");
+        changed.setAnswer("有，需提前预约");
+        index.upsert(changed);
+        assertNotEquals(first.version(), index.snapshot(RESTAURANT_ID).version());
+    }
+
+    private static FAQ faq(Long id, String question, String keywords) {
+        FAQ faq = new FAQ();
+        faq.setId(id);
+        faq.setRestaurantId(RESTAURANT_ID);
+        faq.setQuestion(question);
+        faq.setAnswer(question + "的回答");
+        faq.setKeywords(keywords);
+        return faq;
+    }
+}
@@ -0,0 +1,53 @@
+package com.foodmap.service.ai;
+
+import com.foodmap.mapper.FAQMapper;
+import com.foodmap.mapper.ReviewMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class KeywordExtractorTest {
+
+    private KeywordExtractor extractor;
+
+    @BeforeEach
+    void setUp() {
+        extractor = new KeywordExtractor(mock(FAQMapper.class), mock(ReviewMapper.class));
+        // 不加载词典，只用二元组切分
+        ReflectionTestUtils.setField(extractor, "dictionaryPath", "missing_terms.txt");
+        ReflectionTestUtils.setField(extractor, "corpusExpireMinutes", 360L);
+        extractor.init();
+    }
+
+    @Test
+    void singleCharacterStopWordsDoNotSplitWords() {
+        List<String> terms = extractor.segment("和牛");
+        assertTrue(terms.contains("和牛"));
+
+        terms = extractor.segment("成都火锅");
+        assertTrue(terms.contains("成都"));
+        assertTrue(terms.contains("火锅"));
+    }
+
+    @Test
+    void stopWordsFilteredFromTokens() {
+        List<String> terms = extractor.segment("请问你们有没有停车位");
+
+        assertTrue(terms.contains("停车"));
+        assertTrue(terms.contains("车位"));
+        assertFalse(terms.contains("请问"));
+        assertFalse(terms.contains("有没有"));
+        assertFalse(terms.contains("你们"));
+    }
+
+    @Test
+    void singleCharacterTokensDropped() {
+        assertEquals(List.of(), extractor.segment("吗"));
+        assertEquals(List.of("wifi"), extractor.segment("有wifi吗"));
+    }
+}
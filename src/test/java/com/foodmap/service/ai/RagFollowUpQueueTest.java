@@ -0,0 +1,124 @@
+package com.foodmap.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodmap.util.RedisLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RagFollowUpQueueTest {
+
+    private static final String PENDING_KEY = "faq:followups";
+    private static final String PROCESSING_KEY = "faq:followups:processing";
+    private static final String LOCK_KEY = "faq:followups:lock";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private StringRedisTemplate stringRedisTemplate;
+    private ListOperations<String, String> listOperations;
+    private RedisLock redisLock;
+    private RagFollowUpQueue queue;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        listOperations = mock(ListOperations.class);
+        redisLock = mock(RedisLock.class);
+        when(stringRedisTemplate.opsForList()).thenReturn(listOperations);
+        when(redisLock.tryLock(eq(LOCK_KEY), any(Duration.class))).thenReturn("token");
+        when(redisLock.renew(eq(LOCK_KEY), eq("token"), any(Duration.class))).thenReturn(true);
+
+        queue = new RagFollowUpQueue(stringRedisTemplate, redisLock);
+        ReflectionTestUtils.setField(queue, "batchSize", 50);
+        ReflectionTestUtils.setField(queue, "maxAttempts", 3);
+    }
+
+    @Test
+    void processesOldestFirstAndReleasesOwnLock() throws Exception {
+        // 处理中列表左进右出，队尾是最早的任务
+        claim(followUp("第二个", 0), followUp("第一个", 0));
+        List<String> handled = new ArrayList<>();
+
+        assertEquals(2, queue.drain(f -> handled.add(f.question())));
+
+        assertEquals(List.of("第一个", "第二个"), handled);
+        verify(listOperations, times(2)).rightPop(PROCESSING_KEY);
+        verify(redisLock).unlock(LOCK_KEY, "token");
+        verify(stringRedisTemplate, never()).delete(LOCK_KEY);
+    }
+
+    @Test
+    void failedJobIsRequeuedWithAttempt() throws Exception {
+        claim(followUp("问题", 0));
+
+        queue.drain(failing());
+
+        ArgumentCaptor<String> requeued = ArgumentCaptor.forClass(String.class);
+        verify(listOperations).leftPush(eq(PENDING_KEY), requeued.capture());
+        assertEquals(1, MAPPER.readValue(requeued.getValue(), RagFollowUpQueue.FollowUp.class).attempts());
+        verify(listOperations).rightPop(PROCESSING_KEY);
+    }
+
+    @Test
+    void jobDroppedAfterMaxAttempts() throws Exception {
+        claim(followUp("问题", 2));
+
+        queue.drain(failing());
+
+        verify(listOperations, never()).leftPush(anyString(), anyString());
+        verify(listOperations).rightPop(PROCESSING_KEY);
+    }
+
+    @Test
+    void stopsWhenLockIsLost() throws Exception {
+        claim(followUp("第二个", 0), followUp("第一个", 0));
+        when(redisLock.renew(eq(LOCK_KEY), eq("token"), any(Duration.class))).thenReturn(false);
+        List<String> handled = new ArrayList<>();
+
+        assertEquals(0, queue.drain(f -> handled.add(f.question())));
+
+        // 处理中列表可能已归新的持锁节点，不能再弹出
+        assertEquals(List.of("第一个"), handled);
+        verify(listOperations, never()).rightPop(anyString());
+        verify(redisLock).unlock(LOCK_KEY, "token");
+    }
+
+    @Test
+    void skippedWhileAnotherNodeDrains() {
+        when(redisLock.tryLock(eq(LOCK_KEY), any(Duration.class))).thenReturn(null);
+
+        assertEquals(0, queue.drain(f -> fail("不应处理")));
+
+        verifyNoInteractions(stringRedisTemplate);
+        verify(redisLock, never()).unlock(anyString(), anyString());
+    }
+
+    private void claim(String... processing) {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(List.of(PENDING_KEY, PROCESSING_KEY)), anyString()))
+                .thenReturn((long) processing.length);
+        when(listOperations.range(PROCESSING_KEY, 0, -1)).thenReturn(List.of(processing));
+    }
+
+    private static Consumer<RagFollowUpQueue.FollowUp> failing() {
+        return f -> {
+            throw new IllegalStateException("数据库不可用");
+        };
+    }
+
+    private static String followUp(String question, int attempts) throws Exception {
+        return MAPPER.writeValueAsString(new RagFollowUpQueue.FollowUp(1L, question, "回答", attempts));
+    }
+}
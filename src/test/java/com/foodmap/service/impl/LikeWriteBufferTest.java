@@ -0,0 +1,212 @@
+package com.foodmap.service.impl;
+
+import com.foodmap.entity.pojo.Like;
+import com.foodmap.exception.ServiceUnavailableException;
+import com.foodmap.mapper.LikeMapper;
+import com.foodmap.mapper.ReviewMapper;
+import com.foodmap.util.RedisLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LikeWriteBufferTest {
+
+    private static final String FLUSH_LOCK_KEY = "likes:flush:lock";
+    private static final String PENDING_KEY = "likes:pending";
+    private static final String FLUSHING_KEY = "likes:pending:flushing";
+    private static final String FLUSH_GENERATION_KEY = "likes:flush:generation";
+    private static final String TOKEN = "token";
+
+    private StringRedisTemplate stringRedisTemplate;
+    private HashOperations<String, Object, Object> hashOperations;
+    private ValueOperations<String, String> valueOperations;
+    private LikeMapper likeMapper;
+    private ReviewMapper reviewMapper;
+    private TransactionTemplate transactionTemplate;
+    private RedisLock redisLock;
+    private LikeWriteBuffer buffer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        valueOperations = mock(ValueOperations.class);
+        likeMapper = mock(LikeMapper.class);
+        reviewMapper = mock(ReviewMapper.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        redisLock = mock(RedisLock.class);
+        when(stringRedisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisLock.tryLock(eq(FLUSH_LOCK_KEY), any(Duration.class))).thenReturn(TOKEN);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        buffer = new LikeWriteBuffer(stringRedisTemplate, likeMapper, reviewMapper, transactionTemplate, redisLock);
+        ReflectionTestUtils.setField(buffer, "setTtlSeconds", 86400L);
+    }
+
+    @Test
+    void flushWritesSnapshotToDatabase() {
+        snapshotResult(1L);
+        when(hashOperations.entries(FLUSHING_KEY)).thenReturn(Map.of(
+                "5:7", Like.TYPE_LIKE,
+                "5:8", "",
+                "6:7", Like.TYPE_LIKE));
+
+        buffer.flush();
+
+        List<Like> inserted = captureBatches(likeMapper, true);
+        List<Like> deleted = captureBatches(likeMapper, false);
+        assertEquals(2, inserted.size());
+        assertTrue(inserted.stream().allMatch(like -> like.getUserId() == 7L && Like.TYPE_LIKE.equals(like.getType())));
+        assertEquals(1, deleted.size());
+        assertEquals(5L, deleted.get(0).getReviewId());
+        assertEquals(8L, deleted.get(0).getUserId());
+
+        ArgumentCaptor<List<Long>> reviews = listCaptor();
+        verify(reviewMapper).refreshLikeCounts(reviews.capture());
+        assertEquals(List.of(5L, 6L), reviews.getValue().stream().sorted().toList());
+
+        // 先推进代数，再删除快照，最后释放锁
+        InOrder order = inOrder(valueOperations, stringRedisTemplate, redisLock);
+        order.verify(valueOperations).increment(FLUSH_GENERATION_KEY);
+        order.verify(stringRedisTemplate).delete(FLUSHING_KEY);
+        order.verify(redisLock).unlock(FLUSH_LOCK_KEY, TOKEN);
+    }
+
+    @Test
+    void failedFlushKeepsSnapshotForReplay() {
+        snapshotResult(1L);
+        when(hashOperations.entries(FLUSHING_KEY)).thenReturn(Map.of("5:7", Like.TYPE_LIKE));
+        doThrow(new IllegalStateException("数据库不可用")).when(likeMapper).batchInsertIgnore(anyList());
+
+        buffer.flush();
+
+        verify(valueOperations, never()).increment(FLUSH_GENERATION_KEY);
+        verify(stringRedisTemplate, never()).delete(FLUSHING_KEY);
+        verify(redisLock).unlock(FLUSH_LOCK_KEY, TOKEN);
+    }
+
+    @Test
+    void nextFlushReplaysLeftoverSnapshot() {
+        // 快照脚本在刷新中哈希仍存在时直接返回1，不覆盖上次未完成的快照
+        snapshotResult(1L);
+        when(hashOperations.entries(FLUSHING_KEY)).thenReturn(Map.of("5:7", Like.TYPE_LIKE));
+        doThrow(new IllegalStateException("数据库不可用")).doReturn(1).when(likeMapper).batchInsertIgnore(anyList());
+
+        buffer.flush();
+        buffer.flush();
+
+        verify(likeMapper, times(2)).batchInsertIgnore(anyList());
+        verify(valueOperations, times(1)).increment(FLUSH_GENERATION_KEY);
+        verify(stringRedisTemplate, times(1)).delete(FLUSHING_KEY);
+    }
+
+    @Test
+    void nothingPendingSkipsDatabase() {
+        snapshotResult(0L);
+
+        buffer.flush();
+
+        verifyNoInteractions(likeMapper, reviewMapper, transactionTemplate);
+        verify(redisLock).unlock(FLUSH_LOCK_KEY, TOKEN);
+    }
+
+    @Test
+    void flushSkippedWhileAnotherNodeHoldsLock() {
+        when(redisLock.tryLock(eq(FLUSH_LOCK_KEY), any(Duration.class))).thenReturn(null);
+
+        buffer.flush();
+
+        verifyNoInteractions(stringRedisTemplate, likeMapper, reviewMapper);
+        verify(redisLock, never()).unlock(anyString(), anyString());
+    }
+
+    @Test
+    void toggleLoadsSetWhenMissing() {
+        // 第一次切换发现集合未加载，重建后再切换一次
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(-1L, 1L, 1L);
+        when(valueOperations.get(FLUSH_GENERATION_KEY)).thenReturn("3");
+        when(likeMapper.findUserIdsByReviewId(5L)).thenReturn(List.of(1L, 2L));
+
+        assertTrue(buffer.toggle(5L, 7L, null));
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(stringRedisTemplate, times(3)).execute(any(RedisScript.class), anyList(), args.capture());
+        // 重建参数：读取数据库前的刷新代数、待刷新字段前缀、集合过期毫秒数、分段大小、占位成员、数据库中的点赞用户
+        assertArrayEquals(new Object[]{"3", "5:", "86400000", "1000", "_", "1", "2"}, args.getAllValues().get(1));
+    }
+
+    @Test
+    void loadFailureIsSurfacedInsteadOfNotLiked() {
+        // 集合未加载，每次重建都与刷新提交冲突
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(-1L);
+        when(valueOperations.get(FLUSH_GENERATION_KEY)).thenReturn("3");
+        when(stringRedisTemplate.hasKey("likes:review:5")).thenReturn(false);
+
+        assertThrows(ServiceUnavailableException.class, () -> buffer.toggle(5L, 7L, null));
+        verify(likeMapper, times(3)).findUserIdsByReviewId(5L);
+        assertThrows(ServiceUnavailableException.class, () -> buffer.isLiked(5L, 7L));
+    }
+
+    @Test
+    void setEvictedRightAfterLoadIsSurfaced() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(-1L, 1L, -1L);
+
+        assertThrows(ServiceUnavailableException.class, () -> buffer.toggle(5L, 7L, null));
+    }
+
+    @Test
+    void rebuildRetriesWhenFlushCommitsConcurrently() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(-1L, -1L, 1L, 0L);
+        when(valueOperations.get(FLUSH_GENERATION_KEY)).thenReturn("3", "4");
+        when(likeMapper.findUserIdsByReviewId(5L)).thenReturn(List.of(7L));
+
+        assertFalse(buffer.toggle(5L, 7L, Like.TYPE_LIKE));
+
+        verify(likeMapper, times(2)).findUserIdsByReviewId(5L);
+    }
+
+    private void snapshotResult(long result) {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(List.of(PENDING_KEY, FLUSHING_KEY))))
+                .thenReturn(result);
+    }
+
+    private static List<Like> captureBatches(LikeMapper likeMapper, boolean inserts) {
+        ArgumentCaptor<List<Like>> captor = listCaptor();
+        if (inserts) {
+            verify(likeMapper, atLeast(0)).batchInsertIgnore(captor.capture());
+        } else {
+            verify(likeMapper, atLeast(0)).batchDelete(captor.capture());
+        }
+        return captor.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> ArgumentCaptor<List<T>> listCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+    }
+}
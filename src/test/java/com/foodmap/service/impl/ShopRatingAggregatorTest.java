@@ -0,0 +1,162 @@
+package com.foodmap.service.impl;
+
+import com.foodmap.entity.pojo.Review;
+import com.foodmap.entity.pojo.Shop;
+import com.foodmap.mapper.ReviewMapper;
+import com.foodmap.mapper.ShopMapper;
+import com.foodmap.service.ShopService;
+import com.foodmap.service.event.ReviewRatingChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ShopRatingAggregatorTest {
+
+    private static final Long SHOP_ID = 9L;
+
+    private StringRedisTemplate stringRedisTemplate;
+    private ReviewMapper reviewMapper;
+    private ShopMapper shopMapper;
+    private ShopService shopService;
+    private ShopRatingAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        reviewMapper = mock(ReviewMapper.class);
+        shopMapper = mock(ShopMapper.class);
+        shopService = mock(ShopService.class);
+        aggregator = new ShopRatingAggregator(stringRedisTemplate, reviewMapper, shopMapper, shopService);
+    }
+
+    @Test
+    void createdReviewAddsScoresAndCount() {
+        ReviewRatingChangedEvent event = ReviewRatingChangedEvent.added(review(5, 4, 3, null));
+
+        assertDeltas(event, 5, 4, 3, 0, 1);
+    }
+
+    @Test
+    void updatedReviewAddsOnlyScoreDifference() {
+        ReviewRatingChangedEvent event = ReviewRatingChangedEvent.changed(review(5, 4, 3, 2), review(3, 4, 5, 2));
+
+        assertDeltas(event, -2, 0, 2, 0, 0);
+        assertFalse(event.isEmpty());
+        assertTrue(ReviewRatingChangedEvent.changed(review(5, 4, 3, 2), review(5, 4, 3, 2)).isEmpty());
+    }
+
+    @Test
+    void deletedReviewSubtractsScoresAndCount() {
+        ReviewRatingChangedEvent event = ReviewRatingChangedEvent.removed(review(5, 4, 3, 2));
+
+        assertDeltas(event, -5, -4, -3, -2, -1);
+    }
+
+    @Test
+    void appliesDeltaAndWritesRoundedAverages() {
+        // 累加后的总分：综合9、环境7、服务5、口味3，评论数2
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of("9", "7", "5", "3", "2"));
+
+        aggregator.onReviewRatingChanged(ReviewRatingChangedEvent.added(review(5, 4, 3, 2)));
+
+        Shop shop = captureRatings();
+        assertEquals(SHOP_ID, shop.getShopId());
+        assertEquals(2L, shop.getReviewCount());
+        assertEquals(4.5f, shop.getCompositeScore());
+        assertEquals(3.5f, shop.getEnvironmentScore());
+        assertEquals(2.5f, shop.getServiceScore());
+        assertEquals(1.5f, shop.getTasteScore());
+        verify(shopService).evictShopCache(SHOP_ID);
+        verify(reviewMapper, never()).selectShopRatingTotals(any());
+    }
+
+    @Test
+    void seedsFromDatabaseWhenAccumulatorMissing() {
+        // 第一次调用为累加脚本（累加器不存在返回空），第二次为初始化脚本
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of("10", "9", "8", "7", "3"));
+        when(reviewMapper.selectShopRatingTotals(SHOP_ID)).thenReturn(Map.of(
+                "compositeSum", 10L, "environmentSum", 9L, "serviceSum", 8L, "tasteSum", 7L, "reviewCount", 3L));
+
+        aggregator.onReviewRatingChanged(ReviewRatingChangedEvent.added(review(5, 4, 3, 2)));
+
+        Shop shop = captureRatings();
+        assertEquals(3L, shop.getReviewCount());
+        assertEquals(3.3f, shop.getCompositeScore());
+        assertEquals(2.3f, shop.getTasteScore());
+        verify(reviewMapper).selectShopRatingTotals(SHOP_ID);
+    }
+
+    @Test
+    void lastReviewRemovedResetsRatingsToZero() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of("0", "0", "0", "0", "0"));
+
+        aggregator.onReviewRatingChanged(ReviewRatingChangedEvent.removed(review(5, 4, 3, 2)));
+
+        Shop shop = captureRatings();
+        assertEquals(0L, shop.getReviewCount());
+        assertEquals(0f, shop.getCompositeScore());
+    }
+
+    @Test
+    void emptyDeltaIsIgnored() {
+        aggregator.onReviewRatingChanged(ReviewRatingChangedEvent.changed(review(5, 4, 3, 2), review(5, 4, 3, 2)));
+
+        verifyNoInteractions(stringRedisTemplate, shopMapper, shopService);
+    }
+
+    @Test
+    void shopListsRefreshedOncePerDirtyPeriod() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of("9", "7", "5", "3", "2"));
+
+        aggregator.refreshShopLists();
+        verify(shopService, never()).evictShopListCache();
+
+        aggregator.onReviewRatingChanged(ReviewRatingChangedEvent.added(review(5, 4, 3, 2)));
+        aggregator.onReviewRatingChanged(ReviewRatingChangedEvent.added(review(4, 4, 4, 4)));
+        aggregator.refreshShopLists();
+        aggregator.refreshShopLists();
+
+        verify(shopService, times(1)).evictShopListCache();
+    }
+
+    private Shop captureRatings() {
+        ArgumentCaptor<Shop> captor = ArgumentCaptor.forClass(Shop.class);
+        verify(shopMapper).updateRatings(captor.capture());
+        return captor.getValue();
+    }
+
+    private static void assertDeltas(ReviewRatingChangedEvent event, long composite, long environment,
+                                     long service, long taste, long count) {
+        assertEquals(SHOP_ID, event.getRestaurantId());
+        assertEquals(composite, event.getCompositeDelta());
+        assertEquals(environment, event.getEnvironmentDelta());
+        assertEquals(service, event.getServiceDelta());
+        assertEquals(taste, event.getTasteDelta());
+        assertEquals(count, event.getCountDelta());
+    }
+
+    private static Review review(Integer composite, Integer environment, Integer service, Integer taste) {
+        Review review = new Review();
+        review.setRestaurantId(SHOP_ID);
+        review.setCompositeScore(composite);
+        review.setEnvironmentScore(environment);
+        review.setServiceScore(service);
+        review.setTasteScore(taste);
+        return review;
+    }
+}
@@ -0,0 +1,48 @@
+package com.foodmap.service.impl;
+
+import com.foodmap.entity.dto.ShopAuthInfo;
+import com.foodmap.mapper.ShopMapper;
+import com.foodmap.security.service.PrincipalCache;
+import com.foodmap.util.RedisCacheUtil;
+import com.foodmap.util.SingleFlightLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+public class ShopServiceImplTest {
+
+    private ShopMapper shopMapper;
+    private RedisCacheUtil cacheUtil;
+    private ShopServiceImpl shopService;
+
+    @BeforeEach
+    void setUp() {
+        shopMapper = mock(ShopMapper.class);
+        cacheUtil = mock(RedisCacheUtil.class);
+        shopService = new ShopServiceImpl(shopMapper, cacheUtil, mock(SingleFlightLoader.class),
+                mock(PrincipalCache.class));
+    }
+
+    @Test
+    void evictShopCacheAlsoEvictsNameKey() {
+        // 按名称的缓存同样保存评分，评分变化后也要清除
+        ShopAuthInfo info = new ShopAuthInfo();
+        info.setShopId(3L);
+        info.setShopName("老街面馆");
+        when(shopMapper.selectShopAuthInfo(3L)).thenReturn(info);
+
+        shopService.evictShopCache(3L);
+
+        verify(cacheUtil).delete(List.of("shops:id:3", "shops:brief:3", "shops:name:老街面馆"));
+    }
+
+    @Test
+    void evictShopCacheOfDeletedShop() {
+        shopService.evictShopCache(3L);
+
+        verify(cacheUtil).delete(List.of("shops:id:3", "shops:brief:3"));
+    }
+}
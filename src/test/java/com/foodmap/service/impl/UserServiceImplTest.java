@@ -0,0 +1,91 @@
+package com.foodmap.service.impl;
+
+import com.foodmap.config.RedisValueCodec;
+import com.foodmap.entity.pojo.User;
+import com.foodmap.mapper.UserMapper;
+import com.foodmap.security.service.PrincipalCache;
+import com.foodmap.util.CacheMetrics;
+import com.foodmap.util.KeyBloomFilter;
+import com.foodmap.util.RedisLock;
+import com.foodmap.util.RedisCacheUtil;
+import com.foodmap.util.SecurityUtil;
+import com.foodmap.util.SingleFlightLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UserServiceImplTest {
+
+    private static final String PASSWORD = "Secret123";
+
+    private UserMapper userMapper;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(mock(ValueOperations.class));
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> stringOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(stringOperations);
+        when(stringOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+
+        // 真实的两级缓存，本地缓存开启，Redis为mock
+        RedisCacheUtil cacheUtil = new RedisCacheUtil();
+        ReflectionTestUtils.setField(cacheUtil, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(cacheUtil, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(cacheUtil, "valueCodec", RedisValueCodec.of("json", "users:=smile", 0));
+        ReflectionTestUtils.setField(cacheUtil, "cacheMetrics", mock(CacheMetrics.class));
+        ReflectionTestUtils.setField(cacheUtil, "localEnabled", true);
+        ReflectionTestUtils.setField(cacheUtil, "localPrefixes", "shops:,users:");
+        ReflectionTestUtils.setField(cacheUtil, "localMaximumSize", 100L);
+        ReflectionTestUtils.setField(cacheUtil, "localExpireSeconds", 30L);
+        ReflectionTestUtils.setField(cacheUtil, "invalidationChannel", "cache:invalidation");
+        cacheUtil.init();
+
+        KeyBloomFilter bloomFilter = mock(KeyBloomFilter.class);
+        when(bloomFilter.mightContain(anyString())).thenReturn(true);
+        SingleFlightLoader cacheLoader = new SingleFlightLoader(cacheUtil, new RedisLock(stringRedisTemplate), bloomFilter);
+        ReflectionTestUtils.setField(cacheLoader, "lockMillis", 3000L);
+        ReflectionTestUtils.setField(cacheLoader, "pollMillis", 10L);
+        ReflectionTestUtils.setField(cacheLoader, "nullTtlSeconds", 60L);
+
+        userMapper = mock(UserMapper.class);
+        User stored = new User();
+        stored.setUserId(1L);
+        stored.setUserName("alice");
+        stored.setPassword(SecurityUtil.encryptPassword(PASSWORD));
+        when(userMapper.selectByUsername("alice")).thenReturn(stored);
+
+        userService = new UserServiceImpl(userMapper, cacheUtil, cacheLoader, mock(PrincipalCache.class));
+    }
+
+    @Test
+    void sameUserLogsInTwiceInARow() {
+        assertNotNull(userService.login("alice", PASSWORD));
+        // 登录接口返回前清空密码，与UserController一致
+        userService.getUserByName("alice").setPassword(null);
+
+        User second = userService.login("alice", PASSWORD);
+
+        assertNotNull(second.getPassword());
+        verify(userMapper, times(1)).selectByUsername("alice");
+    }
+
+    @Test
+    void wrongPasswordStillRejectedFromCache() {
+        userService.login("alice", PASSWORD);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.login("alice", "Wrong1234"));
+    }
+}
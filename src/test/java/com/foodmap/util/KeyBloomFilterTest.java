@@ -0,0 +1,98 @@
+package com.foodmap.util;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class KeyBloomFilterTest {
+
+    private final RedisCacheUtil cacheUtil = mock(RedisCacheUtil.class);
+
+    @Test
+    void everythingMightExistBeforeBuild() {
+        KeyBloomFilter filter = filter(true);
+
+        assertTrue(filter.mightContain("shops:id:1"));
+        assertTrue(filter.mightContain("users:name:nobody"));
+    }
+
+    @Test
+    void builtFilterHasNoFalseNegativesAndFewFalsePositives() {
+        KeyBloomFilter filter = filter(true);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            keys.add("shops:id:" + i);
+        }
+        filter.rebuild(keys);
+
+        keys.forEach(key -> assertTrue(filter.mightContain(key), key));
+
+        int falsePositives = 0;
+        for (int i = 10000; i < 20000; i++) {
+            if (filter.mightContain("shops:id:" + i)) {
+                falsePositives++;
+            }
+        }
+        // 期望误判率1%，留出余量
+        assertTrue(falsePositives < 300, "误判数: " + falsePositives);
+    }
+
+    @Test
+    void keysOutsidePrefixesAreNotFiltered() {
+        KeyBloomFilter filter = filter(true);
+        filter.rebuild(List.of("shops:id:1"));
+
+        assertTrue(filter.mightContain("reviews:1"));
+        assertTrue(filter.mightContain("shops:brief:404"));
+    }
+
+    @Test
+    void invalidatedKeysAreAddedBeforeAndAfterBuild() {
+        KeyBloomFilter filter = filter(true);
+        Consumer<String> listener = captureListener();
+
+        // 构建期间失效的key在构建完成后补入
+        listener.accept("users:name:alice");
+        filter.rebuild(List.of("users:name:bob"));
+        listener.accept("users:name:carol");
+
+        assertTrue(filter.mightContain("users:name:alice"));
+        assertTrue(filter.mightContain("users:name:bob"));
+        assertTrue(filter.mightContain("users:name:carol"));
+    }
+
+    @Test
+    void disabledFilterNeverRejects() {
+        KeyBloomFilter filter = filter(false);
+        filter.rebuild(List.of("shops:id:1"));
+
+        assertFalse(filter.isEnabled());
+        assertTrue(filter.mightContain("shops:id:404"));
+        verify(cacheUtil, never()).addKeyInvalidationListener(any());
+    }
+
+    private KeyBloomFilter filter(boolean enabled) {
+        KeyBloomFilter filter = new KeyBloomFilter(cacheUtil);
+        ReflectionTestUtils.setField(filter, "enabled", enabled);
+        ReflectionTestUtils.setField(filter, "prefixes", "shops:id:,shops:name:,users:name:");
+        ReflectionTestUtils.setField(filter, "expectedInsertions", 10000L);
+        ReflectionTestUtils.setField(filter, "falsePositiveRate", 0.01);
+        filter.init();
+        return filter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<String> captureListener() {
+        ArgumentCaptor<Consumer<String>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(cacheUtil).addKeyInvalidationListener(captor.capture());
+        return captor.getValue();
+    }
+}
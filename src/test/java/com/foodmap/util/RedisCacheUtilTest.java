@@ -0,0 +1,114 @@
+package com.foodmap.util;
+
+import com.foodmap.config.RedisValueCodec;
+import com.foodmap.entity.pojo.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RedisCacheUtilTest {
+
+    private static final String KEY = "users:name:alice";
+
+    private ValueOperations<String, Object> valueOperations;
+    private RedisCacheUtil cacheUtil;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheUtil = localCache(redisTemplate);
+    }
+
+    /**
+     * 构建启用本地缓存的实例，Redis为mock
+     */
+    private static RedisCacheUtil localCache(RedisTemplate<String, Object> redisTemplate) {
+        RedisCacheUtil cacheUtil = new RedisCacheUtil();
+        ReflectionTestUtils.setField(cacheUtil, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(cacheUtil, "stringRedisTemplate", mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(cacheUtil, "valueCodec", RedisValueCodec.of("json", "users:=smile", 0));
+        ReflectionTestUtils.setField(cacheUtil, "cacheMetrics", mock(CacheMetrics.class));
+        ReflectionTestUtils.setField(cacheUtil, "localEnabled", true);
+        ReflectionTestUtils.setField(cacheUtil, "localPrefixes", "shops:,users:");
+        ReflectionTestUtils.setField(cacheUtil, "localMaximumSize", 100L);
+        ReflectionTestUtils.setField(cacheUtil, "localExpireSeconds", 30L);
+        ReflectionTestUtils.setField(cacheUtil, "invalidationChannel", "cache:invalidation");
+        cacheUtil.init();
+        return cacheUtil;
+    }
+
+    @Test
+    void localHitReturnsFreshCopy() {
+        cacheUtil.set(KEY, user("hash"), 1, TimeUnit.HOURS);
+
+        User first = (User) cacheUtil.get(KEY);
+        first.setPassword(null);
+        User second = (User) cacheUtil.get(KEY);
+
+        assertNotSame(first, second);
+        assertEquals("hash", second.getPassword());
+        verify(valueOperations, never()).get(anyString());
+    }
+
+    @Test
+    void storedValueIsNotSharedWithCaller() {
+        User cached = user("hash");
+        cacheUtil.set(KEY, cached, 1, TimeUnit.HOURS);
+        cached.setPassword(null);
+
+        assertEquals("hash", ((User) cacheUtil.get(KEY)).getPassword());
+    }
+
+    @Test
+    void redisHitBackfillsIndependentCopy() {
+        when(valueOperations.get(KEY)).thenReturn(user("hash"));
+
+        ((User) cacheUtil.get(KEY)).setPassword(null);
+        User second = (User) cacheUtil.get(KEY);
+
+        assertEquals("hash", second.getPassword());
+        verify(valueOperations, times(1)).get(KEY);
+    }
+
+    @Test
+    void multiGetAndMultiSetUseCopies() {
+        cacheUtil.multiSet(Map.of(KEY, user("hash")));
+
+        ((User) cacheUtil.multiGet(List.of(KEY)).get(0)).setPassword(null);
+
+        assertEquals("hash", ((User) cacheUtil.multiGet(List.of(KEY)).get(0)).getPassword());
+        verify(valueOperations, never()).multiGet(anyList());
+    }
+
+    @Test
+    void deleteEvictsLocalCopy() {
+        cacheUtil.set(KEY, user("hash"), 1, TimeUnit.HOURS);
+
+        cacheUtil.delete(KEY);
+
+        assertNull(cacheUtil.get(KEY));
+        verify(valueOperations).get(KEY);
+    }
+
+    private static User user(String password) {
+        User user = new User();
+        user.setUserId(1L);
+        user.setUserName("alice");
+        user.setPassword(password);
+        return user;
+    }
+}
@@ -0,0 +1,53 @@
+package com.foodmap.util;
+
+import com.foodmap.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReviewCursorTest {
+
+    @Test
+    void encodeThenDecodeReturnsSameCursor() {
+        ReviewCursor cursor = new ReviewCursor(LocalDateTime.of(2024, 5, 1, 12, 30, 15), 42L);
+
+        assertEquals(cursor, ReviewCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void keepsFractionalSeconds() {
+        // 同一秒内创建的评论靠纳秒部分和ID区分先后
+        ReviewCursor cursor = new ReviewCursor(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456789), 7L);
+
+        assertEquals(cursor, ReviewCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void encodedTokenIsUrlSafe() {
+        String token = new ReviewCursor(LocalDateTime.of(2024, 12, 31, 23, 59, 59), Long.MAX_VALUE).encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void emptyTokenMeansFirstPage() {
+        assertNull(ReviewCursor.decode(null));
+        assertNull(ReviewCursor.decode(""));
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        assertThrows(BadRequestException.class, () -> ReviewCursor.decode("不是游标"));
+        assertThrows(BadRequestException.class, () -> ReviewCursor.decode(encodeRaw("2024-05-01T12:30:15")));
+        assertThrows(BadRequestException.class, () -> ReviewCursor.decode(encodeRaw("yesterday,1")));
+        assertThrows(BadRequestException.class, () -> ReviewCursor.decode(encodeRaw("2024-05-01T12:30:15,abc")));
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,196 @@
+package com.foodmap.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SingleFlightLoaderTest {
+
+    private static final String KEY = "shops:id:1";
+    private static final String NULL_MARKER = "__null__";
+
+    private RedisCacheUtil cacheUtil;
+    private StringRedisTemplate stringRedisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private KeyBloomFilter bloomFilter;
+    private SingleFlightLoader loader;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        cacheUtil = mock(RedisCacheUtil.class);
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        bloomFilter = mock(KeyBloomFilter.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        when(bloomFilter.mightContain(anyString())).thenReturn(true);
+
+        loader = new SingleFlightLoader(cacheUtil, new RedisLock(stringRedisTemplate), bloomFilter);
+        ReflectionTestUtils.setField(loader, "lockMillis", 3000L);
+        ReflectionTestUtils.setField(loader, "pollMillis", 10L);
+        ReflectionTestUtils.setField(loader, "nullTtlSeconds", 60L);
+    }
+
+    @Test
+    void cacheHitSkipsLoader() {
+        when(cacheUtil.get(KEY)).thenReturn("cached");
+
+        assertEquals("cached", loader.get(KEY, () -> fail("不应回源")));
+    }
+
+    @Test
+    void loadsAndCachesValueOnMiss() {
+        assertEquals("loaded", loader.get(KEY, () -> "loaded", 2, TimeUnit.HOURS));
+
+        verify(cacheUtil).set(KEY, "loaded", 2, TimeUnit.HOURS);
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(List.of("lock:load:" + KEY)), anyString());
+    }
+
+    @Test
+    void nullResultIsCachedAsMarker() {
+        assertNull(loader.get(KEY, () -> null));
+
+        verify(cacheUtil).set(KEY, NULL_MARKER, 60L, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void cachedMarkerReturnsNullWithoutLoading() {
+        when(cacheUtil.get(KEY)).thenReturn(NULL_MARKER);
+
+        assertNull(loader.get(KEY, () -> fail("不应回源")));
+        verify(cacheUtil, never()).set(anyString(), any(), anyLong(), any());
+    }
+
+    @Test
+    void bloomFilterMissReturnsNullWithoutLoading() {
+        when(bloomFilter.mightContain(KEY)).thenReturn(false);
+
+        assertNull(loader.get(KEY, () -> fail("不应回源")));
+        verifyNoInteractions(valueOperations);
+    }
+
+    @Test
+    void loaderExceptionPropagatesAndReleasesLock() {
+        IllegalStateException failure = new IllegalStateException("数据库不可用");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> loader.get(KEY, () -> { throw failure; }));
+
+        assertSame(failure, thrown);
+        verify(cacheUtil, never()).set(anyString(), any(), anyLong(), any());
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(List.of("lock:load:" + KEY)), anyString());
+        // 失败后不残留进行中的加载，下次请求重新回源
+        assertEquals("retry", loader.get(KEY, () -> "retry"));
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<String> slowLoader = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "loaded";
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> loader.get(KEY, slowLoader));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            long cacheReads = cacheReads();
+            Future<String> second = executor.submit(() -> loader.get(KEY, slowLoader));
+            waitUntilBlocked(cacheReads, second);
+            release.countDown();
+
+            assertEquals("loaded", first.get(5, TimeUnit.SECONDS));
+            assertEquals("loaded", second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentWaiterReceivesLoaderException() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> failingLoader = () -> {
+            loading.countDown();
+            await(release);
+            throw new IllegalStateException("数据库不可用");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> loader.get(KEY, failingLoader));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            long cacheReads = cacheReads();
+            Future<String> second = executor.submit(() -> loader.get(KEY, () -> fail("等待者不应回源")));
+            waitUntilBlocked(cacheReads, second);
+            release.countDown();
+
+            for (Future<String> future : List.of(first, second)) {
+                Exception e = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+                assertEquals("数据库不可用", e.getCause().getMessage());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void loadsLocallyWhenRedisLockUnavailable() {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenThrow(new IllegalStateException("Redis不可用"));
+
+        assertEquals("loaded", loader.get(KEY, () -> "loaded"));
+        verify(stringRedisTemplate, never()).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    // 等待第二个请求读过缓存，随后它会挂起在进行中的加载上
+    private void waitUntilBlocked(long cacheReadsBefore, Future<?> future) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline && !future.isDone()) {
+            if (cacheReads() > cacheReadsBefore) {
+                Thread.sleep(50);
+                return;
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private long cacheReads() {
+        return mockingDetails(cacheUtil).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("get"))
+                .count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}